@@ -3,5 +3,6 @@ create table member
 (
     id bigint generated by default as identity,
     name varchar(255),
-    primary key (id)
+    primary key (id),
+    constraint uk_member_name unique (name)
 )
\ No newline at end of file
@@ -0,0 +1,124 @@
+package hello.hello_spring.benchmark;
+
+import hello.hello_spring.domain.Member;
+import hello.hello_spring.repository.DurableMemoryMemberRepository;
+import org.openjdk.jmh.annotations.*;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.stream.Stream;
+
+/**
+ * DurableMemoryMemberRepository 쓰기 처리량과 복구 시간
+ * - save: 저장 한 건 = 로그 append + fsync(그룹 커밋). 스레드를 늘리면 fsync 한 번에 묶이는 저장이 늘어난다.
+ *   ./gradlew jmh -Pjmh.includes=DurableMemoryMemberRepositoryBenchmark.save -Pjmh.threads=16
+ * - recover: members명을 스냅샷 또는 로그로만 남겨두고 다시 여는 데 걸리는 시간 (SingleShotTime)
+ *   ./gradlew jmh -Pjmh.includes=DurableMemoryMemberRepositoryBenchmark.Recovery
+ * 1000만 명은 힙이 넉넉해야 한다. (-Xmx16g 정도)
+ * -> 저장할 때 채우는 1~3-gram 검색 인덱스가 힙 대부분을 차지한다. ("member123" 같은 이름이면 회원당 1.2KB 정도)
+ */
+public class DurableMemoryMemberRepositoryBenchmark {
+
+    @State(Scope.Benchmark)
+    @BenchmarkMode(Mode.Throughput)
+    @OutputTimeUnit(TimeUnit.MILLISECONDS)
+    @Warmup(iterations = 3, time = 2)
+    @Measurement(iterations = 5, time = 2)
+    @Fork(1)
+    public static class Write {
+
+        Path directory;
+        DurableMemoryMemberRepository repository;
+        final AtomicLong sequence = new AtomicLong();
+
+        @Setup(Level.Trial)
+        public void setUp() throws IOException {
+            directory = Files.createTempDirectory("member-durable");
+            // 측정 중에도 64MB마다 스냅샷이 돈다. (실제 운영 설정)
+            repository = new DurableMemoryMemberRepository(directory, 64L << 20, TimeUnit.MINUTES.toMillis(10));
+        }
+
+        @TearDown(Level.Trial)
+        public void tearDown() throws IOException {
+            repository.close();
+            deleteRecursively(directory);
+        }
+
+        @Benchmark
+        public Member save() {
+            Member member = new Member();
+            member.setName("bench" + sequence.incrementAndGet());
+            return repository.save(member);
+        }
+    }
+
+    @State(Scope.Benchmark)
+    @BenchmarkMode(Mode.SingleShotTime)
+    @OutputTimeUnit(TimeUnit.MILLISECONDS)
+    @Warmup(iterations = 1)
+    @Measurement(iterations = 3)
+    @Fork(value = 1, jvmArgsAppend = "-Xmx16g")
+    public static class Recovery {
+
+        @Param({"1000000", "10000000"})
+        int members;
+
+        // snapshot: 전부 스냅샷에 있음, log: 전부 로그에만 있음
+        @Param({"snapshot", "log"})
+        String source;
+
+        Path directory;
+
+        @Setup(Level.Trial)
+        public void setUp() throws IOException {
+            directory = Files.createTempDirectory("member-recovery");
+            DurableMemoryMemberRepository repository =
+                    new DurableMemoryMemberRepository(directory, Long.MAX_VALUE, Long.MAX_VALUE);
+
+            // 한 번에 10만 명씩 saveAll -> fsync도 10만 명에 한 번
+            List<Member> chunk = new ArrayList<>(100_000);
+            for (int i = 0; i < members; i++) {
+                Member member = new Member();
+                member.setName("member" + i);
+                chunk.add(member);
+                if (chunk.size() == 100_000) {
+                    repository.saveAll(chunk);
+                    chunk = new ArrayList<>(100_000);
+                }
+            }
+            repository.saveAll(chunk);
+
+            if (source.equals("snapshot")) {
+                repository.snapshot();
+            }
+            repository.close();
+        }
+
+        @TearDown(Level.Trial)
+        public void tearDown() throws IOException {
+            deleteRecursively(directory);
+        }
+
+        @Benchmark
+        public long recover() throws IOException {
+            try (DurableMemoryMemberRepository repository =
+                         new DurableMemoryMemberRepository(directory, Long.MAX_VALUE, Long.MAX_VALUE)) {
+                return repository.getRecoveryMillis();
+            }
+        }
+    }
+
+    static void deleteRecursively(Path directory) throws IOException {
+        try (Stream<Path> files = Files.walk(directory)) {
+            for (Path file : files.sorted(Comparator.reverseOrder()).toList()) {
+                Files.deleteIfExists(file);
+            }
+        }
+    }
+}
@@ -0,0 +1,68 @@
+package hello.hello_spring.benchmark;
+
+import org.openjdk.jmh.annotations.*;
+
+import java.io.IOException;
+import java.net.URI;
+import java.net.http.HttpClient;
+import java.net.http.HttpRequest;
+import java.net.http.HttpResponse;
+import java.time.Duration;
+import java.util.UUID;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * 실행 중인 애플리케이션에 HTTP 부하를 걸어서 가상 스레드 모드 전후를 비교한다.
+ * - 플랫폼 스레드: ./gradlew bootRun
+ * - 가상 스레드: ./gradlew bootRun --args='--spring.threads.virtual.enabled=true' (자바 21 이상)
+ * - 부하: ./gradlew jmh -Pjmh.includes=MemberHttpLoadBenchmark -Pjmh.threads=200
+ * 스레드 수를 톰캣 워커 수(기본 200)보다 크게 잡아야 차이가 보인다. 꼬리 지연은 SampleTime의 p0.99, p0.999를 본다.
+ * 대상 주소는 -Dhello.load.base-url 로 바꿀 수 있다. (기본 http://localhost:8080)
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode({Mode.Throughput, Mode.SampleTime})
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 2, time = 5)
+@Measurement(iterations = 3, time = 10)
+@Fork(1)
+public class MemberHttpLoadBenchmark {
+
+    String baseUrl;
+    HttpClient client;
+
+    @Setup(Level.Trial)
+    public void setUp() {
+        baseUrl = System.getProperty("hello.load.base-url", "http://localhost:8080");
+        // 리다이렉트는 따라가지 않는다. POST /members/new는 302 응답까지만 잰다.
+        client = HttpClient.newBuilder()
+                .connectTimeout(Duration.ofSeconds(5))
+                .followRedirects(HttpClient.Redirect.NEVER)
+                .build();
+    }
+
+    @Benchmark
+    public int listMembers() throws IOException, InterruptedException {
+        HttpRequest request = HttpRequest.newBuilder(URI.create(baseUrl + "/members?size=100"))
+                .GET()
+                .build();
+        return send(request);
+    }
+
+    @Benchmark
+    public int join() throws IOException, InterruptedException {
+        // 이름이 겹치면 중복 예외 경로를 재게 되니 매번 새 이름을 쓴다.
+        HttpRequest request = HttpRequest.newBuilder(URI.create(baseUrl + "/members/new"))
+                .header("Content-Type", "application/x-www-form-urlencoded")
+                .POST(HttpRequest.BodyPublishers.ofString("name=load-" + UUID.randomUUID()))
+                .build();
+        return send(request);
+    }
+
+    private int send(HttpRequest request) throws IOException, InterruptedException {
+        HttpResponse<Void> response = client.send(request, HttpResponse.BodyHandlers.discarding());
+        if (response.statusCode() >= 400) {
+            throw new IllegalStateException("HTTP " + response.statusCode() + " " + request.uri());
+        }
+        return response.statusCode();
+    }
+}
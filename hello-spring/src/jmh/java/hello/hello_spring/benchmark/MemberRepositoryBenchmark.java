@@ -0,0 +1,148 @@
+package hello.hello_spring.benchmark;
+
+import hello.hello_spring.HelloSpringApplication;
+import hello.hello_spring.domain.Member;
+import hello.hello_spring.repository.*;
+import jakarta.persistence.EntityManager;
+import org.openjdk.jmh.annotations.*;
+import org.springframework.boot.WebApplicationType;
+import org.springframework.boot.builder.SpringApplicationBuilder;
+import org.springframework.context.ConfigurableApplicationContext;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import javax.sql.DataSource;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Optional;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.function.Supplier;
+
+/**
+ * MemberRepository 구현체별 save / findById / findByName / findAll 비교
+ * 내장 H2(jdbc:h2:mem)에 rows 만큼 미리 넣어두고 측정한다.
+ * - 처리량, 지연 시간 분포(SampleTime), op당 할당량(gc 프로파일러)
+ * - 스레드 수: ./gradlew jmh -Pjmh.includes=MemberRepositoryBenchmark -Pjmh.threads=8
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode({Mode.Throughput, Mode.SampleTime})
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class MemberRepositoryBenchmark {
+
+    @Param({"memory", "mmap", "jdbc", "jdbcTemplate", "jpa", "springDataJpa"})
+    String implementation;
+
+    @Param({"1000", "100000"})
+    int rows;
+
+    ConfigurableApplicationContext context;
+    MemberRepository repository;
+    TransactionTemplate transactionTemplate;
+    Path mmapDirectory;
+
+    long firstId;
+    final AtomicLong sequence = new AtomicLong();
+
+    @Setup(Level.Trial)
+    public void setUp() throws Exception {
+        // 웹 서버 없이 스프링 컨텍스트만 띄운다. 측정에 방해되지 않게 TimeTraceAop, MemberMetricsAop는 끈다.
+        context = new SpringApplicationBuilder(HelloSpringApplication.class)
+                .web(WebApplicationType.NONE)
+                .properties(
+                        "spring.datasource.url=jdbc:h2:mem:bench;DB_CLOSE_DELAY=-1",
+                        "spring.jpa.hibernate.ddl-auto=create",
+                        "spring.jpa.show-sql=false",
+                        "hello.trace.scope=none",
+                        "hello.metrics.enabled=false")
+                .run();
+
+        DataSource dataSource = context.getBean(DataSource.class);
+        transactionTemplate = new TransactionTemplate(context.getBean(PlatformTransactionManager.class));
+
+        switch (implementation) {
+            case "memory" -> repository = new MemoryMemberRepository();
+            case "mmap" -> {
+                mmapDirectory = Files.createTempDirectory("member-bench");
+                repository = new MappedFileMemberRepository(mmapDirectory.resolve("members.dat"));
+            }
+            case "jdbc" -> repository = new JdbcMemberRepository(dataSource);
+            case "jdbcTemplate" -> repository = new JdbcTemplateMemberRepository(dataSource);
+            case "jpa" -> repository = new JpaMemberRepository(context.getBean(EntityManager.class));
+            case "springDataJpa" -> repository = context.getBean(SpringDataJpaMemberRepository.class);
+            default -> throw new IllegalArgumentException(implementation);
+        }
+
+        seed(dataSource);
+    }
+
+    // DB 구현체끼리는 같은 테이블을 보기 때문에 JDBC 배치로 한 번에 채운다.
+    private void seed(DataSource dataSource) {
+        List<Member> members = new ArrayList<>(rows);
+        for (int i = 0; i < rows; i++) {
+            Member member = new Member();
+            member.setName("seed" + i);
+            members.add(member);
+        }
+
+        if (repository instanceof MemoryMemberRepository memory) {
+            memory.clearStore();
+            memory.saveAll(members);
+        } else if (repository instanceof MappedFileMemberRepository) {
+            repository.saveAll(members);
+        } else {
+            new JdbcTemplateMemberRepository(dataSource).saveAll(members);
+        }
+        firstId = members.get(0).getId();
+    }
+
+    @TearDown(Level.Trial)
+    public void tearDown() throws Exception {
+        if (repository instanceof MemoryMemberRepository memory) {
+            memory.clearStore();
+        }
+        if (repository instanceof MappedFileMemberRepository mmap) {
+            mmap.close();
+        }
+        context.close();
+    }
+
+    // JPA 구현체는 트랜잭션이 있어야 저장된다. 공평하게 DB 구현체는 전부 트랜잭션 안에서 호출한다.
+    private <T> T call(Supplier<T> action) {
+        if (repository instanceof MemoryMemberRepository || repository instanceof MappedFileMemberRepository) {
+            return action.get();
+        }
+        return transactionTemplate.execute(status -> action.get());
+    }
+
+    @Benchmark
+    public Member save() {
+        Member member = new Member();
+        member.setName("bench" + sequence.incrementAndGet());
+        return call(() -> repository.save(member));
+    }
+
+    @Benchmark
+    public Optional<Member> findById() {
+        long id = firstId + ThreadLocalRandom.current().nextInt(rows);
+        return call(() -> repository.findById(id));
+    }
+
+    @Benchmark
+    public Optional<Member> findByName() {
+        String name = "seed" + ThreadLocalRandom.current().nextInt(rows);
+        return call(() -> repository.findByName(name));
+    }
+
+    @Benchmark
+    public List<Member> findAll() {
+        return call(() -> repository.findAll());
+    }
+}
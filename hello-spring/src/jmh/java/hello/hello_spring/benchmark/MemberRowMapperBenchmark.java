@@ -0,0 +1,91 @@
+package hello.hello_spring.benchmark;
+
+import com.zaxxer.hikari.HikariConfig;
+import com.zaxxer.hikari.HikariDataSource;
+import hello.hello_spring.domain.Member;
+import hello.hello_spring.repository.JdbcMemberRepository;
+import hello.hello_spring.repository.JdbcTemplateMemberRepository;
+import hello.hello_spring.repository.MemberRowMapper;
+import org.openjdk.jmh.annotations.*;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.jdbc.core.RowMapper;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * findAll 행 매핑 비교 (내장 H2, rows 건)
+ * - labelMapping: 바뀌기 전 방식. select * + rs.getLong("id") 처럼 컬럼 이름으로 꺼낸다.
+ * - indexMapping: select id, name + MemberRowMapper (컬럼 번호로 꺼낸다)
+ * - jdbcFindAll, jdbcTemplateFindAll: 실제 리포지토리 findAll
+ * gc 프로파일러의 op당 할당량도 같이 본다.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 3, time = 5)
+@Measurement(iterations = 5, time = 5)
+@Fork(value = 1, jvmArgsAppend = "-Xmx4g")
+public class MemberRowMapperBenchmark {
+
+    // 바뀌기 전 JdbcTemplateMemberRepository.memberRowMapper()와 같은 코드
+    static final RowMapper<Member> LABEL_MAPPER = (rs, rowNum) -> {
+        Member member = new Member();
+        member.setId(rs.getLong("id"));
+        member.setName(rs.getString("name"));
+        return member;
+    };
+
+    @Param({"1000000"})
+    int rows;
+
+    HikariDataSource dataSource;
+    JdbcTemplate jdbcTemplate;
+    JdbcMemberRepository jdbcRepository;
+    JdbcTemplateMemberRepository jdbcTemplateRepository;
+
+    @Setup(Level.Trial)
+    public void setUp() {
+        HikariConfig config = new HikariConfig();
+        config.setJdbcUrl("jdbc:h2:mem:rowmapper;DB_CLOSE_DELAY=-1");
+        dataSource = new HikariDataSource(config);
+
+        jdbcTemplate = new JdbcTemplate(dataSource);
+        jdbcTemplate.execute("create table member (id bigint generated by default as identity, name varchar(255), primary key (id), constraint uk_member_name unique (name))");
+        List<Object[]> names = new ArrayList<>(rows);
+        for (int i = 0; i < rows; i++) {
+            names.add(new Object[]{"member" + i});
+        }
+        jdbcTemplate.batchUpdate("insert into member(name) values(?)", names);
+
+        jdbcRepository = new JdbcMemberRepository(dataSource);
+        jdbcTemplateRepository = new JdbcTemplateMemberRepository(dataSource);
+    }
+
+    @TearDown(Level.Trial)
+    public void tearDown() {
+        jdbcTemplate.execute("drop table member");
+        dataSource.close();
+    }
+
+    @Benchmark
+    public List<Member> labelMapping() {
+        return jdbcTemplate.query("select * from member", LABEL_MAPPER);
+    }
+
+    @Benchmark
+    public List<Member> indexMapping() {
+        return jdbcTemplate.query(MemberRowMapper.SELECT, MemberRowMapper.INSTANCE);
+    }
+
+    @Benchmark
+    public List<Member> jdbcFindAll() {
+        return jdbcRepository.findAll();
+    }
+
+    @Benchmark
+    public List<Member> jdbcTemplateFindAll() {
+        return jdbcTemplateRepository.findAll();
+    }
+}
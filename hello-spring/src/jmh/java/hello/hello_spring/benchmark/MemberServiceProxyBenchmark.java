@@ -0,0 +1,76 @@
+package hello.hello_spring.benchmark;
+
+import hello.hello_spring.aop.LatencyRecorder;
+import hello.hello_spring.aop.MemberMetricsAop;
+import hello.hello_spring.aop.TimeTraceAop;
+import hello.hello_spring.domain.Member;
+import hello.hello_spring.repository.MemoryMemberRepository;
+import hello.hello_spring.service.MemberService;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.openjdk.jmh.annotations.*;
+import org.springframework.aop.aspectj.annotation.AspectJProxyFactory;
+
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * 프록시 없는 MemberService.join과 TimeTraceAop 프록시를 씌운 join의 처리량 비교
+ * - none: 프록시 없음
+ * - disabled: 프록시는 있지만 측정은 꺼둠 (프록시 + 조인 포인트 비용만)
+ * - all: 매 호출 측정
+ * - sampled: 100번 중 한 번 측정
+ * - metrics: TimeTraceAop 대신 MemberMetricsAop (Micrometer 타이머)
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class MemberServiceProxyBenchmark {
+
+    @Param({"none", "disabled", "all", "sampled", "metrics"})
+    String mode;
+
+    MemoryMemberRepository repository;
+    MemberService memberService;
+    final AtomicLong sequence = new AtomicLong();
+
+    @Setup(Level.Iteration)
+    public void setUp() {
+        repository = new MemoryMemberRepository();
+        repository.clearStore();
+
+        MemberService target = new MemberService(repository);
+        if ("none".equals(mode)) {
+            memberService = target;
+            return;
+        }
+
+        if ("metrics".equals(mode)) {
+            AspectJProxyFactory factory = new AspectJProxyFactory(target);
+            factory.setProxyTargetClass(true);
+            factory.addAspect(new MemberMetricsAop(new SimpleMeterRegistry()));
+            memberService = factory.getProxy();
+            return;
+        }
+
+        LatencyRecorder recorder = new LatencyRecorder(!"disabled".equals(mode), "sampled".equals(mode) ? 100 : 1);
+        AspectJProxyFactory factory = new AspectJProxyFactory(target);
+        factory.setProxyTargetClass(true);
+        factory.addAspect(new TimeTraceAop(recorder));
+        memberService = factory.getProxy();
+    }
+
+    @TearDown(Level.Iteration)
+    public void tearDown() {
+        repository.clearStore();
+    }
+
+    @Benchmark
+    public Long join() {
+        Member member = new Member();
+        member.setName("member" + sequence.incrementAndGet());
+        return memberService.join(member);
+    }
+}
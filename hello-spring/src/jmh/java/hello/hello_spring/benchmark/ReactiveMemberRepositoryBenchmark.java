@@ -0,0 +1,121 @@
+package hello.hello_spring.benchmark;
+
+import com.zaxxer.hikari.HikariConfig;
+import com.zaxxer.hikari.HikariDataSource;
+import hello.hello_spring.domain.Member;
+import hello.hello_spring.repository.JdbcMemberRepository;
+import hello.hello_spring.repository.R2dbcMemberRepository;
+import io.r2dbc.spi.ConnectionFactories;
+import org.openjdk.jmh.annotations.*;
+import org.springframework.jdbc.core.JdbcTemplate;
+import reactor.core.publisher.Flux;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.*;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * 같은 내장 H2 테이블에 대해 블로킹 JDBC와 R2DBC의 처리량 비교
+ * 한 번 호출에 OPERATIONS 건을 concurrency 만큼 동시에 날린다.
+ * - jdbc: 스레드 concurrency 개짜리 풀에서 findById/save를 호출하고 전부 끝날 때까지 기다린다.
+ * - r2dbc: 호출 스레드 하나에서 flatMap(concurrency)으로 동시에 날리고 마지막 결과만 기다린다.
+ * 두 쪽 다 커넥션 풀은 10개로 같다.
+ * 참고: r2dbc-h2는 내부에서 H2 엔진을 동기로 호출하기 때문에 스레드 절약 효과는 "진짜" 논블로킹 드라이버보다 작다.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class ReactiveMemberRepositoryBenchmark {
+
+    static final int OPERATIONS = 256;
+    static final int ROWS = 10_000;
+    static final int POOL_SIZE = 10;
+
+    @Param({"jdbc", "r2dbc"})
+    String implementation;
+
+    @Param({"1", "16", "256"})
+    int concurrency;
+
+    HikariDataSource dataSource;
+    JdbcMemberRepository jdbcRepository;
+    R2dbcMemberRepository r2dbcRepository;
+    ExecutorService executor;
+    final AtomicLong sequence = new AtomicLong();
+
+    @Setup(Level.Trial)
+    public void setUp() {
+        HikariConfig config = new HikariConfig();
+        config.setJdbcUrl("jdbc:h2:mem:reactive;DB_CLOSE_DELAY=-1");
+        config.setMaximumPoolSize(POOL_SIZE);
+        dataSource = new HikariDataSource(config);
+
+        JdbcTemplate jdbcTemplate = new JdbcTemplate(dataSource);
+        jdbcTemplate.execute("create table member (id bigint generated by default as identity, name varchar(255), primary key (id), constraint uk_member_name unique (name))");
+        List<Object[]> names = new ArrayList<>(ROWS);
+        for (int i = 0; i < ROWS; i++) {
+            names.add(new Object[]{"seed" + i});
+        }
+        jdbcTemplate.batchUpdate("insert into member(name) values (?)", names);
+
+        jdbcRepository = new JdbcMemberRepository(dataSource);
+        r2dbcRepository = new R2dbcMemberRepository(
+                ConnectionFactories.get("r2dbc:pool:h2:mem:///reactive?maxSize=" + POOL_SIZE));
+        executor = Executors.newFixedThreadPool(concurrency);
+    }
+
+    @TearDown(Level.Trial)
+    public void tearDown() {
+        executor.shutdownNow();
+        r2dbcRepository.close();
+        dataSource.close();
+    }
+
+    @Benchmark
+    @OperationsPerInvocation(OPERATIONS)
+    public void findById() throws Exception {
+        if (implementation.equals("jdbc")) {
+            runBlocking(() -> jdbcRepository.findById(randomId()));
+        } else {
+            Flux.range(0, OPERATIONS)
+                    .flatMap(i -> r2dbcRepository.findById(randomId()), concurrency)
+                    .blockLast();
+        }
+    }
+
+    @Benchmark
+    @OperationsPerInvocation(OPERATIONS)
+    public void save() throws Exception {
+        if (implementation.equals("jdbc")) {
+            runBlocking(() -> jdbcRepository.save(newMember()));
+        } else {
+            Flux.range(0, OPERATIONS)
+                    .flatMap(i -> r2dbcRepository.save(newMember()), concurrency)
+                    .blockLast();
+        }
+    }
+
+    private void runBlocking(Callable<?> task) throws Exception {
+        List<Callable<Object>> tasks = new ArrayList<>(OPERATIONS);
+        for (int i = 0; i < OPERATIONS; i++) {
+            tasks.add(task::call);
+        }
+        for (Future<Object> future : executor.invokeAll(tasks)) {
+            future.get();
+        }
+    }
+
+    private long randomId() {
+        return 1 + ThreadLocalRandom.current().nextInt(ROWS);
+    }
+
+    private Member newMember() {
+        Member member = new Member();
+        member.setName("bench" + sequence.incrementAndGet());
+        return member;
+    }
+}
@@ -1,15 +1,33 @@
 package hello.hello_spring;
 
 import hello.hello_spring.aop.TimeTraceAop;
+import hello.hello_spring.controller.ReactiveMemberHandler;
 import hello.hello_spring.domain.Member;
 import hello.hello_spring.repository.*;
+import hello.hello_spring.service.MemberImportService;
 import hello.hello_spring.service.MemberService;
+import hello.hello_spring.service.ReactiveMemberService;
+import io.micrometer.core.instrument.FunctionCounter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.binder.MeterBinder;
+import io.r2dbc.spi.ConnectionFactories;
+import io.r2dbc.spi.ConnectionFactoryOptions;
 import jakarta.persistence.EntityManager;
+import org.springframework.beans.factory.ObjectProvider;
 import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.beans.factory.config.BeanPostProcessor;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
 import org.springframework.context.annotation.Bean;
 import org.springframework.context.annotation.Configuration;
+import org.springframework.context.annotation.Primary;
+import org.springframework.scheduling.annotation.EnableScheduling;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.web.servlet.function.RouterFunction;
+import org.springframework.web.servlet.function.ServerResponse;
 
 import javax.sql.DataSource;
+import java.nio.file.Path;
 
 // 이거 왜 만들까?
 // 우리는 현재 멤버 리포지토리를 설계할 때, 아직 데이터 저장소가 선정되지 않았다는 가상의 시나리오가 존재한다.
@@ -24,7 +42,9 @@ import javax.sql.DataSource;
 // -> 다른 코드를 전혀 손 댈 필요가 없다.
 // -> 이것이 직접 설정 파일을 운영할 때 장점!
 // -> 컴포넌트 스캔을 사용하면 여러 코드를 바꿔야 한다.
+// @EnableScheduling: LatencyRecorder가 주기적으로 지연 시간 요약을 로그로 남긴다.
 @Configuration
+@EnableScheduling
 public class SpringConfig {
 
     // configuration 한 것도 spring bean으로 관리가 되기 때문에
@@ -72,9 +92,159 @@ public class SpringConfig {
         this.memberRepository = memberRepository;
     }
 
+    @Value("${hello.member-cache.enabled:false}")
+    private boolean memberCacheEnabled;
+
+    @Value("${hello.member-cache.maximum-size:10000}")
+    private int memberCacheMaximumSize;
+
+    @Value("${hello.member-cache.negative-ttl-ms:" + CachingMemberRepository.DEFAULT_NEGATIVE_TTL_MILLIS + "}")
+    private long memberCacheNegativeTtlMillis;
+
+    // 캐시를 켜면 어떤 리포지토리든 CachingMemberRepository로 한 번 감싸서 넘긴다.
+    // MemberService 코드는 하나도 바뀌지 않는다. -> 이것도 다형성!
     @Bean
     public MemberService memberService() {
-        return new MemberService(memberRepository);
+        MemberRepository repository = memberRepository;
+        if (memberCacheEnabled) {
+            repository = new CachingMemberRepository(memberRepository, memberCacheMaximumSize, memberCacheStats(),
+                    memberCacheNegativeTtlMillis);
+        }
+        return new MemberService(repository);
+    }
+
+    @Value("${hello.member-import.chunk-size:" + MemberImportService.DEFAULT_CHUNK_SIZE + "}")
+    private int memberImportChunkSize;
+
+    // CSV 가져오기는 memberService()를 그대로 쓴다. -> 묶음마다 MemberService 트랜잭션 하나
+    @Bean
+    public MemberImportService memberImportService() {
+        return new MemberImportService(memberService(), memberImportChunkSize);
+    }
+
+    // 캐시 카운터는 따로 빈으로 둔다.
+    // 캐시 자체를 빈으로 올리면 MemberRepository 타입 빈이 두 개가 되어서 주입이 꼬인다.
+    @Bean
+    public MemberCacheStats memberCacheStats() {
+        return new MemberCacheStats();
+    }
+
+    // 캐시 적중/미스/축출을 /actuator/prometheus로 내보낸다.
+    // 값은 MemberCacheStats가 이미 세고 있어서 긁어갈 때 읽기만 한다. (FunctionCounter)
+    @Bean
+    public MeterBinder memberCacheMetrics(MemberCacheStats memberCacheStats) {
+        return registry -> {
+            FunctionCounter.builder("hello.member.cache.requests", memberCacheStats, MemberCacheStats::getHitCount)
+                    .tag("result", "hit").register(registry);
+            FunctionCounter.builder("hello.member.cache.requests", memberCacheStats, MemberCacheStats::getNegativeHitCount)
+                    .tag("result", "negative-hit").register(registry);
+            FunctionCounter.builder("hello.member.cache.requests", memberCacheStats, MemberCacheStats::getMissCount)
+                    .tag("result", "miss").register(registry);
+            FunctionCounter.builder("hello.member.cache.evictions", memberCacheStats, MemberCacheStats::getEvictionCount)
+                    .register(registry);
+            FunctionCounter.builder("hello.member.cache.negative.evictions", memberCacheStats, MemberCacheStats::getNegativeEvictionCount)
+                    .register(registry);
+        };
+    }
+
+    // hello.repository.type=mmap 이면 스프링 데이터 JPA 대신 메모리 맵 파일 리포지토리를 쓴다.
+    // @Primary라서 위의 생성자 주입에도 이게 들어간다.
+    // static으로 둬야 SpringConfig 생성 전에 만들어져서 순환 참조가 안 생긴다.
+    @Bean
+    @Primary
+    @ConditionalOnProperty(name = "hello.repository.type", havingValue = "mmap")
+    public static MappedFileMemberRepository mappedFileMemberRepository(
+            @Value("${hello.repository.mmap.path:./data/members.dat}") String path) {
+        return new MappedFileMemberRepository(Path.of(path));
+    }
+
+    // hello.repository.type=durable-memory 이면 스냅샷 + 로그로 재시작해도 살아있는 메모리 리포지토리를 쓴다.
+    @Bean
+    @Primary
+    @ConditionalOnProperty(name = "hello.repository.type", havingValue = "durable-memory")
+    public static DurableMemoryMemberRepository durableMemoryMemberRepository(
+            @Value("${hello.repository.durable.dir:./data/members}") String directory,
+            @Value("${hello.repository.durable.snapshot-log-bytes:67108864}") long snapshotLogBytes,
+            @Value("${hello.repository.durable.snapshot-interval-ms:600000}") long snapshotIntervalMillis) {
+        return new DurableMemoryMemberRepository(Path.of(directory), snapshotLogBytes, snapshotIntervalMillis);
+    }
+
+    // hello.repository.type=tiered 이면 메모리 + write-behind 리포지토리를 쓴다.
+    // DB에서 읽어 올리는 쪽은 스프링 데이터 JPA 리포지토리를 그대로 쓴다.
+    @Bean
+    @Primary
+    @ConditionalOnProperty(name = "hello.repository.type", havingValue = "tiered")
+    public static TieredMemberRepository tieredMemberRepository(
+            SpringDataJpaMemberRepository springDataJpaMemberRepository,
+            DataSource dataSource,
+            PlatformTransactionManager transactionManager,
+            @Value("${hello.repository.tiered.log-path:./data/members.wal}") String logPath,
+            @Value("${hello.repository.tiered.queue-capacity:100000}") int queueCapacity,
+            @Value("${hello.repository.tiered.enqueue-timeout-ms:1000}") long enqueueTimeoutMillis) {
+        return new TieredMemberRepository(springDataJpaMemberRepository, dataSource, transactionManager,
+                Path.of(logPath), queueCapacity, enqueueTimeoutMillis);
+    }
+
+    // spring.threads.virtual.enabled=true 이면 톰캣 요청을 가상 스레드에서 처리한다. (자바 21 이상에서만 켜진다)
+    // 가상 스레드가 커넥션 풀을 한꺼번에 두드리지 않도록 DataSource를 세마포어로 한 번 감싼다.
+    // 기본 허가 수는 히카리 풀 크기와 같게 맞춘다.
+    @Bean
+    @ConditionalOnProperty(name = "spring.threads.virtual.enabled", havingValue = "true")
+    public static BeanPostProcessor concurrencyLimitedDataSourcePostProcessor(
+            @Value("${hello.datasource.max-concurrency:${spring.datasource.hikari.maximum-pool-size:10}}") int maxConcurrency,
+            @Value("${hello.datasource.acquire-timeout-ms:30000}") long acquireTimeoutMillis) {
+        return new BeanPostProcessor() {
+            @Override
+            public Object postProcessAfterInitialization(Object bean, String beanName) {
+                if (bean instanceof DataSource dataSource && !(bean instanceof ConcurrencyLimitedDataSource)) {
+                    return new ConcurrencyLimitedDataSource(dataSource, maxConcurrency, acquireTimeoutMillis);
+                }
+                return bean;
+            }
+        };
+    }
+
+    // 히카리 풀 게이지(hikaricp.connections.active/idle/pending)는 액추에이터가 알아서 붙인다.
+    // 가상 스레드 모드에서는 풀 앞의 세마포어에서도 줄을 서기 때문에 그쪽 대기 수도 같이 내보낸다.
+    @Bean
+    @ConditionalOnProperty(name = "spring.threads.virtual.enabled", havingValue = "true")
+    public MeterBinder concurrencyLimitedDataSourceMetrics(ObjectProvider<DataSource> dataSource) {
+        return registry -> {
+            if (dataSource.getIfAvailable() instanceof ConcurrencyLimitedDataSource limited) {
+                Gauge.builder("hello.datasource.concurrency.available", limited, ConcurrencyLimitedDataSource::availablePermits)
+                        .register(registry);
+                Gauge.builder("hello.datasource.concurrency.waiting", limited, ConcurrencyLimitedDataSource::waitingThreads)
+                        .register(registry);
+            }
+        };
+    }
+
+    // hello.reactive.enabled=true 이면 R2DBC로 붙는 리액티브 경로(/reactive/members)를 하나 더 연다.
+    // ConnectionFactory는 일부러 빈으로 올리지 않는다.
+    // -> 스프링 부트는 ConnectionFactory 빈이 있으면 DataSource 자동 설정을 건너뛰어서 JPA 쪽이 깨진다.
+    @Bean
+    @ConditionalOnProperty(name = "hello.reactive.enabled", havingValue = "true")
+    public R2dbcMemberRepository r2dbcMemberRepository(
+            @Value("${hello.reactive.url:r2dbc:pool:h2:tcp://localhost/~/test}") String url,
+            @Value("${spring.datasource.username:sa}") String username,
+            @Value("${spring.datasource.password:}") String password) {
+        ConnectionFactoryOptions options = ConnectionFactoryOptions.parse(url).mutate()
+                .option(ConnectionFactoryOptions.USER, username)
+                .option(ConnectionFactoryOptions.PASSWORD, password)
+                .build();
+        return new R2dbcMemberRepository(ConnectionFactories.get(options));
+    }
+
+    @Bean
+    @ConditionalOnProperty(name = "hello.reactive.enabled", havingValue = "true")
+    public ReactiveMemberService reactiveMemberService(R2dbcMemberRepository r2dbcMemberRepository) {
+        return new ReactiveMemberService(r2dbcMemberRepository);
+    }
+
+    @Bean
+    @ConditionalOnProperty(name = "hello.reactive.enabled", havingValue = "true")
+    public RouterFunction<ServerResponse> reactiveMemberRoutes(ReactiveMemberService reactiveMemberService) {
+        return new ReactiveMemberHandler(reactiveMemberService).routes();
     }
 
 //    @Bean
@@ -0,0 +1,109 @@
+package hello.hello_spring.aop;
+
+import org.aspectj.lang.ProceedingJoinPoint;
+import org.aspectj.lang.reflect.MethodSignature;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+
+import java.lang.reflect.Method;
+import java.util.Map;
+import java.util.TreeMap;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.ThreadLocalRandom;
+
+// 조인 포인트(메서드)마다 지연 시간 히스토그램을 하나씩 들고 있는 저장소
+// TimeTraceAop가 여기에 기록하고, TraceController와 주기 로그가 여기서 읽어간다.
+@Component
+public class LatencyRecorder {
+
+    private static final Logger log = LoggerFactory.getLogger(LatencyRecorder.class);
+
+    private final ConcurrentMap<Method, LatencyHistogram> histograms = new ConcurrentHashMap<>();
+
+    // 재시작 없이 켜고 끌 수 있게 volatile로 둔다.
+    private volatile boolean enabled;
+    // N번 중에 한 번만 측정한다. (1이면 전부)
+    private volatile int sampleRate;
+
+    public LatencyRecorder(@Value("${hello.trace.enabled:true}") boolean enabled,
+                           @Value("${hello.trace.sample-rate:1}") int sampleRate) {
+        this.enabled = enabled;
+        this.sampleRate = Math.max(1, sampleRate);
+    }
+
+    public boolean isEnabled() {
+        return enabled;
+    }
+
+    public void setEnabled(boolean enabled) {
+        this.enabled = enabled;
+    }
+
+    public int getSampleRate() {
+        return sampleRate;
+    }
+
+    public void setSampleRate(int sampleRate) {
+        this.sampleRate = Math.max(1, sampleRate);
+    }
+
+    /**
+     * 조인 포인트를 실행하면서 샘플링된 호출만 지연 시간을 기록한다.
+     */
+    // 카운터를 공유하면 스레드끼리 캐시 라인을 두고 싸우기 때문에 스레드 로컬 난수로 뽑는다.
+    // -> 조인 포인트마다 평균적으로 N번에 한 번 측정된다.
+    public Object trace(ProceedingJoinPoint joinPoint) throws Throwable {
+        int rate = sampleRate;
+        if (!enabled || (rate > 1 && ThreadLocalRandom.current().nextInt(rate) != 0)) {
+            return joinPoint.proceed();
+        }
+
+        long start = System.nanoTime();
+        try {
+            return joinPoint.proceed();
+        } finally {
+            long elapsed = System.nanoTime() - start;
+            record(((MethodSignature) joinPoint.getSignature()).getMethod(), elapsed);
+        }
+    }
+
+    public void record(Method method, long nanos) {
+        histogramOf(method).record(nanos);
+    }
+
+    // 처음 한 번만 만들고 그 다음부터는 get 한 번으로 끝난다.
+    private LatencyHistogram histogramOf(Method method) {
+        LatencyHistogram histogram = histograms.get(method);
+        if (histogram == null) {
+            histogram = histograms.computeIfAbsent(method, m -> new LatencyHistogram());
+        }
+        return histogram;
+    }
+
+    // 메서드 이름 순으로 정렬해서 보여준다.
+    public Map<String, Map<String, Object>> snapshot() {
+        Map<String, Map<String, Object>> snapshot = new TreeMap<>();
+        histograms.forEach((method, histogram) -> snapshot.put(nameOf(method), histogram.summary()));
+        return snapshot;
+    }
+
+    public void reset() {
+        histograms.values().forEach(LatencyHistogram::reset);
+    }
+
+    @Scheduled(fixedDelayString = "${hello.trace.log-interval-ms:60000}")
+    public void logSummary() {
+        if (!enabled || histograms.isEmpty() || !log.isInfoEnabled()) {
+            return;
+        }
+        snapshot().forEach((name, summary) -> log.info("{} {}", name, summary));
+    }
+
+    private static String nameOf(Method method) {
+        return method.getDeclaringClass().getSimpleName() + "." + method.getName();
+    }
+}
@@ -0,0 +1,89 @@
+package hello.hello_spring.aop;
+
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+import org.aspectj.lang.ProceedingJoinPoint;
+import org.aspectj.lang.annotation.Around;
+import org.aspectj.lang.annotation.Aspect;
+import org.aspectj.lang.reflect.MethodSignature;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.stereotype.Component;
+import org.springframework.util.ClassUtils;
+
+import java.lang.reflect.Method;
+import java.lang.reflect.Proxy;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.TimeUnit;
+
+// MemberRepository, MemberService 메서드별 Micrometer 타이머
+// TimeTraceAop(LatencyRecorder)는 로그와 /trace/latency로 보는 용도이고, 이건 /actuator/prometheus로 긁어가는 용도
+// 타이머 하나에 호출 수(count), 누적 시간(sum), 최대(max)가 같이 나온다. -> 카운터를 따로 두지 않는다.
+//   hello_member_repository_seconds_count{class="SpringDataJpaMemberRepository",method="findByName",exception="none"}
+// 예외로 끝난 호출은 exception 태그에 예외 클래스 이름이 붙는다. -> 에러율 = exception != none 인 count / 전체 count
+// streamAll처럼 스트림을 돌려주는 메서드는 스트림을 여는 시간까지만 잰다.
+@Aspect
+@Component
+@ConditionalOnProperty(name = "hello.metrics.enabled", havingValue = "true", matchIfMissing = true)
+public class MemberMetricsAop {
+
+    private static final String REPOSITORY_TIMER = "hello.member.repository";
+    private static final String SERVICE_TIMER = "hello.member.service";
+
+    private final MeterRegistry meterRegistry;
+    // registry에서 매번 찾으면 태그 정렬 + 맵 조회가 호출마다 일어난다. -> 성공한 호출의 타이머는 메서드별로 한 번만 만든다.
+    private final ConcurrentMap<Method, Timer> timers = new ConcurrentHashMap<>();
+
+    public MemberMetricsAop(MeterRegistry meterRegistry) {
+        this.meterRegistry = meterRegistry;
+    }
+
+    @Around("execution(* hello.hello_spring.repository.MemberRepository+.*(..))")
+    public Object repository(ProceedingJoinPoint joinPoint) throws Throwable {
+        return record(REPOSITORY_TIMER, joinPoint);
+    }
+
+    @Around("execution(* hello.hello_spring.service.MemberService.*(..))")
+    public Object service(ProceedingJoinPoint joinPoint) throws Throwable {
+        return record(SERVICE_TIMER, joinPoint);
+    }
+
+    private Object record(String name, ProceedingJoinPoint joinPoint) throws Throwable {
+        long start = System.nanoTime();
+        Object result;
+        try {
+            result = joinPoint.proceed();
+        } catch (Throwable e) {
+            // 예외는 드물어서 그때그때 registry에서 찾는다.
+            timer(name, joinPoint, e.getClass().getSimpleName())
+                    .record(System.nanoTime() - start, TimeUnit.NANOSECONDS);
+            throw e;
+        }
+        long elapsed = System.nanoTime() - start;
+
+        Method method = ((MethodSignature) joinPoint.getSignature()).getMethod();
+        Timer timer = timers.get(method);
+        if (timer == null) {
+            timer = timers.computeIfAbsent(method, m -> timer(name, joinPoint, "none"));
+        }
+        timer.record(elapsed, TimeUnit.NANOSECONDS);
+        return result;
+    }
+
+    private Timer timer(String name, ProceedingJoinPoint joinPoint, String exception) {
+        return Timer.builder(name)
+                .tag("class", classNameOf(joinPoint.getTarget()))
+                .tag("method", joinPoint.getSignature().getName())
+                .tag("exception", exception)
+                .register(meterRegistry);
+    }
+
+    // CGLIB 프록시는 원래 클래스 이름으로, 스프링 데이터 JPA 리포지토리(JDK 프록시 $Proxy123)는 인터페이스 이름으로
+    private static String classNameOf(Object target) {
+        Class<?> type = ClassUtils.getUserClass(target);
+        if (Proxy.isProxyClass(type) && type.getInterfaces().length > 0) {
+            type = type.getInterfaces()[0];
+        }
+        return type.getSimpleName();
+    }
+}
@@ -3,14 +3,23 @@ package hello.hello_spring.aop;
 import org.aspectj.lang.ProceedingJoinPoint;
 import org.aspectj.lang.annotation.Around;
 import org.aspectj.lang.annotation.Aspect;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
 import org.springframework.stereotype.Component;
 
 @Aspect
 @Component
+// hello.trace.scope=annotated 이면 이거 대신 TimedTraceAop가 뜬다.
+@ConditionalOnProperty(name = "hello.trace.scope", havingValue = "all", matchIfMissing = true)
 // @Component 하게 되면 컴포넌트 스캔이 된다.
 // 그러나 스프링 빈에 등록해서 쓰는 것을 더 선호한다.
 public class TimeTraceAop {
 
+    private final LatencyRecorder latencyRecorder;
+
+    public TimeTraceAop(LatencyRecorder latencyRecorder) {
+        this.latencyRecorder = latencyRecorder;
+    }
+
     // 이거를 어디에 적용할 것인가? -> @Around()
     // 패키지명, 클래스명 , 파라미터 타입 등등 원하는 조건을 다 넣을 수 있다.
     // "execution(* hello.hello_spring.service..*(..))"도 가능 (서비스 하위에 있는 애들만 보고 싶다!)
@@ -20,16 +29,21 @@ public class TimeTraceAop {
     // -> 이것들을 가지고 원하는 걸 막 조작할 수 있다.
     // -> 메서드 호출 할 때마다 거기서 중간에서 인터셉트가 딱딱 걸리게 된다.
     // -> "이런 조건이면 다음으로 넘어가지마!" 까지도 가능
-    @Around("execution(* hello.hello_spring..*(..))")
+    // aop 패키지는 뺀다. -> LatencyRecorder까지 프록시가 되면 기록하다가 다시 기록하는 무한 루프가 된다.
+    @Around("execution(* hello.hello_spring..*(..)) && !within(hello.hello_spring.aop..*)")
     public Object execute(ProceedingJoinPoint joinPoint) throws Throwable {
-        long start = System.currentTimeMillis();
-        System.out.println("START: " + joinPoint.toString());
-        try {
-            return joinPoint.proceed();
-        } finally {
-            long finish = System.currentTimeMillis();
-            long timeMs = finish - start;
-            System.out.println("END: " + joinPoint.toString() + " " + timeMs + "ms");
-        }
+//        long start = System.currentTimeMillis();
+//        System.out.println("START: " + joinPoint.toString());
+//        try {
+//            return joinPoint.proceed();
+//        } finally {
+//            long finish = System.currentTimeMillis();
+//            long timeMs = finish - start;
+//            System.out.println("END: " + joinPoint.toString() + " " + timeMs + "ms");
+//        }
+
+        // 호출마다 문자열 두 번 만들고 synchronized println 두 번 하는 게 측정 대상보다 비쌌다.
+        // -> 나노초로 재서 히스토그램 칸 하나만 올린다. (LatencyRecorder.trace)
+        return latencyRecorder.trace(joinPoint);
     }
 }
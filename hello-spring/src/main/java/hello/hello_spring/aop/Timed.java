@@ -0,0 +1,14 @@
+package hello.hello_spring.aop;
+
+import java.lang.annotation.ElementType;
+import java.lang.annotation.Retention;
+import java.lang.annotation.RetentionPolicy;
+import java.lang.annotation.Target;
+
+/**
+ * hello.trace.scope=annotated 일 때 이 어노테이션이 붙은 클래스/메서드만 측정한다.
+ */
+@Target({ElementType.TYPE, ElementType.METHOD})
+@Retention(RetentionPolicy.RUNTIME)
+public @interface Timed {
+}
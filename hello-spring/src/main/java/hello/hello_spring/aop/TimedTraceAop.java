@@ -0,0 +1,28 @@
+package hello.hello_spring.aop;
+
+import org.aspectj.lang.ProceedingJoinPoint;
+import org.aspectj.lang.annotation.Around;
+import org.aspectj.lang.annotation.Aspect;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.stereotype.Component;
+
+// TimeTraceAop는 hello.hello_spring 아래 모든 빈을 프록시로 만든다.
+// -> 컨트롤러, SpringConfig, MemberService까지 호출마다 프록시 + 조인 포인트 비용을 낸다.
+// 이건 @Timed가 붙은 곳에만 프록시를 만든다. (hello.trace.scope=annotated)
+@Aspect
+@Component
+@ConditionalOnProperty(name = "hello.trace.scope", havingValue = "annotated")
+public class TimedTraceAop {
+
+    private final LatencyRecorder latencyRecorder;
+
+    public TimedTraceAop(LatencyRecorder latencyRecorder) {
+        this.latencyRecorder = latencyRecorder;
+    }
+
+    // @annotation: 메서드에 붙은 경우, @within: 클래스에 붙은 경우
+    @Around("@annotation(hello.hello_spring.aop.Timed) || @within(hello.hello_spring.aop.Timed)")
+    public Object execute(ProceedingJoinPoint joinPoint) throws Throwable {
+        return latencyRecorder.trace(joinPoint);
+    }
+}
@@ -0,0 +1,26 @@
+package hello.hello_spring.controller;
+
+import hello.hello_spring.repository.MemberCacheStats;
+import org.springframework.stereotype.Controller;
+import org.springframework.web.bind.annotation.GetMapping;
+import org.springframework.web.bind.annotation.ResponseBody;
+
+import java.util.Map;
+
+@Controller
+public class MemberCacheController {
+
+    private final MemberCacheStats memberCacheStats;
+
+    public MemberCacheController(MemberCacheStats memberCacheStats) {
+        this.memberCacheStats = memberCacheStats;
+    }
+
+    // 회원 캐시 적중률, 축출 횟수를 JSON으로 보여준다.
+    // 축출이 많고 적중률이 낮으면 hello.member-cache.maximum-size를 늘린다.
+    @GetMapping("/members/cache/stats")
+    @ResponseBody
+    public Map<String, Object> stats() {
+        return memberCacheStats.toMap();
+    }
+}
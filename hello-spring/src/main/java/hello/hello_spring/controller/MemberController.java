@@ -3,16 +3,32 @@ package hello.hello_spring.controller;
 import hello.hello_spring.domain.Member;
 import hello.hello_spring.service.MemberService;
 import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.http.MediaType;
 import org.springframework.stereotype.Controller;
 import org.springframework.ui.Model;
 import org.springframework.web.bind.annotation.GetMapping;
 import org.springframework.web.bind.annotation.PostMapping;
-
+import org.springframework.web.bind.annotation.RequestParam;
+import org.springframework.web.bind.annotation.ResponseBody;
+import org.springframework.web.servlet.mvc.method.annotation.StreamingResponseBody;
+import org.springframework.web.util.HtmlUtils;
+
+import java.io.BufferedWriter;
+import java.io.IOException;
+import java.io.OutputStreamWriter;
+import java.io.UncheckedIOException;
+import java.io.Writer;
+import java.nio.charset.StandardCharsets;
 import java.util.List;
 
 @Controller
 public class MemberController {
 
+    // 스트리밍 목록에서 이만큼 쓸 때마다 응답을 내보낸다.
+    private static final int FLUSH_ROWS = 500;
+    private static final int MAX_PAGE_SIZE = 1000;
+    private static final int MAX_SEARCH_LIMIT = 100;
+
     // Dependency Injection
     // 1. 필드 주입 방식
     // 중간에 바꿔치기 할 수 있는 방법이 없다.
@@ -69,10 +85,69 @@ public class MemberController {
 
     // memory 안에 있기 때문에 java를 내려버리면 당연히 회원 데이터가 다 사라진다.
     // 우리는 이 데이터들을 파일이나 아니면 데이터베이스에 저장해야 한다.
+    // 전체 목록 대신 /members?after=&size= 로 페이지 단위로 보여준다.
+    // after는 이전 페이지 마지막 회원의 id
     @GetMapping("/members")
-    public String list(Model model) {
-        List<Member> members = memberService.findMembers();
+    public String list(@RequestParam(required = false) Long after,
+                       @RequestParam(defaultValue = "100") int size,
+                       Model model) {
+        int pageSize = Math.max(1, Math.min(size, MAX_PAGE_SIZE));
+        List<Member> members = memberService.findMembers(after, pageSize);
         model.addAttribute("members", members);
+        model.addAttribute("size", pageSize);
+
+        // 꽉 찬 페이지면 다음 페이지가 있을 수 있다.
+        if (members.size() == pageSize) {
+            model.addAttribute("nextAfter", members.get(members.size() - 1).getId());
+        }
         return "members/memberList";
     }
+
+    // 회원이 많으면 /members 처럼 List를 통째로 모델에 담는 순간 힙이 터진다.
+    // 커서로 한 건씩 읽으면서 테이블 행을 바로 응답에 쓰고 FLUSH_ROWS마다 밀어낸다.
+    // -> 회원 수와 상관없이 메모리가 일정하다.
+    @GetMapping(value = "/members/stream", produces = MediaType.TEXT_HTML_VALUE)
+    public StreamingResponseBody listStream() {
+        return out -> {
+            Writer writer = new BufferedWriter(new OutputStreamWriter(out, StandardCharsets.UTF_8));
+            writer.write("<!DOCTYPE HTML>\n<html>\n<head><meta charset=\"UTF-8\"></head>\n<body>\n"
+                    + "<div class=\"container\">\n<table>\n"
+                    + "<thead><tr><th>#</th><th>이름</th></tr></thead>\n<tbody>\n");
+
+            int[] rows = {0};
+            memberService.forEachMember(member -> {
+                try {
+                    writer.write("<tr><td>" + member.getId() + "</td><td>"
+                            + (member.getName() == null ? "" : HtmlUtils.htmlEscape(member.getName()))
+                            + "</td></tr>\n");
+                    if (++rows[0] % FLUSH_ROWS == 0) {
+                        writer.flush();
+                    }
+                } catch (IOException e) {
+                    throw new UncheckedIOException(e);
+                }
+            });
+
+            writer.write("</tbody>\n</table>\n</div>\n</body>\n</html>\n");
+            writer.flush();
+        };
+    }
+
+    // 회원 이름 자동완성 (JSON)
+    // /members/search?prefix=ki -> 이름이 ki로 시작하는 회원
+    // /members/search?q=pri     -> 이름에 pri가 들어간 회원
+    @GetMapping("/members/search")
+    @ResponseBody
+    public List<Member> search(@RequestParam(required = false) String prefix,
+                               @RequestParam(required = false) String q,
+                               @RequestParam(defaultValue = "10") int limit) {
+        int searchLimit = Math.max(1, Math.min(limit, MAX_SEARCH_LIMIT));
+        if (prefix != null && !prefix.isEmpty()) {
+            return memberService.searchMembersByNamePrefix(prefix, searchLimit);
+        }
+        if (q != null && !q.isEmpty()) {
+            return memberService.searchMembersByName(q, searchLimit);
+        }
+        return List.of();
+    }
 }
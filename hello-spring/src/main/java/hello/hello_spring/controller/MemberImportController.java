@@ -0,0 +1,76 @@
+package hello.hello_spring.controller;
+
+import hello.hello_spring.service.MemberImportService;
+import jakarta.servlet.http.HttpServletRequest;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.http.MediaType;
+import org.springframework.stereotype.Controller;
+import org.springframework.web.bind.annotation.PostMapping;
+import org.springframework.web.bind.annotation.ResponseBody;
+import org.springframework.web.servlet.mvc.method.annotation.StreamingResponseBody;
+
+import java.io.BufferedReader;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.InputStreamReader;
+import java.io.OutputStream;
+import java.io.UncheckedIOException;
+import java.nio.charset.StandardCharsets;
+
+@Controller
+public class MemberImportController {
+
+    private static final Logger log = LoggerFactory.getLogger(MemberImportController.class);
+    private static final int READ_BUFFER_SIZE = 64 * 1024;
+
+    private final MemberImportService memberImportService;
+
+    public MemberImportController(MemberImportService memberImportService) {
+        this.memberImportService = memberImportService;
+    }
+
+    // CSV 회원 일괄 가져오기
+    // curl -X POST -H 'Content-Type: text/csv' --data-binary @members.csv localhost:8080/members/import
+    // 요청 본문을 파일로 받아두지 않고 읽는 대로 가입시킨다. (multipart면 서버가 임시 파일에 먼저 다 받는다)
+    // 응답은 묶음이 끝날 때마다 진행 상황 한 줄씩 (NDJSON), 마지막 줄이 done: true
+    @PostMapping(value = "/members/import", consumes = {"text/csv", MediaType.TEXT_PLAIN_VALUE},
+            produces = MediaType.APPLICATION_NDJSON_VALUE)
+    @ResponseBody
+    public StreamingResponseBody importCsv(HttpServletRequest request) throws IOException {
+        InputStream body = request.getInputStream();
+        return out -> {
+            BufferedReader reader = new BufferedReader(new InputStreamReader(body, StandardCharsets.UTF_8), READ_BUFFER_SIZE);
+            try {
+                memberImportService.importCsv(reader, progress -> writeLine(out, progress.toJson()));
+            } catch (IOException | RuntimeException e) {
+                // 응답 헤더는 이미 나갔기 때문에 상태 코드 대신 마지막 줄로 알려준다.
+                log.warn("회원 가져오기 실패", e);
+                writeLine(out, "{\"error\":\"" + jsonEscape(String.valueOf(e.getMessage())) + "\",\"done\":true}");
+            }
+        };
+    }
+
+    private static void writeLine(OutputStream out, String line) {
+        try {
+            out.write((line + "\n").getBytes(StandardCharsets.UTF_8));
+            out.flush();
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+    }
+
+    private static String jsonEscape(String text) {
+        StringBuilder escaped = new StringBuilder(text.length());
+        for (char c : text.toCharArray()) {
+            if (c == '"' || c == '\\') {
+                escaped.append('\\').append(c);
+            } else if (c < 0x20) {
+                escaped.append(String.format("\\u%04x", (int) c));
+            } else {
+                escaped.append(c);
+            }
+        }
+        return escaped.toString();
+    }
+}
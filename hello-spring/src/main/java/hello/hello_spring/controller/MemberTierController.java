@@ -0,0 +1,28 @@
+package hello.hello_spring.controller;
+
+import hello.hello_spring.repository.TieredMemberRepository;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.stereotype.Controller;
+import org.springframework.web.bind.annotation.GetMapping;
+import org.springframework.web.bind.annotation.ResponseBody;
+
+import java.util.Map;
+
+@Controller
+@ConditionalOnProperty(name = "hello.repository.type", havingValue = "tiered")
+public class MemberTierController {
+
+    private final TieredMemberRepository tieredMemberRepository;
+
+    public MemberTierController(TieredMemberRepository tieredMemberRepository) {
+        this.tieredMemberRepository = tieredMemberRepository;
+    }
+
+    // DB 반영 대기열 깊이와 지연(lag)을 JSON으로 보여준다.
+    // lagMillis가 계속 늘어나면 DB가 가입 속도를 못 따라가고 있는 것이다.
+    @GetMapping("/members/tier/stats")
+    @ResponseBody
+    public Map<String, Object> stats() {
+        return tieredMemberRepository.stats();
+    }
+}
@@ -0,0 +1,57 @@
+package hello.hello_spring.controller;
+
+import hello.hello_spring.domain.Member;
+import hello.hello_spring.service.ReactiveMemberService;
+import org.springframework.http.HttpStatus;
+import org.springframework.web.servlet.function.RouterFunction;
+import org.springframework.web.servlet.function.RouterFunctions;
+import org.springframework.web.servlet.function.ServerRequest;
+import org.springframework.web.servlet.function.ServerResponse;
+import reactor.core.publisher.Mono;
+
+import java.net.URI;
+import java.util.Map;
+
+// 함수형 엔드포인트: POST /reactive/members, GET /reactive/members
+// 이 앱은 톰캣(서블릿) 위에서 돈다. ServerResponse.async에 Mono를 넘기면 서블릿 비동기 처리로 바뀌어서
+// DB 응답을 기다리는 동안 톰캣 요청 스레드가 풀로 돌아간다.
+public class ReactiveMemberHandler {
+
+    private static final int MAX_PAGE_SIZE = 1000;
+
+    private final ReactiveMemberService memberService;
+
+    public ReactiveMemberHandler(ReactiveMemberService memberService) {
+        this.memberService = memberService;
+    }
+
+    public RouterFunction<ServerResponse> routes() {
+        return RouterFunctions.route()
+                .POST("/reactive/members", this::create)
+                .GET("/reactive/members", this::list)
+                .build();
+    }
+
+    // 요청 본문: {"name": "spring"}
+    private ServerResponse create(ServerRequest request) throws Exception {
+        MemberForm form = request.body(MemberForm.class);
+
+        Member member = new Member();
+        member.setName(form.getName());
+
+        return ServerResponse.async(memberService.join(member)
+                .map(id -> ServerResponse.created(URI.create("/reactive/members/" + id)).body(Map.of("id", id)))
+                .onErrorResume(IllegalStateException.class,
+                        e -> Mono.just(ServerResponse.status(HttpStatus.CONFLICT).body(Map.of("message", e.getMessage())))));
+    }
+
+    // ?after=마지막id&size=100
+    private ServerResponse list(ServerRequest request) {
+        Long after = request.param("after").map(Long::valueOf).orElse(null);
+        int size = Math.min(Math.max(request.param("size").map(Integer::parseInt).orElse(100), 1), MAX_PAGE_SIZE);
+
+        return ServerResponse.async(memberService.findMembers(after, size)
+                .collectList()
+                .map(members -> ServerResponse.ok().body(members)));
+    }
+}
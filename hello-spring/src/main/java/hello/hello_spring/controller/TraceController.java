@@ -0,0 +1,50 @@
+package hello.hello_spring.controller;
+
+import hello.hello_spring.aop.LatencyRecorder;
+import org.springframework.stereotype.Controller;
+import org.springframework.web.bind.annotation.GetMapping;
+import org.springframework.web.bind.annotation.PostMapping;
+import org.springframework.web.bind.annotation.RequestParam;
+import org.springframework.web.bind.annotation.ResponseBody;
+
+import java.util.Map;
+
+@Controller
+public class TraceController {
+
+    private final LatencyRecorder latencyRecorder;
+
+    public TraceController(LatencyRecorder latencyRecorder) {
+        this.latencyRecorder = latencyRecorder;
+    }
+
+    // 메서드별 p50/p99/p999/max (마이크로초)
+    @GetMapping("/trace/latency")
+    @ResponseBody
+    public Map<String, Map<String, Object>> latency() {
+        return latencyRecorder.snapshot();
+    }
+
+    // 재시작 없이 측정을 켜고 끈다.
+    @PostMapping("/trace/enabled")
+    @ResponseBody
+    public boolean enabled(@RequestParam boolean enabled) {
+        latencyRecorder.setEnabled(enabled);
+        return latencyRecorder.isEnabled();
+    }
+
+    // N번 중 한 번만 측정한다. (히스토그램의 count도 샘플링된 호출 수다)
+    @PostMapping("/trace/sample-rate")
+    @ResponseBody
+    public int sampleRate(@RequestParam int rate) {
+        latencyRecorder.setSampleRate(rate);
+        return latencyRecorder.getSampleRate();
+    }
+
+    @PostMapping("/trace/reset")
+    @ResponseBody
+    public String reset() {
+        latencyRecorder.reset();
+        return "ok";
+    }
+}
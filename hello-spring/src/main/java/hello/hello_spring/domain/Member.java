@@ -14,6 +14,8 @@ public class Member {
 
     // 만약 DB의 column명이 username이라면?
     // @Column(name = "username")
+    // 중복 회원은 DB의 unique 제약으로 막는다. (sql/ddl.sql 참고)
+    @Column(unique = true)
     private String name;
 
     public Long getId() {
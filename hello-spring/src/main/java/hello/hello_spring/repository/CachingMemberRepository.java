@@ -0,0 +1,303 @@
+package hello.hello_spring.repository;
+
+import hello.hello_spring.domain.Member;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+
+import java.util.*;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLongArray;
+import java.util.function.LongSupplier;
+import java.util.stream.Stream;
+
+// 어떤 MemberRepository든 앞에 씌울 수 있는 읽기 캐시 (데코레이터)
+// 회원은 거의 바뀌지 않는데 findOne, validateDuplicateMember가 매번 DB를 친다.
+// -> id, 이름 조회는 캐시에서 먼저 찾고 없을 때만 delegate로 넘긴다. (read-through)
+// 캐시에는 엔티티 대신 id, 이름만 들고 있다가 꺼낼 때마다 새 Member로 만들어 준다.
+// -> 호출한 쪽에서 객체를 바꿔도 캐시가 오염되지 않는다.
+public class CachingMemberRepository implements MemberRepository {
+
+    // 축출할 때 몇 개를 뽑아서 비교할지
+    private static final int EVICTION_SAMPLES = 8;
+    private static final int MAX_FREQUENCY = 255;
+    // 이름별 쓰기 번호 칸 수 (이름 해시로 나눠 쓴다. 2의 거듭제곱)
+    private static final int WRITE_STAMPS = 1024;
+    public static final long DEFAULT_NEGATIVE_TTL_MILLIS = 60_000;
+
+    private final MemberRepository delegate;
+    private final int maximumSize;
+    private final MemberCacheStats stats;
+
+    private final ConcurrentMap<Long, CacheEntry> byId = new ConcurrentHashMap<>();
+    private final ConcurrentMap<String, Long> byName = new ConcurrentHashMap<>();
+    // 없는 이름도 기억해 둔다. (negative caching)
+    // findByName을 직접 부르는 쪽이 없는 이름을 되풀이해서 물을 때 DB까지 가지 않게 한다.
+    // 가입 중복 검증은 이 캐시를 거치지 않는다. (join은 unique 제약, joinAll/importMembers는 findByNameIn)
+    // 이름 -> 만료 시각(nanoTime). 무효화가 어떤 이유로 빠져도 negativeTtl이 지나면 다시 DB에 물어본다.
+    private final ConcurrentMap<String, Long> missingNames = new ConcurrentHashMap<>();
+    // 이름별 쓰기 번호 (generation)
+    // findByName은 DB에 묻기 전에 번호를 읽어두고, "없음"을 기억하기 전후로 번호가 그대로인지 본다.
+    // -> 그 사이에 같은 이름 저장(invalidate)이 끼어들었으면 "없음"을 기억하지 않는다.
+    private final AtomicLongArray writeStamps = new AtomicLongArray(WRITE_STAMPS);
+    private final long negativeTtlNanos;
+    private final LongSupplier nanoTime;
+
+    public CachingMemberRepository(MemberRepository delegate, int maximumSize, MemberCacheStats stats) {
+        this(delegate, maximumSize, stats, DEFAULT_NEGATIVE_TTL_MILLIS);
+    }
+
+    public CachingMemberRepository(MemberRepository delegate, int maximumSize, MemberCacheStats stats, long negativeTtlMillis) {
+        this(delegate, maximumSize, stats, negativeTtlMillis, System::nanoTime);
+    }
+
+    // 테스트에서 시간을 돌리려고 시계를 받는다.
+    CachingMemberRepository(MemberRepository delegate, int maximumSize, MemberCacheStats stats,
+                            long negativeTtlMillis, LongSupplier nanoTime) {
+        this.delegate = delegate;
+        this.maximumSize = maximumSize;
+        this.stats = stats;
+        this.negativeTtlNanos = TimeUnit.MILLISECONDS.toNanos(negativeTtlMillis);
+        this.nanoTime = nanoTime;
+    }
+
+    // 저장할 때는 캐시를 채우지 않고 무효화만 한다. (write-through invalidation)
+    // 트랜잭션이 롤백되면 캐시에만 유령 회원이 남을 수 있기 때문이다.
+    // 트랜잭션 안이면 커밋이 끝난 뒤에 한 번 더 무효화한다.
+    // -> 저장과 커밋 사이에 다른 스레드가 아직 안 보이는 이름을 "없음"으로 기억해도 커밋 후에 지워진다.
+    @Override
+    public Member save(Member member) {
+        Member saved = delegate.save(member);
+        invalidate(saved);
+        invalidateAfterCompletion(List.of(saved));
+        return saved;
+    }
+
+    @Override
+    public List<Member> saveAll(Collection<Member> members) {
+        List<Member> saved = delegate.saveAll(members);
+        for (Member member : saved) {
+            invalidate(member);
+        }
+        invalidateAfterCompletion(saved);
+        return saved;
+    }
+
+    @Override
+    public Optional<Member> findById(Long id) {
+        CacheEntry entry = id == null ? null : byId.get(id);
+        if (entry != null) {
+            stats.recordHit();
+            return Optional.of(entry.touch());
+        }
+
+        stats.recordMiss();
+        Optional<Member> result = delegate.findById(id);
+        result.ifPresent(this::put);
+        return result;
+    }
+
+    @Override
+    public Optional<Member> findByName(String name) {
+        if (name == null) {
+            return delegate.findByName(null);
+        }
+
+        Long id = byName.get(name);
+        CacheEntry entry = id == null ? null : byId.get(id);
+        if (entry != null && name.equals(entry.name)) {
+            stats.recordHit();
+            return Optional.of(entry.touch());
+        }
+        if (isMissing(name)) {
+            stats.recordNegativeHit();
+            return Optional.empty();
+        }
+
+        stats.recordMiss();
+        long stamp = writeStamps.get(stampIndex(name));
+        Optional<Member> result = delegate.findByName(name);
+        if (result.isPresent()) {
+            put(result.get());
+        } else {
+            rememberMissing(name, stamp);
+        }
+        return result;
+    }
+
+    @Override
+    public List<Member> findByNameIn(Collection<String> names) {
+        return delegate.findByNameIn(names);
+    }
+
+    @Override
+    public List<Member> findAll() {
+        return delegate.findAll();
+    }
+
+    @Override
+    public List<Member> findPage(Long afterId, int size) {
+        return delegate.findPage(afterId, size);
+    }
+
+    // 검색 결과는 캐시하지 않는다. (검색어가 매번 달라서 적중률이 안 나온다)
+    @Override
+    public List<Member> searchByNamePrefix(String prefix, int limit) {
+        return delegate.searchByNamePrefix(prefix, limit);
+    }
+
+    @Override
+    public List<Member> searchByNameContaining(String keyword, int limit) {
+        return delegate.searchByNameContaining(keyword, limit);
+    }
+
+    @Override
+    public Stream<Member> streamAll() {
+        return delegate.streamAll();
+    }
+
+    public MemberCacheStats getStats() {
+        return stats;
+    }
+
+    public int size() {
+        return byId.size();
+    }
+
+    private void put(Member member) {
+        if (member.getId() == null) {
+            return;
+        }
+        byId.put(member.getId(), new CacheEntry(member.getId(), member.getName()));
+        if (member.getName() != null) {
+            byName.put(member.getName(), member.getId());
+        }
+        while (byId.size() > maximumSize) {
+            evictOne();
+        }
+    }
+
+    private void invalidate(Member member) {
+        if (member.getName() != null) {
+            // 번호를 먼저 올리고 지운다. -> 이 저장 전에 DB를 본 조회는 "없음"을 못 남긴다.
+            writeStamps.incrementAndGet(stampIndex(member.getName()));
+            missingNames.remove(member.getName());
+            byName.remove(member.getName());
+        }
+        if (member.getId() != null) {
+            byId.remove(member.getId());
+        }
+    }
+
+    private void invalidateAfterCompletion(List<Member> members) {
+        if (!TransactionSynchronizationManager.isSynchronizationActive()) {
+            return;
+        }
+        TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronization() {
+            @Override
+            public void afterCompletion(int status) {
+                for (Member member : members) {
+                    invalidate(member);
+                }
+            }
+        });
+    }
+
+    private boolean isMissing(String name) {
+        Long expiresAt = missingNames.get(name);
+        if (expiresAt == null) {
+            return false;
+        }
+        if (nanoTime.getAsLong() - expiresAt >= 0) {
+            missingNames.remove(name, expiresAt);
+            return false;
+        }
+        return true;
+    }
+
+    // stamp: DB에 묻기 전에 읽어둔 이 이름의 쓰기 번호
+    private void rememberMissing(String name, long stamp) {
+        int index = stampIndex(name);
+        if (writeStamps.get(index) != stamp) {
+            return;
+        }
+        if (missingNames.size() >= maximumSize) {
+            Iterator<String> it = missingNames.keySet().iterator();
+            if (it.hasNext()) {
+                it.next();
+                it.remove();
+                // LFU 축출(evictions)과 따로 센다.
+                stats.recordNegativeEviction();
+            }
+        }
+        Long expiresAt = nanoTime.getAsLong() + negativeTtlNanos;
+        missingNames.put(name, expiresAt);
+        // 넣는 사이에 저장이 끼어들었으면 방금 넣은 것을 도로 뺀다.
+        if (writeStamps.get(index) != stamp) {
+            missingNames.remove(name, expiresAt);
+        }
+    }
+
+    private static int stampIndex(String name) {
+        int h = name.hashCode();
+        return (h ^ (h >>> 16)) & (WRITE_STAMPS - 1);
+    }
+
+    // 빈도 기반 축출 (근사 LFU)
+    // 전체를 정렬하는 대신 몇 개만 뽑아서 그 중 가장 덜 쓰인 걸 버린다.
+    // 뽑힌 애들은 빈도를 반으로 줄여서, 예전에만 많이 쓰인 회원이 영원히 남지 않게 한다. (aging)
+    private void evictOne() {
+        Iterator<CacheEntry> it = byId.values().iterator();
+
+        // 매번 맨 앞 버킷만 보지 않도록 시작 위치를 조금씩 흔든다.
+        int skip = ThreadLocalRandom.current().nextInt(Math.max(1, Math.min(byId.size() - EVICTION_SAMPLES, 64)));
+        for (int i = 0; i < skip && it.hasNext(); i++) {
+            it.next();
+        }
+
+        CacheEntry victim = null;
+        for (int i = 0; i < EVICTION_SAMPLES && it.hasNext(); i++) {
+            CacheEntry candidate = it.next();
+            if (victim == null || candidate.frequency < victim.frequency) {
+                victim = candidate;
+            }
+            candidate.frequency >>>= 1;
+        }
+
+        if (victim == null) {
+            // 다른 스레드가 먼저 비웠다.
+            return;
+        }
+        if (byId.remove(victim.id, victim)) {
+            if (victim.name != null) {
+                byName.remove(victim.name, victim.id);
+            }
+            stats.recordEviction();
+        }
+    }
+
+    private static final class CacheEntry {
+
+        private final Long id;
+        private final String name;
+        // 정확할 필요는 없어서 경합 시 증가분이 유실되어도 그냥 둔다.
+        private volatile int frequency = 1;
+
+        private CacheEntry(Long id, String name) {
+            this.id = id;
+            this.name = name;
+        }
+
+        private Member touch() {
+            if (frequency < MAX_FREQUENCY) {
+                frequency++;
+            }
+            Member member = new Member();
+            member.setId(id);
+            member.setName(name);
+            return member;
+        }
+    }
+}
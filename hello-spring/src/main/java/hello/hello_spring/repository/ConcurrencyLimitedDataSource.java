@@ -0,0 +1,109 @@
+package hello.hello_spring.repository;
+
+import org.springframework.jdbc.CannotGetJdbcConnectionException;
+import org.springframework.jdbc.datasource.ConnectionProxy;
+import org.springframework.jdbc.datasource.DelegatingDataSource;
+
+import javax.sql.DataSource;
+import java.lang.reflect.InvocationTargetException;
+import java.lang.reflect.Proxy;
+import java.sql.Connection;
+import java.sql.SQLException;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+
+// 가상 스레드 모드에서 DataSource 앞에 세우는 세마포어
+// 가상 스레드는 요청마다 하나씩 거의 공짜로 생기기 때문에 수천 개가 동시에 커넥션을 달라고 할 수 있다.
+// -> 커넥션 풀은 10개인데 나머지는 풀 안에서 대기하다가 connectionTimeout이 지나면 예외로 터진다.
+// 세마포어로 동시에 커넥션을 잡는 스레드 수를 풀 크기만큼만 허용하고 나머지는 여기서 줄을 세운다.
+// -> Semaphore.acquire는 가상 스레드를 캐리어 스레드에서 떼어내고(unmount) 기다리기 때문에 캐리어를 막지 않는다.
+// 허가는 커넥션을 close() 할 때 돌려준다.
+public class ConcurrencyLimitedDataSource extends DelegatingDataSource {
+
+    private final Semaphore permits;
+    private final long acquireTimeoutMillis;
+
+    public ConcurrencyLimitedDataSource(DataSource targetDataSource, int maxConcurrency, long acquireTimeoutMillis) {
+        super(targetDataSource);
+        this.permits = new Semaphore(maxConcurrency, true);
+        this.acquireTimeoutMillis = acquireTimeoutMillis;
+    }
+
+    @Override
+    public Connection getConnection() throws SQLException {
+        acquire();
+        try {
+            return limited(super.getConnection());
+        } catch (SQLException | RuntimeException e) {
+            permits.release();
+            throw e;
+        }
+    }
+
+    @Override
+    public Connection getConnection(String username, String password) throws SQLException {
+        acquire();
+        try {
+            return limited(super.getConnection(username, password));
+        } catch (SQLException | RuntimeException e) {
+            permits.release();
+            throw e;
+        }
+    }
+
+    private void acquire() {
+        try {
+            if (!permits.tryAcquire(acquireTimeoutMillis, TimeUnit.MILLISECONDS)) {
+                throw new CannotGetJdbcConnectionException("DB 동시 접근 한도 대기 시간 초과: " + acquireTimeoutMillis + "ms");
+            }
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new CannotGetJdbcConnectionException("DB 커넥션 대기 중 인터럽트", (SQLException) null);
+        }
+    }
+
+    // close()를 가로채서 허가를 돌려준다.
+    // 같은 커넥션에 close()가 두 번 불려도 허가는 한 번만 돌려준다.
+    // ConnectionProxy를 구현해 두면 DataSourceUtils가 원래 커넥션을 꺼내 볼 수 있다.
+    private Connection limited(Connection target) {
+        AtomicBoolean released = new AtomicBoolean();
+        return (Connection) Proxy.newProxyInstance(
+                ConnectionProxy.class.getClassLoader(),
+                new Class<?>[]{ConnectionProxy.class},
+                (proxy, method, args) -> {
+                    switch (method.getName()) {
+                        case "getTargetConnection":
+                            return target;
+                        case "equals":
+                            return proxy == args[0];
+                        case "hashCode":
+                            return System.identityHashCode(proxy);
+                        case "close":
+                            try {
+                                target.close();
+                            } finally {
+                                if (released.compareAndSet(false, true)) {
+                                    permits.release();
+                                }
+                            }
+                            return null;
+                        default:
+                            try {
+                                return method.invoke(target, args);
+                            } catch (InvocationTargetException e) {
+                                throw e.getTargetException();
+                            }
+                    }
+                });
+    }
+
+    public int availablePermits() {
+        return permits.availablePermits();
+    }
+
+    // 허가를 기다리며 줄 서 있는 스레드 수 (대략적인 값)
+    public int waitingThreads() {
+        return permits.getQueueLength();
+    }
+}
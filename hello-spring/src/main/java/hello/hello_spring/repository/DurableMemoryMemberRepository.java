@@ -0,0 +1,518 @@
+package hello.hello_spring.repository;
+
+import hello.hello_spring.domain.Member;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.dao.DuplicateKeyException;
+
+import java.io.*;
+import java.nio.channels.Channels;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.*;
+import java.util.*;
+import java.util.concurrent.*;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.locks.ReentrantLock;
+import java.util.function.Predicate;
+import java.util.stream.Stream;
+import java.util.zip.CRC32C;
+import java.util.zip.CheckedInputStream;
+import java.util.zip.CheckedOutputStream;
+
+// 재시작해도 회원이 살아있는 MemoryMemberRepository
+// 읽기, 쓰기는 MemoryMemberRepository와 똑같이 메모리에서 한다.
+// 대신 저장할 때마다 로그 세그먼트(members-N.wal)에 붙이고 fsync(그룹 커밋)까지 끝나야 응답한다.
+// 백그라운드에서 주기적으로 스냅샷(members.snapshot)을 떠서 로그가 끝없이 길어지지 않게 한다.
+//
+// 스냅샷 뜨는 순서
+// 1. 쓰기 락 안에서 새 세그먼트로 갈아끼우고 그 시점의 마지막 id(cut)를 기억한다. (락은 여기까지만)
+// 2. 회원은 저장 후 바뀌지 않기 때문에 id <= cut 인 회원을 그대로 파일에 쓴다.
+// 3. 임시 파일에 다 쓰고 fsync 한 다음 rename으로 바꿔치기한다. -> 스냅샷은 항상 온전한 것만 남는다.
+// 4. cut 이전 세그먼트를 지운다.
+// 시작할 때는 스냅샷을 읽고 남아 있는 세그먼트를 순서대로 다시 재생한다.
+// 파일을 만들거나 rename 한 뒤에는 디렉터리도 fsync 한다. -> 안 하면 전원이 나갔을 때 파일 내용은 있어도 이름이 사라질 수 있다.
+//
+// 저장 실패는 at-least-once
+// fsync가 실패하면 메모리에서는 되돌리고 예외를 던지지만, 레코드는 이미 파일(페이지 캐시)에 써져 있다.
+// -> 나중에 다른 fsync나 스냅샷이 그걸 같이 내려주면 재시작 후에 "실패한" 회원이 다시 보일 수 있다.
+// -> 호출한 쪽은 실패한 저장을 재시도할 때 이름으로 먼저 찾아봐야 한다. (중복 이름은 DuplicateKeyException)
+// 이름 검색 인덱스(1~3-gram)는 만드는 데 복구보다 몇 배 오래 걸려서 복구가 끝난 뒤 백그라운드에서 채운다.
+// -> 다 채워지기 전의 검색은 메모리를 그냥 훑는다.
+public class DurableMemoryMemberRepository implements MemberRepository, Closeable {
+
+    private static final Logger log = LoggerFactory.getLogger(DurableMemoryMemberRepository.class);
+
+    private static final int SNAPSHOT_MAGIC = 0x4D534E50;   // "MSNP"
+    private static final int SNAPSHOT_VERSION = 1;
+    private static final int IO_BUFFER_SIZE = 1 << 20;
+    private static final String SNAPSHOT_FILE = "members.snapshot";
+    private static final String SEGMENT_PREFIX = "members-";
+    private static final String SEGMENT_SUFFIX = ".wal";
+    private static final boolean WINDOWS = System.getProperty("os.name", "").toLowerCase(Locale.ROOT).startsWith("windows");
+
+    private final ConcurrentNavigableMap<Long, Member> store = new ConcurrentSkipListMap<>();
+    private final ConcurrentMap<String, Long> nameIndex = new ConcurrentHashMap<>();
+    private final MemberNameIndex searchIndex = new MemberNameIndex();
+    private final AtomicLong sequence = new AtomicLong();
+
+    private final Path directory;
+    private final long snapshotLogBytes;
+    private final long snapshotIntervalMillis;
+
+    // id 발급 + 로그 append + 메모리 반영을 묶는다. 세그먼트 교체도 이 락 안에서 한다.
+    private final ReentrantLock writeLock = new ReentrantLock();
+    private final ReentrantLock snapshotLock = new ReentrantLock();
+    private volatile MemberWriteAheadLog segment;
+    private volatile long segmentNumber;
+    // 재시작 후 재생만 하고 아직 스냅샷에 못 넣은 이전 세그먼트가 있는지
+    private volatile boolean pendingSegments;
+    private volatile boolean searchIndexReady;
+
+    private final ScheduledExecutorService snapshotter;
+    private volatile long lastSnapshotMillis = System.currentTimeMillis();
+    private volatile long lastSnapshotDurationMillis;
+    private final long recoveryMillis;
+
+    public DurableMemoryMemberRepository(Path directory, long snapshotLogBytes, long snapshotIntervalMillis) {
+        this.directory = directory;
+        this.snapshotLogBytes = snapshotLogBytes;
+        this.snapshotIntervalMillis = snapshotIntervalMillis;
+
+        long start = System.nanoTime();
+        try {
+            Files.createDirectories(directory);
+            long snapshotCount = loadSnapshot();
+
+            long replayed = 0;
+            List<Long> segments = listSegments();
+            for (Long number : segments) {
+                try (MemberWriteAheadLog old = new MemberWriteAheadLog(segmentPath(number))) {
+                    long[] count = {0};
+                    old.replay(member -> {
+                        if (!store.containsKey(member.getId())) {
+                            put(member);
+                            count[0]++;
+                        }
+                    });
+                    replayed += count[0];
+                }
+            }
+
+            pendingSegments = !segments.isEmpty();
+            segmentNumber = segments.isEmpty() ? 1 : segments.get(segments.size() - 1) + 1;
+            segment = new MemberWriteAheadLog(segmentPath(segmentNumber));
+            syncDirectory();
+
+            recoveryMillis = TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - start);
+            log.info("회원 {}명 복구 (스냅샷 {}명, 로그 {}명), {}ms", store.size(), snapshotCount, replayed, recoveryMillis);
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+
+        snapshotter = Executors.newSingleThreadScheduledExecutor(runnable -> {
+            Thread thread = new Thread(runnable, "member-snapshot");
+            thread.setDaemon(true);
+            return thread;
+        });
+        snapshotter.execute(this::buildSearchIndex);
+        snapshotter.scheduleWithFixedDelay(this::snapshotIfNeeded, 1, 1, TimeUnit.SECONDS);
+    }
+
+    // 복구 이후에 저장된 회원은 append가 직접 넣기 때문에 여기서는 그 전까지만 넣어도 된다.
+    // 같은 회원이 두 번 들어가도 인덱스는 집합이라 괜찮다.
+    private void buildSearchIndex() {
+        long start = System.nanoTime();
+        for (Member member : store.values()) {
+            searchIndex.add(member.getId(), member.getName());
+        }
+        searchIndexReady = true;
+        log.info("회원 이름 검색 인덱스 {}명, {}ms", store.size(), TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - start));
+    }
+
+    private void put(Member member) {
+        store.put(member.getId(), member);
+        if (member.getName() != null) {
+            nameIndex.putIfAbsent(member.getName(), member.getId());
+        }
+        sequence.accumulateAndGet(member.getId(), Math::max);
+    }
+
+    @Override
+    public Member save(Member member) {
+        MemberWriteAheadLog current;
+        long logSequence;
+        writeLock.lock();
+        try {
+            current = segment;
+            logSequence = append(current, member);
+        } finally {
+            writeLock.unlock();
+        }
+        // fsync는 락 밖에서 한다. -> 동시에 들어온 저장이 fsync 한 번으로 묶인다.
+        try {
+            current.sync(logSequence);
+        } catch (RuntimeException e) {
+            rollback(List.of(member));
+            throw e;
+        }
+        return member;
+    }
+
+    @Override
+    public List<Member> saveAll(Collection<Member> members) {
+        List<Member> appended = new ArrayList<>(members.size());
+        MemberWriteAheadLog current;
+        long logSequence = 0;
+        writeLock.lock();
+        current = segment;
+        try {
+            for (Member member : members) {
+                logSequence = append(current, member);
+                appended.add(member);
+            }
+        } finally {
+            writeLock.unlock();
+            // 여러 명을 저장해도 fsync는 한 번
+            // 중간에 중복으로 실패해도 이미 로그에 붙은 회원은 내려둔다.
+            if (!appended.isEmpty()) {
+                try {
+                    current.sync(logSequence);
+                } catch (RuntimeException e) {
+                    rollback(appended);
+                    throw e;
+                }
+            }
+        }
+        return appended;
+    }
+
+    // fsync에 실패한 회원을 메모리에서 뺀다. (로그 파일에는 남아 있을 수 있다 -> 맨 위 at-least-once 설명)
+    // id는 되돌리지 않는다. 그 사이에 뒤 번호가 이미 나갔을 수 있어서 번호가 비는 쪽이 안전하다.
+    private void rollback(List<Member> members) {
+        writeLock.lock();
+        try {
+            for (Member member : members) {
+                Long id = member.getId();
+                if (id == null) {
+                    continue;
+                }
+                store.remove(id, member);
+                if (member.getName() != null) {
+                    nameIndex.remove(member.getName(), id);
+                }
+                searchIndex.remove(id, member.getName());
+                member.setId(null);
+            }
+        } finally {
+            writeLock.unlock();
+        }
+    }
+
+    // writeLock 안에서만 호출한다.
+    // 메모리 반영도 락 안에서 해야 스냅샷이 cut 이하 회원을 빠짐없이 본다.
+    private long append(MemberWriteAheadLog current, Member member) {
+        long id = sequence.get() + 1;
+        if (member.getName() != null && nameIndex.putIfAbsent(member.getName(), id) != null) {
+            throw new DuplicateKeyException("중복된 회원 이름: " + member.getName());
+        }
+        member.setId(id);
+        long logSequence;
+        try {
+            logSequence = current.append(member);
+        } catch (RuntimeException e) {
+            if (member.getName() != null) {
+                nameIndex.remove(member.getName(), id);
+            }
+            throw e;
+        }
+        sequence.set(id);
+        store.put(id, member);
+        searchIndex.add(id, member.getName());
+        return logSequence;
+    }
+
+    private void snapshotIfNeeded() {
+        try {
+            long logBytes = segment.sizeInBytes();
+            boolean due = System.currentTimeMillis() - lastSnapshotMillis >= snapshotIntervalMillis;
+            if (logBytes >= snapshotLogBytes || (due && (logBytes > 0 || pendingSegments))) {
+                snapshot();
+            }
+        } catch (RuntimeException e) {
+            log.warn("회원 스냅샷 실패", e);
+        }
+    }
+
+    /**
+     * 스냅샷을 뜨고 그 이전 로그 세그먼트를 지운다.
+     */
+    public void snapshot() {
+        snapshotLock.lock();
+        try {
+            long start = System.nanoTime();
+            MemberWriteAheadLog old;
+            long oldNumber;
+            long cut;
+
+            writeLock.lock();
+            try {
+                if (segment.sizeInBytes() == 0 && !pendingSegments) {
+                    return;
+                }
+                old = segment;
+                oldNumber = segmentNumber;
+                segmentNumber++;
+                segment = new MemberWriteAheadLog(segmentPath(segmentNumber));
+                syncDirectory();
+                cut = sequence.get();
+            } finally {
+                writeLock.unlock();
+            }
+            // 아직 sync 중인 쓰기 스레드가 있어도 close가 force 해주기 때문에 괜찮다.
+            old.close();
+
+            writeSnapshot(store.headMap(cut, true), cut);
+            // rename이 디스크에 남은 뒤에 세그먼트를 지운다.
+            // -> 순서가 바뀌면 전원이 나갔을 때 옛 스냅샷 + 지워진 세그먼트만 남아서 회원이 사라진다.
+            // 지우기는 fsync 하지 않는다. 지운 세그먼트가 되살아나도 재생할 때 이미 있는 id는 건너뛴다.
+            syncDirectory();
+            for (Long number : listSegments()) {
+                if (number <= oldNumber) {
+                    Files.deleteIfExists(segmentPath(number));
+                }
+            }
+
+            pendingSegments = false;
+            lastSnapshotMillis = System.currentTimeMillis();
+            lastSnapshotDurationMillis = TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - start);
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        } finally {
+            snapshotLock.unlock();
+        }
+    }
+
+    // 스냅샷 형식: [magic][version][cut id][count] + [id][이름 길이, null이면 -1][이름] * count + [CRC32C]
+    private void writeSnapshot(Map<Long, Member> members, long cut) throws IOException {
+        Path temp = directory.resolve(SNAPSHOT_FILE + ".tmp");
+        CRC32C crc = new CRC32C();
+        try (FileChannel channel = FileChannel.open(temp,
+                StandardOpenOption.CREATE, StandardOpenOption.WRITE, StandardOpenOption.TRUNCATE_EXISTING);
+             DataOutputStream out = new DataOutputStream(new CheckedOutputStream(
+                     new BufferedOutputStream(Channels.newOutputStream(channel), IO_BUFFER_SIZE), crc))) {
+
+            out.writeInt(SNAPSHOT_MAGIC);
+            out.writeInt(SNAPSHOT_VERSION);
+            out.writeLong(cut);
+            out.writeLong(members.size());
+            for (Member member : members.values()) {
+                out.writeLong(member.getId());
+                if (member.getName() == null) {
+                    out.writeInt(-1);
+                } else {
+                    byte[] name = member.getName().getBytes(StandardCharsets.UTF_8);
+                    out.writeInt(name.length);
+                    out.write(name);
+                }
+            }
+            // CRC는 자기 자신을 빼고 계산해야 하니 마지막에 따로 쓴다.
+            out.flush();
+            long checksum = crc.getValue();
+            out.writeInt((int) checksum);
+            out.flush();
+            channel.force(true);
+        }
+        Files.move(temp, directory.resolve(SNAPSHOT_FILE),
+                StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+    }
+
+    // 디렉터리 엔트리(파일 생성, rename)를 디스크에 내린다.
+    // 윈도우는 디렉터리를 열 수 없고 rename이 메타데이터까지 처리해서 건너뛴다.
+    private void syncDirectory() throws IOException {
+        if (WINDOWS) {
+            return;
+        }
+        try (FileChannel channel = FileChannel.open(directory, StandardOpenOption.READ)) {
+            channel.force(true);
+        }
+    }
+
+    private long loadSnapshot() throws IOException {
+        Path file = directory.resolve(SNAPSHOT_FILE);
+        if (!Files.exists(file)) {
+            return 0;
+        }
+
+        CRC32C crc = new CRC32C();
+        try (CheckedInputStream checked = new CheckedInputStream(
+                new BufferedInputStream(Files.newInputStream(file), IO_BUFFER_SIZE), crc);
+             DataInputStream in = new DataInputStream(checked)) {
+
+            if (in.readInt() != SNAPSHOT_MAGIC || in.readInt() != SNAPSHOT_VERSION) {
+                throw new IllegalStateException("회원 스냅샷 형식이 아닙니다: " + file);
+            }
+            long cut = in.readLong();
+            long count = in.readLong();
+            for (long i = 0; i < count; i++) {
+                Member member = new Member();
+                member.setId(in.readLong());
+                int length = in.readInt();
+                if (length >= 0) {
+                    byte[] name = new byte[length];
+                    in.readFully(name);
+                    member.setName(new String(name, StandardCharsets.UTF_8));
+                }
+                put(member);
+            }
+
+            long expected = crc.getValue();
+            if (in.readInt() != (int) expected) {
+                throw new IllegalStateException("회원 스냅샷이 깨졌습니다: " + file);
+            }
+            sequence.accumulateAndGet(cut, Math::max);
+            return count;
+        }
+    }
+
+    private List<Long> listSegments() throws IOException {
+        List<Long> numbers = new ArrayList<>();
+        try (DirectoryStream<Path> files = Files.newDirectoryStream(directory, SEGMENT_PREFIX + "*" + SEGMENT_SUFFIX)) {
+            for (Path file : files) {
+                String name = file.getFileName().toString();
+                numbers.add(Long.parseLong(name.substring(SEGMENT_PREFIX.length(), name.length() - SEGMENT_SUFFIX.length())));
+            }
+        }
+        Collections.sort(numbers);
+        return numbers;
+    }
+
+    private Path segmentPath(long number) {
+        return directory.resolve(String.format("%s%020d%s", SEGMENT_PREFIX, number, SEGMENT_SUFFIX));
+    }
+
+    @Override
+    public Optional<Member> findById(Long id) {
+        return id == null ? Optional.empty() : Optional.ofNullable(store.get(id));
+    }
+
+    @Override
+    public Optional<Member> findByName(String name) {
+        if (name == null) {
+            return Optional.empty();
+        }
+        Long id = nameIndex.get(name);
+        return id == null ? Optional.empty() : Optional.ofNullable(store.get(id));
+    }
+
+    @Override
+    public List<Member> findByNameIn(Collection<String> names) {
+        List<Member> result = new ArrayList<>();
+        for (String name : names) {
+            findByName(name).ifPresent(result::add);
+        }
+        return result;
+    }
+
+    @Override
+    public List<Member> findAll() {
+        return new ArrayList<>(store.values());
+    }
+
+    @Override
+    public List<Member> findPage(Long afterId, int size) {
+        List<Member> result = new ArrayList<>(size);
+        for (Member member : store.tailMap(afterId == null ? 0L : afterId, false).values()) {
+            if (result.size() == size) {
+                break;
+            }
+            result.add(member);
+        }
+        return result;
+    }
+
+    @Override
+    public List<Member> searchByNamePrefix(String prefix, int limit) {
+        if (!searchIndexReady) {
+            return scan(member -> member.getName().startsWith(prefix), limit);
+        }
+        return toMembers(searchIndex.searchPrefix(prefix, limit));
+    }
+
+    @Override
+    public List<Member> searchByNameContaining(String keyword, int limit) {
+        if (!searchIndexReady) {
+            return scan(member -> member.getName().contains(keyword), limit);
+        }
+        return toMembers(searchIndex.searchContaining(keyword, limit, id -> {
+            Member member = store.get(id);
+            return member == null ? null : member.getName();
+        }));
+    }
+
+    // 인덱스가 준비되기 전에는 id 순으로 훑는다. (순서는 인덱스 검색과 다를 수 있다)
+    private List<Member> scan(Predicate<Member> condition, int limit) {
+        List<Member> result = new ArrayList<>(Math.min(limit, 16));
+        for (Member member : store.values()) {
+            if (result.size() == limit) {
+                break;
+            }
+            if (member.getName() != null && condition.test(member)) {
+                result.add(member);
+            }
+        }
+        return result;
+    }
+
+    private List<Member> toMembers(List<Long> ids) {
+        List<Member> result = new ArrayList<>(ids.size());
+        for (Long id : ids) {
+            Member member = store.get(id);
+            if (member != null) {
+                result.add(member);
+            }
+        }
+        return result;
+    }
+
+    @Override
+    public Stream<Member> streamAll() {
+        return store.values().stream();
+    }
+
+    /**
+     * 복구 시간, 마지막 스냅샷, 현재 로그 크기
+     */
+    public Map<String, Object> stats() {
+        Map<String, Object> stats = new LinkedHashMap<>();
+        stats.put("members", store.size());
+        stats.put("recoveryMillis", recoveryMillis);
+        stats.put("lastSnapshotMillis", lastSnapshotMillis);
+        stats.put("lastSnapshotDurationMillis", lastSnapshotDurationMillis);
+        stats.put("segment", segmentNumber);
+        stats.put("logBytes", segment.sizeInBytes());
+        stats.put("searchIndexReady", searchIndexReady);
+        return stats;
+    }
+
+    public long getRecoveryMillis() {
+        return recoveryMillis;
+    }
+
+    // 종료할 때는 스냅샷을 뜨지 않는다. (수백만 명이면 종료가 느려진다) 로그만 닫으면 다음 시작 때 재생된다.
+    @Override
+    public void close() throws IOException {
+        snapshotter.shutdown();
+        try {
+            snapshotter.awaitTermination(30, TimeUnit.SECONDS);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+        writeLock.lock();
+        try {
+            segment.close();
+        } finally {
+            writeLock.unlock();
+        }
+    }
+}
@@ -1,18 +1,31 @@
 package hello.hello_spring.repository;
 
 import hello.hello_spring.domain.Member;
+import org.springframework.dao.DuplicateKeyException;
 import org.springframework.jdbc.datasource.DataSourceUtils;
 
 import javax.sql.DataSource;
 import java.sql.*;
 import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Collections;
 import java.util.List;
 import java.util.Optional;
+import java.util.Spliterator;
+import java.util.Spliterators;
+import java.util.function.Consumer;
+import java.util.stream.Stream;
+import java.util.stream.StreamSupport;
 
 // 회원을 저장한다는 역할은 지금 MemberRepository가 그 역할을 하지만
 // 구현을 메모리에 할거야 or 나는 DB랑 연동해서 JDBC로 할거야 차이!
 public class JdbcMemberRepository implements MemberRepository {
 
+    // 한 번에 DB로 보내는 배치 크기
+    private static final int BATCH_SIZE = 500;
+    // 커서로 읽을 때 한 번에 가져오는 행 수
+    private static final int FETCH_SIZE = 500;
+
     // DB에 붙으려면 데이터 소스라는 것이 필요하다.
     private final DataSource dataSource;
 
@@ -53,6 +66,11 @@ public class JdbcMemberRepository implements MemberRepository {
             }
             return member;
         } catch (Exception e) {
+            // name unique 제약에 걸리면 중복 회원이다.
+            // -> select로 미리 확인하지 않고 insert 한 번으로 중복까지 판단한다.
+            if (SqlStates.isUniqueViolation(e)) {
+                throw new DuplicateKeyException("중복된 회원 이름: " + member.getName(), e);
+            }
             throw new IllegalStateException(e);
         } finally {
             // 이거 안하면 데이터베이스 커넥션 계속 쌓여서 대장애 발생할 수도 있다.
@@ -60,9 +78,61 @@ public class JdbcMemberRepository implements MemberRepository {
         }
     }
 
+    // save를 루프로 돌리면 회원마다 커넥션 획득, 왕복, generated key 조회가 한 번씩 일어난다.
+    // addBatch로 모아서 executeBatch 한 번에 보내고, 키도 배치 단위로 한 번에 받는다.
+    @Override
+    public List<Member> saveAll(Collection<Member> members) {
+        String sql = "insert into member(name) values(?)";
+
+        Connection conn = null;
+        PreparedStatement pstmt = null;
+
+        try {
+            conn = getConnection();
+            pstmt = conn.prepareStatement(sql, Statement.RETURN_GENERATED_KEYS);
+
+            List<Member> batch = new ArrayList<>(BATCH_SIZE);
+            for (Member member : members) {
+                pstmt.setString(1, member.getName());
+                pstmt.addBatch();
+                batch.add(member);
+
+                if (batch.size() == BATCH_SIZE) {
+                    executeBatch(pstmt, batch);
+                    batch.clear();
+                }
+            }
+            if (!batch.isEmpty()) {
+                executeBatch(pstmt, batch);
+            }
+            return new ArrayList<>(members);
+        } catch (Exception e) {
+            if (SqlStates.isUniqueViolation(e)) {
+                throw new DuplicateKeyException("중복된 회원 이름", e);
+            }
+            throw new IllegalStateException(e);
+        } finally {
+            close(conn, pstmt, null);
+        }
+    }
+
+    private void executeBatch(PreparedStatement pstmt, List<Member> batch) throws SQLException {
+        pstmt.executeBatch();
+
+        // 배치로 넣은 순서대로 id가 돌아온다.
+        try (ResultSet rs = pstmt.getGeneratedKeys()) {
+            for (Member member : batch) {
+                if (!rs.next()) {
+                    throw new SQLException("id 조회 실패");
+                }
+                member.setId(rs.getLong(1));
+            }
+        }
+    }
+
     @Override
     public Optional<Member> findById(Long id) {
-        String sql = "select * from member where id = ?";
+        String sql = MemberRowMapper.SELECT + " where id = ?";
 
         Connection conn = null;
         PreparedStatement pstmt = null;
@@ -76,9 +146,7 @@ public class JdbcMemberRepository implements MemberRepository {
             rs = pstmt.executeQuery();
 
             if (rs.next()) {
-                Member member = new Member();
-                member.setId(rs.getLong("id"));
-                member.setName(rs.getString("name"));
+                Member member = MemberRowMapper.map(rs);
                 return Optional.of(member);
             } else {
                 return Optional.empty();
@@ -92,7 +160,7 @@ public class JdbcMemberRepository implements MemberRepository {
 
     @Override
     public List<Member> findAll() {
-        String sql = "select * from member";
+        String sql = MemberRowMapper.SELECT;
 
         Connection conn = null;
         PreparedStatement pstmt = null;
@@ -105,9 +173,7 @@ public class JdbcMemberRepository implements MemberRepository {
             rs = pstmt.executeQuery();
             List<Member> members = new ArrayList<>();
             while (rs.next()) {
-                Member member = new Member();
-                member.setId(rs.getLong("id"));
-                member.setName(rs.getString("name"));
+                Member member = MemberRowMapper.map(rs);
                 members.add(member);
             }
 
@@ -119,9 +185,123 @@ public class JdbcMemberRepository implements MemberRepository {
         }
     }
 
+    // offset 페이징은 앞 페이지들을 다 읽고 버리기 때문에 뒤로 갈수록 느려진다.
+    // id > ? 로 PK 인덱스에서 바로 시작 위치를 찾아서 읽기 때문에 몇 번째 페이지든 비용이 같다.
+    @Override
+    public List<Member> findPage(Long afterId, int size) {
+        String sql = MemberRowMapper.SELECT + " where id > ? order by id limit ?";
+
+        Connection conn = null;
+        PreparedStatement pstmt = null;
+        ResultSet rs = null;
+
+        try {
+            conn = getConnection();
+            pstmt = conn.prepareStatement(sql);
+            pstmt.setLong(1, afterId == null ? 0L : afterId);
+            pstmt.setInt(2, size);
+
+            rs = pstmt.executeQuery();
+            List<Member> members = new ArrayList<>(size);
+            while (rs.next()) {
+                Member member = MemberRowMapper.map(rs);
+                members.add(member);
+            }
+            return members;
+        } catch (Exception e) {
+            throw new IllegalStateException(e);
+        } finally {
+            close(conn, pstmt, rs);
+        }
+    }
+
+    // 접두어 검색은 name like 'kim%' -> uk_member_name 인덱스로 범위 검색이 된다.
+    @Override
+    public List<Member> searchByNamePrefix(String prefix, int limit) {
+        return searchByName(MemberRowMapper.SELECT + " where name like ? escape '\\' order by name limit ?",
+                LikePatterns.startsWith(prefix), limit);
+    }
+
+    // 부분 문자열 검색은 name like '%kim%' -> 인덱스를 못 타고 전체를 훑는다.
+    @Override
+    public List<Member> searchByNameContaining(String keyword, int limit) {
+        return searchByName(MemberRowMapper.SELECT + " where name like ? escape '\\' order by id limit ?",
+                LikePatterns.contains(keyword), limit);
+    }
+
+    private List<Member> searchByName(String sql, String pattern, int limit) {
+        Connection conn = null;
+        PreparedStatement pstmt = null;
+        ResultSet rs = null;
+
+        try {
+            conn = getConnection();
+            pstmt = conn.prepareStatement(sql);
+            pstmt.setString(1, pattern);
+            pstmt.setInt(2, limit);
+
+            rs = pstmt.executeQuery();
+            List<Member> members = new ArrayList<>();
+            while (rs.next()) {
+                Member member = MemberRowMapper.map(rs);
+                members.add(member);
+            }
+            return members;
+        } catch (Exception e) {
+            throw new IllegalStateException(e);
+        } finally {
+            close(conn, pstmt, rs);
+        }
+    }
+
+    // findAll은 전체를 List에 담기 때문에 테이블이 크면 힙이 터진다.
+    // 전진 전용(forward-only), 읽기 전용 커서를 열고 FETCH_SIZE만큼씩 가져오면서 한 건씩 넘긴다.
+    // 커넥션, 스테이트먼트, 결과셋은 스트림을 close 할 때 닫는다.
+    @Override
+    public Stream<Member> streamAll() {
+        String sql = MemberRowMapper.SELECT;
+
+        Connection conn = null;
+        PreparedStatement pstmt = null;
+        ResultSet rs = null;
+
+        try {
+            conn = getConnection();
+            pstmt = conn.prepareStatement(sql, ResultSet.TYPE_FORWARD_ONLY, ResultSet.CONCUR_READ_ONLY);
+            pstmt.setFetchSize(FETCH_SIZE);
+            rs = pstmt.executeQuery();
+
+            ResultSet cursor = rs;
+            Spliterator<Member> spliterator = new Spliterators.AbstractSpliterator<>(
+                    Long.MAX_VALUE, Spliterator.ORDERED | Spliterator.NONNULL) {
+                @Override
+                public boolean tryAdvance(Consumer<? super Member> action) {
+                    try {
+                        if (!cursor.next()) {
+                            return false;
+                        }
+                        Member member = MemberRowMapper.map(cursor);
+                        action.accept(member);
+                        return true;
+                    } catch (SQLException e) {
+                        throw new IllegalStateException(e);
+                    }
+                }
+            };
+
+            Connection c = conn;
+            PreparedStatement p = pstmt;
+            return StreamSupport.stream(spliterator, false)
+                    .onClose(() -> close(c, p, cursor));
+        } catch (Exception e) {
+            close(conn, pstmt, rs);
+            throw new IllegalStateException(e);
+        }
+    }
+
     @Override
     public Optional<Member> findByName(String name) {
-        String sql = "select * from member where name = ?";
+        String sql = MemberRowMapper.SELECT + " where name = ?";
 
         Connection conn = null;
         PreparedStatement pstmt = null;
@@ -135,9 +315,7 @@ public class JdbcMemberRepository implements MemberRepository {
             rs = pstmt.executeQuery();
 
             if (rs.next()) {
-                Member member = new Member();
-                member.setId(rs.getLong("id"));
-                member.setName(rs.getString("name"));
+                Member member = MemberRowMapper.map(rs);
                 return Optional.of(member);
             }
             return Optional.empty();
@@ -148,6 +326,48 @@ public class JdbcMemberRepository implements MemberRepository {
         }
     }
 
+    // in 절은 BATCH_SIZE 단위로 잘라서 조회한다.
+    @Override
+    public List<Member> findByNameIn(Collection<String> names) {
+        if (names.isEmpty()) {
+            return Collections.emptyList();
+        }
+
+        List<String> nameList = new ArrayList<>(names);
+        List<Member> members = new ArrayList<>();
+
+        Connection conn = null;
+        PreparedStatement pstmt = null;
+        ResultSet rs = null;
+
+        try {
+            conn = getConnection();
+            for (int from = 0; from < nameList.size(); from += BATCH_SIZE) {
+                List<String> chunk = nameList.subList(from, Math.min(from + BATCH_SIZE, nameList.size()));
+                String sql = MemberRowMapper.SELECT + " where name in ("
+                        + String.join(", ", Collections.nCopies(chunk.size(), "?")) + ")";
+
+                pstmt = conn.prepareStatement(sql);
+                for (int i = 0; i < chunk.size(); i++) {
+                    pstmt.setString(i + 1, chunk.get(i));
+                }
+
+                rs = pstmt.executeQuery();
+                while (rs.next()) {
+                    Member member = MemberRowMapper.map(rs);
+                    members.add(member);
+                }
+                rs.close();
+                pstmt.close();
+            }
+            return members;
+        } catch (Exception e) {
+            throw new IllegalStateException(e);
+        } finally {
+            close(conn, pstmt, rs);
+        }
+    }
+
     private Connection getConnection() {
         // 원래 DataSourceUtils에서 이 커넥션을 획득해야 한다.
         // 이거 안하면 이전 트랜잭션에 걸릴 수도 있다.
@@ -2,20 +2,36 @@ package hello.hello_spring.repository;
 
 import hello.hello_spring.domain.Member;
 import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.jdbc.core.BatchPreparedStatementSetter;
 import org.springframework.jdbc.core.JdbcTemplate;
 import org.springframework.jdbc.core.RowMapper;
 import org.springframework.jdbc.core.namedparam.MapSqlParameterSource;
+import org.springframework.jdbc.core.namedparam.NamedParameterJdbcTemplate;
 import org.springframework.jdbc.core.simple.SimpleJdbcInsert;
+import org.springframework.jdbc.support.GeneratedKeyHolder;
+import org.springframework.jdbc.support.KeyHolder;
 
 import javax.sql.DataSource;
+import java.sql.PreparedStatement;
 import java.sql.ResultSet;
 import java.sql.SQLException;
 import java.util.*;
+import java.util.stream.Stream;
 
 // JDBC template는 실무에서도 많이 쓴다!
 public class JdbcTemplateMemberRepository implements MemberRepository {
 
+    private static final int BATCH_SIZE = 500;
+    private static final int FETCH_SIZE = 500;
+
     private final JdbcTemplate jdbcTemplate;
+    // fetchSize는 템플릿 단위 설정이라서 스트리밍 전용 템플릿을 따로 둔다.
+    private final JdbcTemplate streamingJdbcTemplate;
+    // in (:names) 처럼 컬렉션 파라미터를 펼쳐주려면 NamedParameterJdbcTemplate이 필요하다.
+    private final NamedParameterJdbcTemplate namedJdbcTemplate;
+    // SimpleJdbcInsert는 처음 실행할 때 insert 문을 만들어(compile) 두고 계속 재사용한다.
+    // save마다 새로 만들면 매번 DB 메타데이터를 다시 읽고 insert 문을 다시 만든다. -> 필드로 하나만 둔다. (컴파일 후에는 스레드 안전)
+    private final SimpleJdbcInsert memberInsert;
 
     // 애는 인젝션을 받을 수 있진 않다.
     // -> 이전에 DataSource 인젝션 받았던 것을 기억하나? -> DataSource가 필요하다!
@@ -24,60 +40,145 @@ public class JdbcTemplateMemberRepository implements MemberRepository {
     // @Autowired
     public JdbcTemplateMemberRepository(DataSource dataSource) {
         jdbcTemplate = new JdbcTemplate(dataSource);
+        namedJdbcTemplate = new NamedParameterJdbcTemplate(jdbcTemplate);
+
+        streamingJdbcTemplate = new JdbcTemplate(dataSource);
+        streamingJdbcTemplate.setFetchSize(FETCH_SIZE);
+
+        // 넣을 컬럼을 직접 정해주면 테이블 컬럼 메타데이터를 읽지 않아도 된다.
+        memberInsert = new SimpleJdbcInsert(jdbcTemplate)
+                .withTableName("member")
+                .usingColumns("name")
+                .usingGeneratedKeyColumns("id")
+                .withoutTableColumnMetaDataAccess();
     }
 
 
     @Override
     public Member save(Member member) {
         // query를 짤 필요가 없다!
-        SimpleJdbcInsert jdbcInsert = new SimpleJdbcInsert(jdbcTemplate);
-        jdbcInsert.withTableName("member").usingGeneratedKeyColumns("id");
-
-        Map<String, Object> parameters = new HashMap<>();
-        parameters.put("name", member.getName());
+//        SimpleJdbcInsert jdbcInsert = new SimpleJdbcInsert(jdbcTemplate);
+//        jdbcInsert.withTableName("member").usingGeneratedKeyColumns("id");
+//
+//        Map<String, Object> parameters = new HashMap<>();
+//        parameters.put("name", member.getName());
 
-        Number key = jdbcInsert.executeAndReturnKey(new MapSqlParameterSource(parameters));
+        Number key = memberInsert.executeAndReturnKey(new MapSqlParameterSource("name", member.getName()));
         member.setId(key.longValue());
         return member;
     }
 
+    // SimpleJdbcInsert.executeBatch는 generated key를 돌려주지 않아서 회원에 id를 채울 수 없다.
+    // 그래서 KeyHolder를 받는 batchUpdate로 배치를 보내고 키를 한 번에 받는다.
+    @Override
+    public List<Member> saveAll(Collection<Member> members) {
+        List<Member> memberList = new ArrayList<>(members);
+
+        for (int from = 0; from < memberList.size(); from += BATCH_SIZE) {
+            List<Member> batch = memberList.subList(from, Math.min(from + BATCH_SIZE, memberList.size()));
+            KeyHolder keyHolder = new GeneratedKeyHolder();
+
+            jdbcTemplate.batchUpdate(
+                    con -> con.prepareStatement("insert into member(name) values(?)", new String[]{"id"}),
+                    new BatchPreparedStatementSetter() {
+                        @Override
+                        public void setValues(PreparedStatement ps, int i) throws SQLException {
+                            ps.setString(1, batch.get(i).getName());
+                        }
+
+                        @Override
+                        public int getBatchSize() {
+                            return batch.size();
+                        }
+                    },
+                    keyHolder);
+
+            List<Map<String, Object>> keys = keyHolder.getKeyList();
+            for (int i = 0; i < batch.size(); i++) {
+                Number key = (Number) keys.get(i).values().iterator().next();
+                batch.get(i).setId(key.longValue());
+            }
+        }
+        return memberList;
+    }
+
     // 결과가 나오는 것을 RowMapper라는 것으로 맵핑을 해줘야 한다!
     // 이게 왜 template이냐? -> 디자인 패턴 중에 템플릿 메서드 패턴이라고 있다.
     // 개발 잘하는 사람일수록 테스트를 꼼꼼하게 작성하고 테스트 케이스를 잘 작성한다.
     @Override
     public Optional<Member> findById(Long id) {
-        List<Member> result = jdbcTemplate.query("select * from member where id = ?", memberRowMapper(), id);
+        List<Member> result = jdbcTemplate.query(MemberRowMapper.SELECT + " where id = ?", MemberRowMapper.INSTANCE, id);
         return result.stream().findAny();
     }
 
     @Override
     public Optional<Member> findByName(String name) {
-        List<Member> result = jdbcTemplate.query("select * from member where name = ?", memberRowMapper(), name);
+        List<Member> result = jdbcTemplate.query(MemberRowMapper.SELECT + " where name = ?", MemberRowMapper.INSTANCE, name);
         return result.stream().findAny();
     }
 
+    @Override
+    public List<Member> findByNameIn(Collection<String> names) {
+        List<String> nameList = new ArrayList<>(names);
+        List<Member> result = new ArrayList<>();
+
+        for (int from = 0; from < nameList.size(); from += BATCH_SIZE) {
+            List<String> chunk = nameList.subList(from, Math.min(from + BATCH_SIZE, nameList.size()));
+            result.addAll(namedJdbcTemplate.query(MemberRowMapper.SELECT + " where name in (:names)",
+                    new MapSqlParameterSource("names", chunk), MemberRowMapper.INSTANCE));
+        }
+        return result;
+    }
+
     @Override
     public List<Member> findAll() {
-        return jdbcTemplate.query("select * from member", memberRowMapper());
+        return jdbcTemplate.query(MemberRowMapper.SELECT, MemberRowMapper.INSTANCE);
     }
 
-    private RowMapper<Member> memberRowMapper() {
-        // 이 코드는 lambda 로 바꿀 수 있다.
-//        return new RowMapper<Member>() {
-//            @Override
-//            public Member mapRow(ResultSet rs, int rowNum) throws SQLException {
-//
-//                Member member = new Member();
-//                member.setId(rs.getLong("id"));
-//                member.setName(rs.getString("name"));
-//                return member;
-//            }
-//        };
-        return (rs, rowNum) -> {
-            Member member = new Member();
-            member.setId(rs.getLong("id"));
-            member.setName(rs.getString("name"));
-            return member;
-        };
+    // keyset 페이징: PK 인덱스로 시작 위치를 바로 찾는다.
+    @Override
+    public List<Member> findPage(Long afterId, int size) {
+        return jdbcTemplate.query(MemberRowMapper.SELECT + " where id > ? order by id limit ?",
+                MemberRowMapper.INSTANCE, afterId == null ? 0L : afterId, size);
     }
+
+    @Override
+    public List<Member> searchByNamePrefix(String prefix, int limit) {
+        return jdbcTemplate.query(MemberRowMapper.SELECT + " where name like ? escape '\\' order by name limit ?",
+                MemberRowMapper.INSTANCE, LikePatterns.startsWith(prefix), limit);
+    }
+
+    @Override
+    public List<Member> searchByNameContaining(String keyword, int limit) {
+        return jdbcTemplate.query(MemberRowMapper.SELECT + " where name like ? escape '\\' order by id limit ?",
+                MemberRowMapper.INSTANCE, LikePatterns.contains(keyword), limit);
+    }
+
+    // queryForStream은 결과셋을 열어둔 채로 한 행씩 매핑한다. (기본이 forward-only 커서)
+    // 스트림을 close 해야 커넥션이 반납된다.
+    @Override
+    public Stream<Member> streamAll() {
+        return streamingJdbcTemplate.queryForStream(MemberRowMapper.SELECT, MemberRowMapper.INSTANCE);
+    }
+
+    // 행마다 컬럼 이름으로 찾던 매퍼 -> MemberRowMapper.INSTANCE (번호로 꺼내고 람다도 매번 안 만든다)
+//    private RowMapper<Member> memberRowMapper() {
+//        // 이 코드는 lambda 로 바꿀 수 있다.
+////        return new RowMapper<Member>() {
+////            @Override
+////            public Member mapRow(ResultSet rs, int rowNum) throws SQLException {
+////
+////                Member member = new Member();
+////                member.setId(rs.getLong("id"));
+////                member.setName(rs.getString("name"));
+////                return member;
+////            }
+////        };
+//        return (rs, rowNum) -> {
+//            Member member = new Member();
+//            member.setId(rs.getLong("id"));
+//            member.setName(rs.getString("name"));
+//            return member;
+//        };
+//    }
 }
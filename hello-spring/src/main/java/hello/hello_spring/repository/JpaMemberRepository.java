@@ -2,12 +2,22 @@ package hello.hello_spring.repository;
 
 import hello.hello_spring.domain.Member;
 import jakarta.persistence.EntityManager;
+import jakarta.persistence.PersistenceException;
+import org.springframework.dao.DuplicateKeyException;
 
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Collections;
 import java.util.List;
 import java.util.Optional;
+import java.util.stream.Stream;
 
 public class JpaMemberRepository implements MemberRepository {
 
+    // 이만큼 persist 할 때마다 flush/clear 해서 영속성 컨텍스트가 끝없이 커지지 않게 한다.
+    private static final int BATCH_SIZE = 500;
+    private static final int FETCH_SIZE = 500;
+
     // Jpa는 EntityManager로 모든 것이 동작한다!
     private final EntityManager em;
 
@@ -19,10 +29,39 @@ public class JpaMemberRepository implements MemberRepository {
     public Member save(Member member) {
         // persist: 영속하다, 영구 저장하다
         // 이렇게 하면 JPA가 insert query 다 만들어서 DB에 집어 넣고 id까지 member에다가 setId까지 해준다!
-        em.persist(member);
+        // IDENTITY 전략이라 persist 하는 순간 insert가 나가고, 여기서 바로 unique 제약 위반을 알 수 있다.
+        try {
+            em.persist(member);
+        } catch (PersistenceException e) {
+            if (SqlStates.isUniqueViolation(e)) {
+                throw new DuplicateKeyException("중복된 회원 이름: " + member.getName(), e);
+            }
+            throw e;
+        }
         return member;
     }
 
+    // 참고: Member id가 IDENTITY 전략이라서 persist 하는 순간 insert가 바로 나간다.
+    // -> 하이버네이트는 IDENTITY 엔티티의 insert를 JDBC 배치로 묶어주지 않는다.
+    // 그래도 주기적으로 flush/clear를 해줘야 대량 저장할 때 1차 캐시에 엔티티가 계속 쌓이지 않는다.
+    // clear를 하면 같은 트랜잭션에서 이전에 조회한 엔티티도 준영속이 되는 점은 주의!
+    @Override
+    public List<Member> saveAll(Collection<Member> members) {
+        List<Member> result = new ArrayList<>(members.size());
+        int count = 0;
+        for (Member member : members) {
+            em.persist(member);
+            result.add(member);
+
+            if (++count % BATCH_SIZE == 0) {
+                em.flush();
+                em.clear();
+            }
+        }
+        em.flush();
+        return result;
+    }
+
     @Override
     public Optional<Member> findById(Long id) {
         Member member = em.find(Member.class, id);
@@ -44,6 +83,16 @@ public class JpaMemberRepository implements MemberRepository {
         return result.stream().findAny();
     }
 
+    @Override
+    public List<Member> findByNameIn(Collection<String> names) {
+        if (names.isEmpty()) {
+            return Collections.emptyList();
+        }
+        return em.createQuery("select m from Member m where m.name in :names", Member.class)
+                .setParameter("names", names)
+                .getResultList();
+    }
+
     @Override
     public List<Member> findAll() {
 //        List<Member> result = em.createQuery("select m from Member m", Member.class).getResultList();
@@ -54,4 +103,43 @@ public class JpaMemberRepository implements MemberRepository {
         // 정확히는 엔티티를 대상으로 쿼리를 날린다.
         return em.createQuery("select m from Member m", Member.class).getResultList();
     }
+
+    // setFirstResult(offset) 대신 where m.id > :afterId 로 시작 위치를 잡는다.
+    @Override
+    public List<Member> findPage(Long afterId, int size) {
+        return em.createQuery("select m from Member m where m.id > :afterId order by m.id", Member.class)
+                .setParameter("afterId", afterId == null ? 0L : afterId)
+                .setMaxResults(size)
+                .getResultList();
+    }
+
+    @Override
+    public List<Member> searchByNamePrefix(String prefix, int limit) {
+        return em.createQuery("select m from Member m where m.name like :pattern escape '\\' order by m.name", Member.class)
+                .setParameter("pattern", LikePatterns.startsWith(prefix))
+                .setMaxResults(limit)
+                .getResultList();
+    }
+
+    @Override
+    public List<Member> searchByNameContaining(String keyword, int limit) {
+        return em.createQuery("select m from Member m where m.name like :pattern escape '\\' order by m.id", Member.class)
+                .setParameter("pattern", LikePatterns.contains(keyword))
+                .setMaxResults(limit)
+                .getResultList();
+    }
+
+    // getResultStream은 내부적으로 ScrollableResults(커서)를 쓴다.
+    // 그냥 두면 읽은 엔티티가 전부 영속성 컨텍스트에 쌓이기 때문에 한 건씩 detach 해서 메모리를 평평하게 유지한다.
+    @Override
+    public Stream<Member> streamAll() {
+        return em.createQuery("select m from Member m", Member.class)
+                .setHint("org.hibernate.fetchSize", FETCH_SIZE)
+                .setHint("org.hibernate.readOnly", true)
+                .getResultStream()
+                .map(member -> {
+                    em.detach(member);
+                    return member;
+                });
+    }
 }
@@ -0,0 +1,24 @@
+package hello.hello_spring.repository;
+
+// like 검색어 만들기
+// 사용자가 입력한 %, _ 는 와일드카드가 아니라 글자 그대로 찾아야 하기 때문에 \ 로 이스케이프한다.
+// 쿼리에는 escape '\' 를 같이 붙인다.
+final class LikePatterns {
+
+    private LikePatterns() {
+    }
+
+    // 'kim%' 처럼 앞이 고정되면 name 인덱스(uk_member_name)를 타고 범위 검색이 된다.
+    static String startsWith(String prefix) {
+        return escape(prefix) + "%";
+    }
+
+    // '%kim%' 는 인덱스를 못 타서 테이블 전체를 훑는다.
+    static String contains(String keyword) {
+        return "%" + escape(keyword) + "%";
+    }
+
+    private static String escape(String text) {
+        return text.replace("\\", "\\\\").replace("%", "\\%").replace("_", "\\_");
+    }
+}
@@ -0,0 +1,294 @@
+package hello.hello_spring.repository;
+
+import hello.hello_spring.domain.Member;
+import org.springframework.dao.DuplicateKeyException;
+
+import java.io.Closeable;
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.*;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.locks.ReentrantLock;
+import java.util.stream.IntStream;
+import java.util.stream.Stream;
+
+// 메모리 맵 파일에 회원을 append-only로 쌓는 리포지토리
+// H2 TCP 서버 없이도 재시작하면 회원이 그대로 살아있다.
+// 레코드 형식: [id: long][이름 길이: int, null이면 -1][이름: UTF-8 바이트]
+// 파일은 0으로 미리 늘려두기 때문에 id가 0인 자리가 나오면 거기가 데이터의 끝이다.
+// -> MappedByteBuffer는 int로 인덱싱하기 때문에 파일 하나는 최대 2GB까지만 쓸 수 있다.
+public class MappedFileMemberRepository implements MemberRepository, Closeable {
+
+    private static final int INITIAL_CAPACITY = 16 * 1024 * 1024;
+    private static final int HEADER_SIZE = Long.BYTES + Integer.BYTES;
+
+    private final FileChannel channel;
+
+    // 읽기 쪽은 락 없이 volatile 필드만 보고 접근한다.
+    // 쓰기 쪽은 레코드 -> offsets -> size 순서로 기록하기 때문에
+    // size를 먼저 읽은 스레드는 그 안쪽 레코드가 다 쓰여진 것을 보장받는다.
+    private volatile MappedByteBuffer buffer;
+    private volatile int[] offsets = new int[1024];   // id - 1 -> 파일 오프셋
+    private volatile int size;
+
+    private final ConcurrentMap<String, Long> nameIndex = new ConcurrentHashMap<>();
+    // 접두어 / 부분 문자열 검색용 인덱스 (파일에는 없고 시작할 때 다시 만든다)
+    private final MemberNameIndex searchIndex = new MemberNameIndex();
+    private int writePosition;
+
+    // 쓰기 락
+    // synchronized 안에서 force()/map() 같은 블로킹 I/O를 하면 가상 스레드가 캐리어 스레드에 고정(pinning)된다.
+    // ReentrantLock은 기다리는 동안 가상 스레드를 캐리어에서 떼어낼 수 있다.
+    private final ReentrantLock writeLock = new ReentrantLock();
+
+    public MappedFileMemberRepository(Path file) {
+        try {
+            if (file.getParent() != null) {
+                Files.createDirectories(file.getParent());
+            }
+            channel = FileChannel.open(file,
+                    StandardOpenOption.CREATE, StandardOpenOption.READ, StandardOpenOption.WRITE);
+            buffer = channel.map(FileChannel.MapMode.READ_WRITE, 0, Math.max(channel.size(), INITIAL_CAPACITY));
+            rebuildIndex();
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+    }
+
+    // 시작할 때 파일을 한 번 순차로 훑어서 인덱스를 다시 만든다.
+    // 이름 문자열 말고는 객체를 만들지 않기 때문에 수백만 건도 금방 끝난다.
+    private void rebuildIndex() {
+        MappedByteBuffer buf = buffer;
+        int position = 0;
+        int count = 0;
+        int[] offs = offsets;
+
+        while (position + HEADER_SIZE <= buf.capacity()) {
+            long id = buf.getLong(position);
+            if (id == 0) {
+                break;
+            }
+            if (count == offs.length) {
+                offs = Arrays.copyOf(offs, offs.length * 2);
+            }
+            offs[count++] = position;
+
+            int length = buf.getInt(position + Long.BYTES);
+            if (length >= 0) {
+                String name = readName(buf, position, length);
+                nameIndex.putIfAbsent(name, id);
+                searchIndex.add(id, name);
+            }
+            position += HEADER_SIZE + Math.max(length, 0);
+        }
+
+        writePosition = position;
+        offsets = offs;
+        size = count;
+    }
+
+    @Override
+    public Member save(Member member) {
+        writeLock.lock();
+        try {
+            return append(member);
+        } finally {
+            writeLock.unlock();
+        }
+    }
+
+    private Member append(Member member) {
+        // 쓰기는 writeLock 하나로 직렬화되기 때문에 여기서 확인하면 중복이 끼어들 틈이 없다.
+        if (member.getName() != null && nameIndex.containsKey(member.getName())) {
+            throw new DuplicateKeyException("중복된 회원 이름: " + member.getName());
+        }
+
+        byte[] name = member.getName() == null ? null : member.getName().getBytes(StandardCharsets.UTF_8);
+        int recordSize = HEADER_SIZE + (name == null ? 0 : name.length);
+        ensureCapacity((long) writePosition + recordSize + HEADER_SIZE);
+
+        long id = size + 1L;
+        MappedByteBuffer buf = buffer;
+        int position = writePosition;
+
+        // id를 마지막에 써야 쓰다 죽었을 때 반쯤 쓴 레코드가 살아나지 않는다.
+        buf.putInt(position + Long.BYTES, name == null ? -1 : name.length);
+        if (name != null) {
+            buf.put(position + HEADER_SIZE, name);
+        }
+        buf.putLong(position, id);
+        writePosition = position + recordSize;
+
+        int[] offs = offsets;
+        if (size == offs.length) {
+            offs = Arrays.copyOf(offs, offs.length * 2);
+        }
+        offs[size] = position;
+        offsets = offs;
+        size = size + 1;
+
+        if (member.getName() != null) {
+            nameIndex.putIfAbsent(member.getName(), id);
+        }
+        searchIndex.add(id, member.getName());
+        member.setId(id);
+        return member;
+    }
+
+    @Override
+    public List<Member> saveAll(Collection<Member> members) {
+        writeLock.lock();
+        try {
+            List<Member> result = new ArrayList<>(members.size());
+            for (Member member : members) {
+                result.add(append(member));
+            }
+            return result;
+        } finally {
+            writeLock.unlock();
+        }
+    }
+
+    // 두 배씩 늘리다가 int 범위(2GB - 1)에서 멈춘다. -> 1GB 다음 단계도 쓸 수 있다.
+    // required는 int로 더하다 넘치지 않게 long으로 받는다.
+    private void ensureCapacity(long required) {
+        if (required <= buffer.capacity()) {
+            return;
+        }
+        if (required > Integer.MAX_VALUE) {
+            throw new IllegalStateException("회원 파일이 2GB를 넘었습니다.");
+        }
+        long capacity = buffer.capacity();
+        while (capacity < required) {
+            capacity = Math.min(capacity * 2, Integer.MAX_VALUE);
+        }
+        try {
+            buffer.force();
+            buffer = channel.map(FileChannel.MapMode.READ_WRITE, 0, capacity);
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+    }
+
+    @Override
+    public Optional<Member> findById(Long id) {
+        int count = size;
+        if (id == null || id < 1 || id > count) {
+            return Optional.empty();
+        }
+        return Optional.of(read(offsets[(int) (id - 1)]));
+    }
+
+    @Override
+    public Optional<Member> findByName(String name) {
+        if (name == null) {
+            return Optional.empty();
+        }
+        Long id = nameIndex.get(name);
+        return id == null ? Optional.empty() : findById(id);
+    }
+
+    @Override
+    public List<Member> findByNameIn(Collection<String> names) {
+        List<Member> result = new ArrayList<>();
+        for (String name : names) {
+            findByName(name).ifPresent(result::add);
+        }
+        return result;
+    }
+
+    @Override
+    public List<Member> findAll() {
+        int count = size;
+        int[] offs = offsets;
+        List<Member> members = new ArrayList<>(count);
+        for (int i = 0; i < count; i++) {
+            members.add(read(offs[i]));
+        }
+        return members;
+    }
+
+    // id가 1부터 빈틈없이 이어지기 때문에 afterId가 곧 offsets 배열의 시작 위치다.
+    @Override
+    public List<Member> findPage(Long afterId, int size) {
+        int count = this.size;
+        int[] offs = offsets;
+        int from = (int) Math.min(Math.max(afterId == null ? 0L : afterId, 0L), count);
+        int to = (int) Math.min((long) from + size, count);
+
+        List<Member> members = new ArrayList<>(to - from);
+        for (int i = from; i < to; i++) {
+            members.add(read(offs[i]));
+        }
+        return members;
+    }
+
+    @Override
+    public List<Member> searchByNamePrefix(String prefix, int limit) {
+        return toMembers(searchIndex.searchPrefix(prefix, limit));
+    }
+
+    // 후보의 실제 이름은 파일에서 이름만 읽어서 확인한다. (Member 객체를 만들지 않는다)
+    @Override
+    public List<Member> searchByNameContaining(String keyword, int limit) {
+        return toMembers(searchIndex.searchContaining(keyword, limit, id -> {
+            int position = offsets[(int) (id - 1)];
+            MappedByteBuffer buf = buffer;
+            int length = buf.getInt(position + Long.BYTES);
+            return length < 0 ? null : readName(buf, position, length);
+        }));
+    }
+
+    private List<Member> toMembers(List<Long> ids) {
+        List<Member> result = new ArrayList<>(ids.size());
+        for (Long id : ids) {
+            findById(id).ifPresent(result::add);
+        }
+        return result;
+    }
+
+    // 리스트로 모으지 않고 파일 순서대로 한 건씩 디코딩한다.
+    @Override
+    public Stream<Member> streamAll() {
+        int count = size;
+        int[] offs = offsets;
+        return IntStream.range(0, count).mapToObj(i -> read(offs[i]));
+    }
+
+    // 매핑된 버퍼에서 바로 읽기 때문에 read() 시스템 콜도, 중간 버퍼 복사도 없다.
+    private Member read(int position) {
+        MappedByteBuffer buf = buffer;
+        Member member = new Member();
+        member.setId(buf.getLong(position));
+        int length = buf.getInt(position + Long.BYTES);
+        if (length >= 0) {
+            member.setName(readName(buf, position, length));
+        }
+        return member;
+    }
+
+    private static String readName(MappedByteBuffer buf, int position, int length) {
+        byte[] bytes = new byte[length];
+        buf.get(position + HEADER_SIZE, bytes);
+        return new String(bytes, StandardCharsets.UTF_8);
+    }
+
+    // 스프링 빈으로 등록하면 종료 시점에 close()가 자동으로 호출된다.
+    @Override
+    public void close() throws IOException {
+        writeLock.lock();
+        try {
+            buffer.force();
+            channel.close();
+        } finally {
+            writeLock.unlock();
+        }
+    }
+}
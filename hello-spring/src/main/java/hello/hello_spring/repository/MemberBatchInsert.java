@@ -0,0 +1,16 @@
+package hello.hello_spring.repository;
+
+import hello.hello_spring.domain.Member;
+
+import java.util.Collection;
+import java.util.List;
+
+// 스프링 데이터 JPA 리포지토리에 끼워 넣는 조각(fragment)
+// 스프링 데이터 JPA는 인터페이스이름 + Impl 클래스(MemberBatchInsertImpl)를 찾아서 이 메서드 호출을 그쪽으로 넘긴다.
+public interface MemberBatchInsert {
+
+    /**
+     * JDBC 배치로 한 번에 저장하고 회원에 id를 채운다.
+     */
+    List<Member> saveAll(Collection<Member> members);
+}
@@ -0,0 +1,25 @@
+package hello.hello_spring.repository;
+
+import hello.hello_spring.domain.Member;
+
+import javax.sql.DataSource;
+import java.util.Collection;
+import java.util.List;
+
+// Member id가 IDENTITY 전략이라서 JPA는 persist 할 때마다 insert를 바로 날리고 키를 받아와야 한다. -> insert 배치가 안 된다.
+// 일괄 저장은 JdbcTemplateMemberRepository의 배치 insert로 보낸다.
+// JpaTransactionManager가 같은 커넥션을 DataSource 쪽에도 걸어두기 때문에 JPA 트랜잭션 안에서 같이 커밋, 롤백된다.
+// 대신 저장한 회원은 영속성 컨텍스트에 올라가지 않는다. (대량 저장에서는 오히려 메모리가 덜 든다)
+public class MemberBatchInsertImpl implements MemberBatchInsert {
+
+    private final JdbcTemplateMemberRepository jdbcTemplateMemberRepository;
+
+    public MemberBatchInsertImpl(DataSource dataSource) {
+        this.jdbcTemplateMemberRepository = new JdbcTemplateMemberRepository(dataSource);
+    }
+
+    @Override
+    public List<Member> saveAll(Collection<Member> members) {
+        return jdbcTemplateMemberRepository.saveAll(members);
+    }
+}
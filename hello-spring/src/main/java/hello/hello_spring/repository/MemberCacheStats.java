@@ -0,0 +1,75 @@
+package hello.hello_spring.repository;
+
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.concurrent.atomic.LongAdder;
+
+// 회원 캐시 적중/미스/축출 카운터
+// 운영에서 캐시 크기를 정할 때 이 숫자를 보고 정한다.
+// LongAdder는 스레드마다 셀을 나눠서 더하기 때문에 요청이 몰려도 카운터끼리 경합하지 않는다.
+public class MemberCacheStats {
+
+    private final LongAdder hits = new LongAdder();
+    private final LongAdder negativeHits = new LongAdder();
+    private final LongAdder misses = new LongAdder();
+    private final LongAdder evictions = new LongAdder();
+    // 없는 이름 캐시(negative)가 꽉 차서 버린 수 -> LFU 축출(evictions)과 따로 본다.
+    private final LongAdder negativeEvictions = new LongAdder();
+
+    void recordHit() {
+        hits.increment();
+    }
+
+    void recordNegativeHit() {
+        negativeHits.increment();
+    }
+
+    void recordMiss() {
+        misses.increment();
+    }
+
+    void recordEviction() {
+        evictions.increment();
+    }
+
+    void recordNegativeEviction() {
+        negativeEvictions.increment();
+    }
+
+    public long getHitCount() {
+        return hits.sum();
+    }
+
+    public long getNegativeHitCount() {
+        return negativeHits.sum();
+    }
+
+    public long getMissCount() {
+        return misses.sum();
+    }
+
+    public long getEvictionCount() {
+        return evictions.sum();
+    }
+
+    public long getNegativeEvictionCount() {
+        return negativeEvictions.sum();
+    }
+
+    public double getHitRate() {
+        long hit = getHitCount() + getNegativeHitCount();
+        long total = hit + getMissCount();
+        return total == 0 ? 0.0 : (double) hit / total;
+    }
+
+    public Map<String, Object> toMap() {
+        Map<String, Object> map = new LinkedHashMap<>();
+        map.put("hits", getHitCount());
+        map.put("negativeHits", getNegativeHitCount());
+        map.put("misses", getMissCount());
+        map.put("evictions", getEvictionCount());
+        map.put("negativeEvictions", getNegativeEvictionCount());
+        map.put("hitRate", getHitRate());
+        return map;
+    }
+}
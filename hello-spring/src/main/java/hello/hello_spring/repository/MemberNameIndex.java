@@ -0,0 +1,178 @@
+package hello.hello_spring.repository;
+
+import java.util.*;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.ConcurrentSkipListMap;
+import java.util.concurrent.ConcurrentSkipListSet;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.function.LongFunction;
+
+// 메모리 리포지토리용 회원 이름 검색 인덱스
+// 1. 접두어 검색: 이름 순으로 정렬된 ConcurrentSkipListMap
+//    -> "kim"으로 시작하는 이름은 tailMap("kim")부터 순서대로 붙어 있어서 limit개만 읽고 멈춘다.
+// 2. 부분 문자열 검색: 1~3-gram 역색인 (1~3글자 조각 -> 그 조각을 가진 회원 id들)
+//    -> "spring"은 spr, pri, rin, ing 조각을 모두 가진 회원 중에서만 찾으면 된다.
+//    -> 가장 작은 목록 하나만 id 순으로 훑고, 나머지 목록에 있는지 확인한 다음 실제 이름으로 한 번 더 확인한다.
+//    -> 3글자 이하 검색어("김", "철수")는 검색어 자체가 조각이라서 그 목록 앞에서 limit개만 읽으면 끝난다.
+//    1, 2글자 조각까지 두면 인덱스가 3-gram만 둘 때의 세 배쯤 된다. 대신 짧은 검색어도 전체를 훑지 않는다.
+// 모두 락 없는 동시성 컬렉션이라서 save와 검색이 동시에 돌아도 된다.
+// 대소문자는 구분한다. (DB 쪽 like 검색과 결과를 맞추기 위해서)
+public class MemberNameIndex {
+
+    private static final int GRAM_LENGTH = 3;
+    private static final int MIN_GRAM_LENGTH = 1;
+
+    private final ConcurrentSkipListMap<String, Long> byName = new ConcurrentSkipListMap<>();
+    private final ConcurrentMap<String, Posting> grams = new ConcurrentHashMap<>();
+
+    // id 목록 + 크기
+    // ConcurrentSkipListSet.size()는 전체를 세기 때문에 크기는 따로 센다.
+    private static final class Posting {
+        final ConcurrentSkipListSet<Long> ids = new ConcurrentSkipListSet<>();
+        final LongAdder size = new LongAdder();
+
+        void add(Long id) {
+            if (ids.add(id)) {
+                size.increment();
+            }
+        }
+
+        void remove(Long id) {
+            if (ids.remove(id)) {
+                size.decrement();
+            }
+        }
+    }
+
+    public void add(Long id, String name) {
+        if (name == null) {
+            return;
+        }
+        byName.put(name, id);
+        for (String gram : allGramsOf(name)) {
+            grams.computeIfAbsent(gram, key -> new Posting()).add(id);
+        }
+    }
+
+    // 저장을 되돌릴 때 (로그 쓰기 실패, DB에서 거절된 회원)
+    public void remove(Long id, String name) {
+        if (name == null) {
+            return;
+        }
+        byName.remove(name, id);
+        for (String gram : allGramsOf(name)) {
+            Posting posting = grams.get(gram);
+            if (posting != null) {
+                posting.remove(id);
+            }
+        }
+    }
+
+    public void clear() {
+        byName.clear();
+        grams.clear();
+    }
+
+    /**
+     * prefix로 시작하는 이름의 id를 이름 순으로 최대 limit개
+     */
+    public List<Long> searchPrefix(String prefix, int limit) {
+        List<Long> result = new ArrayList<>(Math.min(limit, 16));
+        for (Map.Entry<String, Long> entry : byName.tailMap(prefix, true).entrySet()) {
+            if (result.size() == limit || !entry.getKey().startsWith(prefix)) {
+                break;
+            }
+            result.add(entry.getValue());
+        }
+        return result;
+    }
+
+    /**
+     * keyword가 들어간 이름의 id를 최대 limit개
+     * id 순 (빈 검색어만 이름 순)
+     * nameOf는 후보의 실제 이름을 꺼내는 함수 (3-gram이 다 맞아도 순서가 다를 수 있다)
+     */
+    public List<Long> searchContaining(String keyword, int limit, LongFunction<String> nameOf) {
+        List<Long> result = new ArrayList<>(Math.min(limit, 16));
+        if (keyword.isEmpty()) {
+            // 모든 이름이 맞는다. 앞에서 limit개만 읽는다.
+            for (Long id : byName.values()) {
+                if (result.size() == limit) {
+                    break;
+                }
+                result.add(id);
+            }
+            return result;
+        }
+        if (keyword.length() <= GRAM_LENGTH) {
+            // 검색어 자체가 조각 -> 목록에 있는 id는 전부 맞다. (지워지는 중인 회원만 걸러낸다)
+            Posting posting = grams.get(keyword);
+            if (posting == null) {
+                return result;
+            }
+            for (Long id : posting.ids) {
+                if (result.size() == limit) {
+                    break;
+                }
+                if (nameOf.apply(id) != null) {
+                    result.add(id);
+                }
+            }
+            return result;
+        }
+
+        List<Posting> postings = new ArrayList<>();
+        for (String gram : gramsOf(keyword)) {
+            Posting posting = grams.get(gram);
+            if (posting == null) {
+                return result;  // 이 조각을 가진 이름이 하나도 없다.
+            }
+            postings.add(posting);
+        }
+        postings.sort(Comparator.comparingLong(posting -> posting.size.sum()));
+
+        Posting smallest = postings.get(0);
+        for (Long id : smallest.ids) {
+            if (result.size() == limit) {
+                break;
+            }
+            if (containsAll(postings, id)) {
+                String name = nameOf.apply(id);
+                if (name != null && name.contains(keyword)) {
+                    result.add(id);
+                }
+            }
+        }
+        return result;
+    }
+
+    private static boolean containsAll(List<Posting> postings, Long id) {
+        for (int i = 1; i < postings.size(); i++) {
+            if (!postings.get(i).ids.contains(id)) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    // 인덱스에 넣는 조각: 1~3글자 전부
+    private static Set<String> allGramsOf(String text) {
+        Set<String> result = new HashSet<>();
+        for (int length = MIN_GRAM_LENGTH; length <= GRAM_LENGTH; length++) {
+            for (int i = 0; i + length <= text.length(); i++) {
+                result.add(text.substring(i, i + length));
+            }
+        }
+        return result;
+    }
+
+    // 긴 검색어를 쪼갤 때는 가장 좁게 걸러주는 3글자 조각만 쓴다.
+    private static Set<String> gramsOf(String text) {
+        Set<String> result = new HashSet<>();
+        for (int i = 0; i + GRAM_LENGTH <= text.length(); i++) {
+            result.add(text.substring(i, i + GRAM_LENGTH));
+        }
+        return result;
+    }
+}
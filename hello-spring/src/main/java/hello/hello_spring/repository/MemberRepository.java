@@ -2,12 +2,38 @@ package hello.hello_spring.repository;
 
 import hello.hello_spring.domain.Member;
 
+import java.util.Collection;
 import java.util.List;
 import java.util.Optional;
+import java.util.stream.Stream;
 
 public interface MemberRepository {
     Member save(Member member);
+    List<Member> saveAll(Collection<Member> members);
     Optional<Member> findById(Long id);
     Optional<Member> findByName(String name);
+    List<Member> findByNameIn(Collection<String> names);
     List<Member> findAll();
+
+    /**
+     * id가 afterId보다 큰 회원을 id 순으로 size개 조회한다. (keyset 페이징)
+     * afterId가 null이면 처음부터 조회한다.
+     */
+    List<Member> findPage(Long afterId, int size);
+
+    /**
+     * 이름이 prefix로 시작하는 회원을 이름 순으로 최대 limit명 조회한다. (자동완성)
+     */
+    List<Member> searchByNamePrefix(String prefix, int limit);
+
+    /**
+     * 이름에 keyword가 들어간 회원을 최대 limit명 조회한다.
+     */
+    List<Member> searchByNameContaining(String keyword, int limit);
+
+    /**
+     * 전체 회원을 한 건씩 흘려보낸다.
+     * 커넥션/커서를 잡고 있기 때문에 다 쓰면 반드시 close 해야 한다. (try-with-resources)
+     */
+    Stream<Member> streamAll();
 }
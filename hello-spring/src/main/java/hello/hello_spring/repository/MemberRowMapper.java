@@ -0,0 +1,39 @@
+package hello.hello_spring.repository;
+
+import hello.hello_spring.domain.Member;
+import org.springframework.jdbc.core.RowMapper;
+
+import java.sql.ResultSet;
+import java.sql.SQLException;
+
+// JDBC 리포지토리들이 같이 쓰는 회원 RowMapper
+// rs.getLong("id") 처럼 이름으로 꺼내면 드라이버가 행마다 컬럼 이름 -> 번호를 찾는다. (대소문자 무시 비교 + 맵 조회)
+// select * 는 컬럼 순서가 테이블 정의에 달려 있어서 번호로 꺼낼 수가 없다.
+// -> 조회 컬럼을 SELECT에 고정해 두고 그 순서대로 번호로 꺼낸다. 번호는 문장마다가 아니라 여기서 한 번 정해진다.
+// 상태가 없어서 INSTANCE 하나를 모든 쿼리, 모든 스레드가 같이 쓴다.
+public final class MemberRowMapper implements RowMapper<Member> {
+
+    public static final String COLUMNS = "id, name";
+    public static final String SELECT = "select " + COLUMNS + " from member";
+
+    // COLUMNS 순서와 맞아야 한다.
+    private static final int ID = 1;
+    private static final int NAME = 2;
+
+    public static final MemberRowMapper INSTANCE = new MemberRowMapper();
+
+    private MemberRowMapper() {
+    }
+
+    @Override
+    public Member mapRow(ResultSet rs, int rowNum) throws SQLException {
+        return map(rs);
+    }
+
+    public static Member map(ResultSet rs) throws SQLException {
+        Member member = new Member();
+        member.setId(rs.getLong(ID));
+        member.setName(rs.getString(NAME));
+        return member;
+    }
+}
@@ -0,0 +1,245 @@
+package hello.hello_spring.repository;
+
+import hello.hello_spring.domain.Member;
+
+import java.io.Closeable;
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.concurrent.locks.ReentrantLock;
+import java.util.function.Consumer;
+import java.util.zip.CRC32C;
+
+// 회원 저장 기록을 파일 끝에 순서대로 붙이는 로그 (write-ahead log)
+// 레코드 형식: [id: long][이름 길이: int, null이면 -1][이름: UTF-8 바이트][CRC32C: int]
+// -> 쓰다가 죽어서 반쯤 쓴 레코드는 CRC가 안 맞기 때문에 다시 읽을 때 거기서 잘라낸다.
+//
+// fsync는 그룹 커밋으로 한다.
+// append는 파일에 쓰기만 하고(페이지 캐시), sync에서 force로 디스크까지 내린다.
+// 한 스레드가 force 하는 동안 뒤에 줄 선 스레드들의 레코드도 이미 파일에 써져 있기 때문에
+// 앞 스레드의 force가 끝나면 뒤 스레드들은 대부분 force 없이 바로 돌아간다.
+// -> 동시에 가입이 몰릴수록 회원 한 명당 fsync 횟수가 줄어든다.
+public class MemberWriteAheadLog implements Closeable {
+
+    private static final int HEADER_SIZE = Long.BYTES + Integer.BYTES;
+    private static final int REPLAY_BUFFER_SIZE = 1 << 20;
+
+    private final FileChannel channel;
+
+    // 쓰기 락: 레코드 순서와 파일 위치를 지킨다.
+    private final ReentrantLock appendLock = new ReentrantLock();
+    // fsync 락: force는 한 번에 한 스레드만 한다.
+    private final ReentrantLock syncLock = new ReentrantLock();
+
+    private volatile long position;
+    private volatile long appendedSequence;
+    private volatile long durableSequence;
+
+    public MemberWriteAheadLog(Path file) {
+        try {
+            if (file.getParent() != null) {
+                Files.createDirectories(file.getParent());
+            }
+            channel = FileChannel.open(file,
+                    StandardOpenOption.CREATE, StandardOpenOption.READ, StandardOpenOption.WRITE);
+            position = channel.size();
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+    }
+
+    /**
+     * 로그를 처음부터 읽어서 레코드마다 action을 호출한다.
+     * 깨진 레코드가 나오면 거기서부터 잘라내고 이후 append는 그 자리부터 쓴다.
+     */
+    public void replay(Consumer<Member> action) {
+        appendLock.lock();
+        try {
+            long size = channel.size();
+            ReplayReader reader = new ReplayReader(channel);
+            long offset = 0;
+
+            while (reader.ensure(HEADER_SIZE + Integer.BYTES)) {
+                ByteBuffer buffer = reader.buffer;
+                long id = buffer.getLong(buffer.position());
+                int length = buffer.getInt(buffer.position() + Long.BYTES);
+                long recordSize = HEADER_SIZE + Math.max(length, 0) + Integer.BYTES;
+                if (id <= 0 || length < -1 || offset + recordSize > size || !reader.ensure((int) recordSize)) {
+                    break;
+                }
+
+                // ensure가 버퍼를 당겨왔을 수 있어서 위치를 다시 읽는다.
+                buffer = reader.buffer;
+                int start = buffer.position();
+                int checksumAt = start + HEADER_SIZE + Math.max(length, 0);
+                // 헤더와 이름이 붙어 있기 때문에 한 번에 계산해도 append 때의 CRC와 같다.
+                CRC32C crc = new CRC32C();
+                crc.update(buffer.array(), start, checksumAt - start);
+                if (buffer.getInt(checksumAt) != (int) crc.getValue()) {
+                    break;
+                }
+
+                Member member = new Member();
+                member.setId(id);
+                member.setName(length < 0 ? null : new String(buffer.array(), start + HEADER_SIZE, length, StandardCharsets.UTF_8));
+                action.accept(member);
+                buffer.position(checksumAt + Integer.BYTES);
+                offset += recordSize;
+            }
+
+            if (offset < size) {
+                channel.truncate(offset);
+                channel.force(false);
+            }
+            position = offset;
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        } finally {
+            appendLock.unlock();
+        }
+    }
+
+    // 레코드마다 read를 세 번씩 부르면 수백만 건 재생이 시스템 콜에 묻힌다.
+    // -> 1MB씩 읽어두고 버퍼에서 잘라 쓴다. 버퍼보다 큰 레코드가 나오면 버퍼를 키운다.
+    private static final class ReplayReader {
+        private final FileChannel channel;
+        private ByteBuffer buffer = ByteBuffer.allocate(REPLAY_BUFFER_SIZE).flip();
+        private long readPosition;
+
+        ReplayReader(FileChannel channel) {
+            this.channel = channel;
+        }
+
+        // 버퍼에 needed 바이트 이상 남아 있게 한다. 파일 끝이라 못 채우면 false
+        boolean ensure(int needed) throws IOException {
+            if (buffer.remaining() >= needed) {
+                return true;
+            }
+            if (needed > buffer.capacity()) {
+                buffer = ByteBuffer.allocate(Math.max(needed, buffer.capacity() * 2)).put(buffer).flip();
+            }
+            buffer.compact();
+            while (buffer.hasRemaining()) {
+                int read = channel.read(buffer, readPosition);
+                if (read < 0) {
+                    break;
+                }
+                readPosition += read;
+            }
+            buffer.flip();
+            return buffer.remaining() >= needed;
+        }
+    }
+
+    /**
+     * 레코드를 붙이고 순번을 돌려준다.
+     * 아직 디스크까지 내려간 것은 아니다. -> sync(순번)
+     */
+    public long append(Member member) {
+        byte[] name = member.getName() == null ? null : member.getName().getBytes(StandardCharsets.UTF_8);
+        ByteBuffer record = ByteBuffer.allocate(HEADER_SIZE + (name == null ? 0 : name.length) + Integer.BYTES);
+        record.putLong(member.getId());
+        record.putInt(name == null ? -1 : name.length);
+        if (name != null) {
+            record.put(name);
+        }
+        record.putInt(crc(record.array(), name));
+        record.flip();
+
+        appendLock.lock();
+        long start = position;
+        try {
+            while (record.hasRemaining()) {
+                position += channel.write(record, position);
+            }
+            appendedSequence = appendedSequence + 1;
+            return appendedSequence;
+        } catch (IOException e) {
+            // 반쯤 쓴 레코드를 남기면 뒤에 붙는 레코드까지 재생할 때 잘려나간다. -> 쓰기 전 위치로 되돌린다.
+            position = start;
+            try {
+                channel.truncate(start);
+            } catch (IOException truncateFailure) {
+                e.addSuppressed(truncateFailure);
+            }
+            throw new UncheckedIOException(e);
+        } finally {
+            appendLock.unlock();
+        }
+    }
+
+    /**
+     * sequence 번 레코드까지 디스크에 내려간 것을 보장한다. (그룹 커밋)
+     */
+    public void sync(long sequence) {
+        if (durableSequence >= sequence) {
+            return;
+        }
+        syncLock.lock();
+        try {
+            // 기다리는 동안 앞 스레드의 force가 내 레코드까지 내려줬을 수 있다.
+            if (durableSequence >= sequence) {
+                return;
+            }
+            // force 전에 읽어둔 순번까지는 이번 force로 확실히 내려간다.
+            long target = appendedSequence;
+            channel.force(false);
+            durableSequence = target;
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        } finally {
+            syncLock.unlock();
+        }
+    }
+
+    /**
+     * 로그를 비운다. 모든 레코드가 다른 곳(DB, 스냅샷)에 안전하게 옮겨진 뒤에만 호출해야 한다.
+     */
+    public void reset() {
+        appendLock.lock();
+        try {
+            channel.truncate(0);
+            channel.force(false);
+            position = 0;
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        } finally {
+            appendLock.unlock();
+        }
+    }
+
+    public long sizeInBytes() {
+        return position;
+    }
+
+    private static int crc(byte[] record, byte[] name) {
+        CRC32C crc = new CRC32C();
+        crc.update(record, 0, HEADER_SIZE);
+        if (name != null) {
+            crc.update(name);
+        }
+        return (int) crc.getValue();
+    }
+
+    // 닫기 전에 force 하기 때문에 닫힌 뒤에 sync를 불러도 바로 돌아간다. (세그먼트 교체 중인 쓰기 스레드)
+    @Override
+    public void close() throws IOException {
+        syncLock.lock();
+        appendLock.lock();
+        try {
+            if (channel.isOpen()) {
+                channel.force(false);
+                durableSequence = appendedSequence;
+                channel.close();
+            }
+        } finally {
+            appendLock.unlock();
+            syncLock.unlock();
+        }
+    }
+}
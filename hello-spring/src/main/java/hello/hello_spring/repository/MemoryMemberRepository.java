@@ -1,22 +1,58 @@
 package hello.hello_spring.repository;
 
 import hello.hello_spring.domain.Member;
+import org.springframework.dao.DuplicateKeyException;
 import org.springframework.stereotype.Repository;
 
 import java.util.*;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.ConcurrentNavigableMap;
+import java.util.concurrent.ConcurrentSkipListMap;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.stream.Stream;
 
 public class MemoryMemberRepository implements MemberRepository {
 
-    private static Map<Long, Member> store = new HashMap<>();
-    private static long sequence = 0L;
+    // 톰캣 워커 스레드들이 동시에 save를 호출한다.
+    // HashMap + long sequence는 동시성 문제가 있다. -> 엔트리 유실, id 중복 발급
+    // ConcurrentSkipListMap은 락 없이(CAS) 동시에 쓸 수 있고 id 순으로 정렬되어 있다.
+    // -> keyset 페이징을 할 때 tailMap으로 바로 그 위치부터 읽을 수 있다.
+    // AtomicLong은 CAS로 id를 발급해서 락 없이도 중복이 생기지 않는다.
+    private static final ConcurrentNavigableMap<Long, Member> store = new ConcurrentSkipListMap<>();
+    private static final AtomicLong sequence = new AtomicLong();
+
+    // 이름 -> id 보조 인덱스
+    // findByName을 전체 스캔 대신 O(1)로 찾는다.
+    // DB의 name unique 제약 역할도 한다.
+    private static final ConcurrentMap<String, Long> nameIndex = new ConcurrentHashMap<>();
+
+    // 접두어 / 부분 문자열 검색용 인덱스
+    private static final MemberNameIndex searchIndex = new MemberNameIndex();
 
     @Override
     public Member save(Member member) {
-        member.setId(++sequence);
-        store.put(member.getId(), member);
+        Long id = sequence.incrementAndGet();
+        // 이름 자리를 먼저 잡는다.
+        // putIfAbsent는 원자적이라서 같은 이름으로 동시에 들어와도 한 스레드만 성공한다.
+        if (member.getName() != null && nameIndex.putIfAbsent(member.getName(), id) != null) {
+            throw new DuplicateKeyException("중복된 회원 이름: " + member.getName());
+        }
+        member.setId(id);
+        store.put(id, member);
+        searchIndex.add(id, member.getName());
         return member;
     }
 
+    @Override
+    public List<Member> saveAll(Collection<Member> members) {
+        List<Member> result = new ArrayList<>(members.size());
+        for (Member member : members) {
+            result.add(save(member));
+        }
+        return result;
+    }
+
     @Override
     public Optional<Member> findById(Long id) {
         return Optional.ofNullable(store.get(id));
@@ -24,9 +60,20 @@ public class MemoryMemberRepository implements MemberRepository {
 
     @Override
     public Optional<Member> findByName(String name) {
-        return store.values().stream()
-                .filter(member -> member.getName().equals(name))
-                .findAny();
+        if (name == null) {
+            return Optional.empty();
+        }
+        Long id = nameIndex.get(name);
+        return id == null ? Optional.empty() : Optional.ofNullable(store.get(id));
+    }
+
+    @Override
+    public List<Member> findByNameIn(Collection<String> names) {
+        List<Member> result = new ArrayList<>();
+        for (String name : names) {
+            findByName(name).ifPresent(result::add);
+        }
+        return result;
     }
 
     @Override
@@ -34,7 +81,50 @@ public class MemoryMemberRepository implements MemberRepository {
         return new ArrayList<>(store.values());
     }
 
+    @Override
+    public List<Member> findPage(Long afterId, int size) {
+        List<Member> result = new ArrayList<>(size);
+        for (Member member : store.tailMap(afterId == null ? 0L : afterId, false).values()) {
+            if (result.size() == size) {
+                break;
+            }
+            result.add(member);
+        }
+        return result;
+    }
+
+    @Override
+    public List<Member> searchByNamePrefix(String prefix, int limit) {
+        return toMembers(searchIndex.searchPrefix(prefix, limit));
+    }
+
+    @Override
+    public List<Member> searchByNameContaining(String keyword, int limit) {
+        return toMembers(searchIndex.searchContaining(keyword, limit, id -> {
+            Member member = store.get(id);
+            return member == null ? null : member.getName();
+        }));
+    }
+
+    private List<Member> toMembers(List<Long> ids) {
+        List<Member> result = new ArrayList<>(ids.size());
+        for (Long id : ids) {
+            Member member = store.get(id);
+            if (member != null) {
+                result.add(member);
+            }
+        }
+        return result;
+    }
+
+    @Override
+    public Stream<Member> streamAll() {
+        return store.values().stream();
+    }
+
     public void clearStore() {
         store.clear();
+        nameIndex.clear();
+        searchIndex.clear();
     }
 }
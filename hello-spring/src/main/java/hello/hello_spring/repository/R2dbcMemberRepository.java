@@ -0,0 +1,88 @@
+package hello.hello_spring.repository;
+
+import hello.hello_spring.domain.Member;
+import io.r2dbc.spi.Closeable;
+import io.r2dbc.spi.ConnectionFactory;
+import io.r2dbc.spi.Readable;
+import org.springframework.r2dbc.core.DatabaseClient;
+import reactor.core.publisher.Flux;
+import reactor.core.publisher.Mono;
+
+// R2DBC로 H2에 붙는 ReactiveMemberRepository
+// DatabaseClient는 JdbcTemplate의 리액티브 버전이라고 보면 된다.
+// -> 커넥션 획득/반납, 예외 변환(R2dbcException -> DataAccessException)을 알아서 해준다.
+// 스프링 데이터 R2DBC(엔티티 매핑)까지는 쓰지 않는다. Member가 JPA 엔티티라서 매핑이 두 벌이 된다.
+public class R2dbcMemberRepository implements ReactiveMemberRepository {
+
+    private final ConnectionFactory connectionFactory;
+    private final DatabaseClient client;
+
+    public R2dbcMemberRepository(ConnectionFactory connectionFactory) {
+        this.connectionFactory = connectionFactory;
+        this.client = DatabaseClient.create(connectionFactory);
+    }
+
+    @Override
+    public Mono<Member> save(Member member) {
+        DatabaseClient.GenericExecuteSpec spec = client.sql("insert into member(name) values (:name)");
+        spec = member.getName() == null ? spec.bindNull("name", String.class) : spec.bind("name", member.getName());
+
+        return spec.filter(statement -> statement.returnGeneratedValues("id"))
+                .map(row -> row.get("id", Long.class))
+                .one()
+                .map(id -> {
+                    member.setId(id);
+                    return member;
+                });
+    }
+
+    @Override
+    public Mono<Member> findById(Long id) {
+        return client.sql("select id, name from member where id = :id")
+                .bind("id", id)
+                .map(R2dbcMemberRepository::toMember)
+                .one();
+    }
+
+    @Override
+    public Mono<Member> findByName(String name) {
+        if (name == null) {
+            return Mono.empty();
+        }
+        return client.sql("select id, name from member where name = :name")
+                .bind("name", name)
+                .map(R2dbcMemberRepository::toMember)
+                .one();
+    }
+
+    @Override
+    public Flux<Member> findAll() {
+        return client.sql("select id, name from member")
+                .map(R2dbcMemberRepository::toMember)
+                .all();
+    }
+
+    @Override
+    public Flux<Member> findPage(Long afterId, int size) {
+        return client.sql("select id, name from member where id > :afterId order by id limit :size")
+                .bind("afterId", afterId == null ? 0L : afterId)
+                .bind("size", size)
+                .map(R2dbcMemberRepository::toMember)
+                .all();
+    }
+
+    private static Member toMember(Readable row) {
+        Member member = new Member();
+        member.setId(row.get(0, Long.class));
+        member.setName(row.get(1, String.class));
+        return member;
+    }
+
+    // 커넥션 풀(r2dbc-pool)을 쓰면 종료할 때 풀을 닫아야 한다.
+    // @Bean으로 등록하면 close()가 자동으로 호출된다.
+    public void close() {
+        if (connectionFactory instanceof Closeable closeable) {
+            Mono.from(closeable.close()).block();
+        }
+    }
+}
@@ -0,0 +1,20 @@
+package hello.hello_spring.repository;
+
+import hello.hello_spring.domain.Member;
+import reactor.core.publisher.Flux;
+import reactor.core.publisher.Mono;
+
+// MemberRepository의 논블로킹 버전
+// 결과를 기다리면서 스레드를 붙잡지 않고 Mono(0..1건) / Flux(0..N건)로 돌려준다.
+public interface ReactiveMemberRepository {
+    Mono<Member> save(Member member);
+    Mono<Member> findById(Long id);
+    Mono<Member> findByName(String name);
+    Flux<Member> findAll();
+
+    /**
+     * keyset 페이징: afterId보다 큰 id를 id 순으로 size건
+     * afterId가 null이면 처음부터
+     */
+    Flux<Member> findPage(Long afterId, int size);
+}
@@ -1,9 +1,16 @@
 package hello.hello_spring.repository;
 
 import hello.hello_spring.domain.Member;
+import jakarta.persistence.QueryHint;
+import org.springframework.data.domain.Limit;
 import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.jpa.repository.QueryHints;
 
+import java.util.Collection;
+import java.util.List;
 import java.util.Optional;
+import java.util.stream.Stream;
 
 // 참고로 interface일 때는 implements가 아니다.
 // interface가 interface를 받을 때는 extends 라고 한다.
@@ -11,7 +18,8 @@ import java.util.Optional;
 // interface만 있으면 스프링 데이터 JPA가 JPA 리포지토리를 받고 있으면 구현체를 자동으로 만들어준다.
 // -> 스프링 빈에 자동으로 등록한다.
 // -> 우리는 그걸 가져다 쓰면 된다!
-public interface SpringDataJpaMemberRepository extends JpaRepository<Member, Long>, MemberRepository {
+// MemberBatchInsert: 일괄 저장(saveAll)은 JDBC 배치로 한다. (MemberBatchInsertImpl)
+public interface SpringDataJpaMemberRepository extends JpaRepository<Member, Long>, MemberRepository, MemberBatchInsert {
 
     // 메소드 인터페이스가 공통화 하는 것이 불가능하다.
     // findByName -> JPQL: select m from Member m where m.name = ?
@@ -20,4 +28,45 @@ public interface SpringDataJpaMemberRepository extends JpaRepository<Member, Lon
     // 메서드 네임, 반환 타입, 파라미터 이런 것들을 다 리플렉션 기술로 다 읽어들어서 풀어내는 것!
     @Override
     Optional<Member> findByName(String name);
+
+    // in 절도 메서드 이름만으로 만들어진다.
+    // -> select m from Member m where m.name in ?1
+    @Override
+    List<Member> findByNameIn(Collection<String> names);
+
+    // saveAll(Collection)은 MemberBatchInsertImpl이 JDBC 배치로 저장한다.
+
+    // Stream 반환 타입이면 스프링 데이터 JPA가 커서로 읽어준다.
+    // 트랜잭션 안에서만 호출할 수 있다.
+    @Override
+    @Query("select m from Member m")
+    @QueryHints({
+            @QueryHint(name = "org.hibernate.fetchSize", value = "500"),
+            @QueryHint(name = "org.hibernate.readOnly", value = "true")
+    })
+    Stream<Member> streamAll();
+
+    // -> select m from Member m where m.id > ?1 order by m.id asc limit ?2
+    List<Member> findByIdGreaterThanOrderByIdAsc(Long id, Limit limit);
+
+    @Override
+    default List<Member> findPage(Long afterId, int size) {
+        return findByIdGreaterThanOrderByIdAsc(afterId == null ? 0L : afterId, Limit.of(size));
+    }
+
+    // StartingWith / Containing은 스프링 데이터 JPA가 %, _ 이스케이프까지 해준다.
+    // -> select m from Member m where m.name like ?1 escape '\' order by m.name asc limit ?2
+    List<Member> findByNameStartingWithOrderByNameAsc(String prefix, Limit limit);
+
+    List<Member> findByNameContainingOrderByIdAsc(String keyword, Limit limit);
+
+    @Override
+    default List<Member> searchByNamePrefix(String prefix, int limit) {
+        return findByNameStartingWithOrderByNameAsc(prefix, Limit.of(limit));
+    }
+
+    @Override
+    default List<Member> searchByNameContaining(String keyword, int limit) {
+        return findByNameContainingOrderByIdAsc(keyword, Limit.of(limit));
+    }
 }
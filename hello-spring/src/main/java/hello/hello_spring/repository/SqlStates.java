@@ -0,0 +1,23 @@
+package hello.hello_spring.repository;
+
+import java.sql.SQLException;
+
+// SQLState 판별 유틸
+class SqlStates {
+
+    // 표준 SQLState: 23505 = unique 제약 위반 (H2, PostgreSQL 등)
+    private static final String UNIQUE_VIOLATION = "23505";
+
+    private SqlStates() {
+    }
+
+    // 예외를 몇 겹으로 감싸도 원인을 끝까지 따라가서 unique 위반인지 본다.
+    static boolean isUniqueViolation(Throwable e) {
+        for (Throwable t = e; t != null; t = t.getCause()) {
+            if (t instanceof SQLException && UNIQUE_VIOLATION.equals(((SQLException) t).getSQLState())) {
+                return true;
+            }
+        }
+        return false;
+    }
+}
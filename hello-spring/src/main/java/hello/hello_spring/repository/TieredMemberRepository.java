@@ -0,0 +1,461 @@
+package hello.hello_spring.repository;
+
+import hello.hello_spring.domain.Member;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.dao.DataIntegrityViolationException;
+import org.springframework.dao.DuplicateKeyException;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import javax.sql.DataSource;
+import java.io.Closeable;
+import java.io.IOException;
+import java.nio.file.Path;
+import java.util.*;
+import java.util.concurrent.*;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.concurrent.locks.ReentrantLock;
+import java.util.stream.Stream;
+
+// 메모리(hot tier) + DB 2단 리포지토리
+// 읽기: 시작할 때 DB에서 전부 올려둔 메모리에서만 읽는다. (MemoryMemberRepository와 같은 구조)
+// 쓰기: 로컬 로그(MemberWriteAheadLog)에 붙이고 fsync까지 끝나면 바로 응답한다.
+//      DB에는 백그라운드 스레드가 큐에서 모아서 배치 insert로 넣는다. (write-behind)
+// -> 가입이 몰려도 회원 한 명당 DB 왕복을 기다리지 않는다.
+//
+// 주의
+// -> id는 여기서 발급해서 DB에 그대로 넣는다. 이 모드에서는 다른 경로로 member 테이블에 insert 하면 안 된다.
+//    시작할 때와 종료할 때 DB identity를 다음 id로 당겨 두기 때문에 다른 모드로 바꿔 띄워도 id가 부딪히지 않는다.
+//    배치마다 당기지 않는 이유: max(id) 집계 + DDL(테이블 락, 암묵적 커밋)이 write-behind 경로를 DB에 묶어버린다.
+//    종료 없이 죽었으면 다른 모드로 띄우기 전에 이 모드로 한 번 띄웠다 내려야 identity가 따라온다.
+// -> 저장은 서비스 트랜잭션과 무관하게 로그에 남는 순간 확정된다. (롤백되지 않는다)
+// -> 큐는 크기가 정해져 있다. 꽉 차면 쓰기가 최대 enqueueTimeout 만큼 기다렸다가 실패한다. (backpressure)
+//    자리는 writeLock 밖에서 기다린다. -> 큐가 꽉 차도 다른 스레드의 중복 검사, 로그 정리가 락에서 같이 묶이지 않는다.
+// -> DB 제약에 걸린 회원(다른 경로로 들어온 같은 이름 등)은 몇 번을 다시 해도 안 들어간다.
+//    그런 회원은 한 건씩 넣어 보고 걸리는 것만 빼서 로그에 남기고 메모리에서도 지운다. (rejected)
+public class TieredMemberRepository implements MemberRepository, Closeable {
+
+    private static final Logger log = LoggerFactory.getLogger(TieredMemberRepository.class);
+
+    private static final int BATCH_SIZE = 500;
+    private static final long FLUSH_INTERVAL_MILLIS = 50;
+    private static final long MAX_RETRY_DELAY_MILLIS = 5_000;
+
+    private final ConcurrentNavigableMap<Long, Member> store = new ConcurrentSkipListMap<>();
+    private final ConcurrentMap<String, Long> nameIndex = new ConcurrentHashMap<>();
+    private final AtomicLong sequence = new AtomicLong();
+    private final MemberNameIndex searchIndex = new MemberNameIndex();
+
+    private final MemberWriteAheadLog writeAheadLog;
+    private final JdbcTemplate jdbcTemplate;
+    private final TransactionTemplate transactionTemplate;
+
+    // 아직 DB에 안 들어간 회원
+    private final BlockingQueue<PendingMember> queue;
+    // 큐 자리 (DB에 다 들어가야 돌려준다) -> 큐에 넣는 시점에는 자리가 이미 있어서 기다리지 않는다.
+    private final Semaphore queueSlots;
+    private final int queueCapacity;
+    private final long enqueueTimeoutMillis;
+    // id 발급 -> 로그 -> 큐 순서를 하나로 묶는다. (로그 순서 == 큐 순서 == id 순서)
+    private final ReentrantLock writeLock = new ReentrantLock();
+
+    private final Thread flusher;
+    private volatile boolean running = true;
+
+    private final LongAdder flushedCount = new LongAdder();
+    private final LongAdder flushFailures = new LongAdder();
+    // DB 제약에 걸려 버린 회원 id
+    private final Set<Long> rejectedIds = ConcurrentHashMap.newKeySet();
+    private volatile long lastFlushMillis;
+
+    private record PendingMember(long id, String name, long enqueuedNanos) {
+    }
+
+    public TieredMemberRepository(MemberRepository database, DataSource dataSource,
+                                  PlatformTransactionManager transactionManager,
+                                  Path logFile, int queueCapacity, long enqueueTimeoutMillis) {
+        this.jdbcTemplate = new JdbcTemplate(dataSource);
+        this.transactionTemplate = new TransactionTemplate(transactionManager);
+        this.queueCapacity = queueCapacity;
+        this.enqueueTimeoutMillis = enqueueTimeoutMillis;
+        this.queue = new ArrayBlockingQueue<>(queueCapacity);
+        this.queueSlots = new Semaphore(queueCapacity);
+
+        // 1. DB에 있는 회원을 전부 메모리로 올린다.
+        TransactionTemplate readOnly = new TransactionTemplate(transactionManager);
+        readOnly.setReadOnly(true);
+        readOnly.executeWithoutResult(status -> {
+            try (Stream<Member> members = database.streamAll()) {
+                members.forEach(member -> put(member.getId(), member.getName()));
+            }
+        });
+
+        // 2. 로그에는 있는데 DB에는 아직 없는 회원 (DB에 넣기 전에 죽은 경우)을 다시 큐에 넣는다.
+        writeAheadLog = new MemberWriteAheadLog(logFile);
+        List<PendingMember> recovered = new ArrayList<>();
+        writeAheadLog.replay(member -> {
+            if (!store.containsKey(member.getId())) {
+                put(member.getId(), member.getName());
+                recovered.add(new PendingMember(member.getId(), member.getName(), System.nanoTime()));
+            }
+        });
+        if (recovered.isEmpty()) {
+            writeAheadLog.reset();
+        } else {
+            log.info("write-ahead log에서 DB에 없는 회원 {}명을 복구합니다.", recovered.size());
+            // 큐보다 많이 남아 있으면 시작할 때 바로 넣어버린다.
+            for (int from = 0; from < recovered.size(); from += BATCH_SIZE) {
+                insertOrReject(recovered.subList(from, Math.min(from + BATCH_SIZE, recovered.size())));
+            }
+            writeAheadLog.reset();
+        }
+        restartIdentity();
+
+        flusher = new Thread(this::flushLoop, "member-write-behind");
+        flusher.setDaemon(true);
+        flusher.start();
+    }
+
+    private void put(Long id, String name) {
+        Member member = new Member();
+        member.setId(id);
+        member.setName(name);
+        store.put(id, member);
+        if (name != null) {
+            nameIndex.putIfAbsent(name, id);
+        }
+        searchIndex.add(id, name);
+        sequence.accumulateAndGet(id, Math::max);
+    }
+
+    @Override
+    public Member save(Member member) {
+        acquireQueueSlot();
+        long logSequence;
+        writeLock.lock();
+        try {
+            logSequence = append(member);
+        } catch (RuntimeException e) {
+            queueSlots.release();
+            throw e;
+        } finally {
+            writeLock.unlock();
+        }
+        // fsync는 락 밖에서 한다. -> 여러 스레드의 저장이 fsync 한 번으로 묶인다.
+        // fsync가 실패해도 이미 큐에 있어서 DB에는 들어간다. -> 메모리도 맞춰 두고 호출한 쪽에는 예외를 던진다. (at-least-once)
+        try {
+            writeAheadLog.sync(logSequence);
+        } finally {
+            publish(member);
+        }
+        return member;
+    }
+
+    @Override
+    public List<Member> saveAll(Collection<Member> members) {
+        List<Member> appended = new ArrayList<>(members.size());
+        long logSequence = 0;
+        try {
+            for (Member member : members) {
+                acquireQueueSlot();
+                writeLock.lock();
+                try {
+                    logSequence = append(member);
+                } catch (RuntimeException e) {
+                    queueSlots.release();
+                    throw e;
+                } finally {
+                    writeLock.unlock();
+                }
+                appended.add(member);
+            }
+        } finally {
+            // 중간에 중복으로 실패해도 이미 로그와 큐에 들어간 회원은 저장된 것이다.
+            if (!appended.isEmpty()) {
+                try {
+                    writeAheadLog.sync(logSequence);
+                } finally {
+                    for (Member member : appended) {
+                        publish(member);
+                    }
+                }
+            }
+        }
+        return appended;
+    }
+
+    // 큐 자리를 하나 잡는다. writeLock 밖에서만 부른다.
+    private void acquireQueueSlot() {
+        try {
+            if (!queueSlots.tryAcquire(enqueueTimeoutMillis, TimeUnit.MILLISECONDS)) {
+                throw new IllegalStateException("DB 반영 대기열이 가득 찼습니다. (" + queueCapacity + ")");
+            }
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new IllegalStateException("DB 반영 대기 중 인터럽트", e);
+        }
+    }
+
+    // writeLock 안에서만 호출한다. 큐 자리는 잡아 둔 상태
+    // 로그에 먼저 쓰고, 성공한 다음에만 큐에 넣는다.
+    // -> 로그 쓰기가 실패하면 이름 자리만 돌려놓으면 된다. (flusher는 이 회원을 본 적이 없다)
+    private long append(Member member) {
+        long id = sequence.get() + 1;
+        if (member.getName() != null && nameIndex.putIfAbsent(member.getName(), id) != null) {
+            throw new DuplicateKeyException("중복된 회원 이름: " + member.getName());
+        }
+
+        long logSequence;
+        member.setId(id);
+        try {
+            logSequence = writeAheadLog.append(member);
+        } catch (RuntimeException e) {
+            member.setId(null);
+            releaseName(member.getName(), id);
+            throw e;
+        }
+        sequence.set(id);
+        queue.add(new PendingMember(id, member.getName(), System.nanoTime()));
+        return logSequence;
+    }
+
+    // fsync까지 끝난 회원을 읽기 쪽에 보인다.
+    // flusher가 그 사이에 거절(reject)했으면 도로 뺀다.
+    private void publish(Member member) {
+        store.put(member.getId(), member);
+        searchIndex.add(member.getId(), member.getName());
+        if (rejectedIds.contains(member.getId())) {
+            store.remove(member.getId());
+            searchIndex.remove(member.getId(), member.getName());
+        }
+    }
+
+    private void releaseName(String name, long id) {
+        if (name != null) {
+            nameIndex.remove(name, id);
+        }
+    }
+
+    private void flushLoop() {
+        List<PendingMember> batch = new ArrayList<>(BATCH_SIZE);
+        long retryDelay = FLUSH_INTERVAL_MILLIS;
+
+        while (running || !queue.isEmpty()) {
+            try {
+                if (batch.isEmpty()) {
+                    PendingMember first = queue.poll(FLUSH_INTERVAL_MILLIS, TimeUnit.MILLISECONDS);
+                    if (first == null) {
+                        continue;
+                    }
+                    batch.add(first);
+                    queue.drainTo(batch, BATCH_SIZE - 1);
+                }
+
+                insertOrReject(batch);
+                flushedCount.add(batch.size());
+                lastFlushMillis = System.currentTimeMillis();
+                queueSlots.release(batch.size());
+                batch.clear();
+                retryDelay = FLUSH_INTERVAL_MILLIS;
+
+                truncateLogIfDrained();
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                break;
+            } catch (RuntimeException e) {
+                // DB가 죽었거나 커넥션이 없는 경우 -> 실패한 배치는 버리지 않고 그대로 다시 시도한다. (로그에 남아 있으니 죽어도 복구된다)
+                // 제약 위반처럼 다시 해도 안 되는 회원은 insertOrReject에서 이미 빠진다.
+                flushFailures.increment();
+                log.warn("회원 DB 반영 실패, {}ms 후 다시 시도합니다. (대기 {}건)", retryDelay, batch.size() + queue.size(), e);
+                if (!running) {
+                    break;
+                }
+                try {
+                    Thread.sleep(retryDelay);
+                } catch (InterruptedException interrupted) {
+                    Thread.currentThread().interrupt();
+                    break;
+                }
+                retryDelay = Math.min(retryDelay * 2, MAX_RETRY_DELAY_MILLIS);
+            }
+        }
+    }
+
+    // 배치 하나를 트랜잭션 하나로 넣는다. -> 반쯤 들어간 배치가 없어서 다시 시도해도 중복이 안 생긴다.
+    private void insertBatch(List<PendingMember> batch) {
+        List<Object[]> args = new ArrayList<>(batch.size());
+        for (PendingMember pending : batch) {
+            args.add(new Object[]{pending.id(), pending.name()});
+        }
+        transactionTemplate.executeWithoutResult(status ->
+                jdbcTemplate.batchUpdate("insert into member(id, name) values (?, ?)", args));
+    }
+
+    // 배치로 넣어 보고 제약에 걸리면 한 건씩 넣어서 걸리는 회원만 뺀다.
+    // 제약 위반이 아닌 실패(DB 다운 등)는 그대로 던져서 flushLoop가 다시 시도한다.
+    private void insertOrReject(List<PendingMember> batch) {
+        try {
+            insertBatch(batch);
+        } catch (DataIntegrityViolationException e) {
+            for (PendingMember pending : batch) {
+                try {
+                    insertBatch(List.of(pending));
+                } catch (DataIntegrityViolationException rowFailure) {
+                    // 한 건씩 넣다가 끊겨서 다시 도는 중이면 이미 들어간 회원일 수 있다.
+                    if (!isInserted(pending)) {
+                        reject(pending, rowFailure);
+                    }
+                }
+            }
+        }
+    }
+
+    private boolean isInserted(PendingMember pending) {
+        List<String> names = jdbcTemplate.queryForList("select name from member where id = ?", String.class, pending.id());
+        return !names.isEmpty() && Objects.equals(names.get(0), pending.name());
+    }
+
+    private void reject(PendingMember pending, RuntimeException e) {
+        log.error("회원 DB 반영이 거절되어 메모리에서 뺍니다. id={}, name={}", pending.id(), pending.name(), e);
+        rejectedIds.add(pending.id());
+        releaseName(pending.name(), pending.id());
+        store.remove(pending.id());
+        searchIndex.remove(pending.id(), pending.name());
+    }
+
+    // id를 직접 넣으면 DB identity는 따라오지 않는다. -> 테이블의 가장 큰 id 다음부터 발급하게 당겨 둔다. (H2, PostgreSQL 문법)
+    // 시작과 종료 때만 부른다. 행은 이미 커밋됐으니 실패해도 경고만 남긴다.
+    private void restartIdentity() {
+        long next = sequence.get() + 1;
+        try {
+            Long max = jdbcTemplate.queryForObject("select max(id) from member", Long.class);
+            next = Math.max(next, max == null ? 0 : max + 1);
+            jdbcTemplate.execute("alter table member alter column id restart with " + next);
+        } catch (RuntimeException e) {
+            log.warn("member id identity를 {}로 당기지 못했습니다.", next, e);
+        }
+    }
+
+    // 큐가 비었다 == 로그에 있는 회원이 전부 DB에 들어갔다.
+    // writeLock을 잡고 확인해야 그 사이에 새 회원이 로그에만 붙는 일이 없다.
+    private void truncateLogIfDrained() {
+        if (!queue.isEmpty() || writeAheadLog.sizeInBytes() == 0) {
+            return;
+        }
+        writeLock.lock();
+        try {
+            if (queue.isEmpty()) {
+                writeAheadLog.reset();
+            }
+        } finally {
+            writeLock.unlock();
+        }
+    }
+
+    @Override
+    public Optional<Member> findById(Long id) {
+        return id == null ? Optional.empty() : Optional.ofNullable(store.get(id));
+    }
+
+    @Override
+    public Optional<Member> findByName(String name) {
+        if (name == null) {
+            return Optional.empty();
+        }
+        Long id = nameIndex.get(name);
+        return id == null ? Optional.empty() : Optional.ofNullable(store.get(id));
+    }
+
+    @Override
+    public List<Member> findByNameIn(Collection<String> names) {
+        List<Member> result = new ArrayList<>();
+        for (String name : names) {
+            findByName(name).ifPresent(result::add);
+        }
+        return result;
+    }
+
+    @Override
+    public List<Member> findAll() {
+        return new ArrayList<>(store.values());
+    }
+
+    @Override
+    public List<Member> findPage(Long afterId, int size) {
+        List<Member> result = new ArrayList<>(size);
+        for (Member member : store.tailMap(afterId == null ? 0L : afterId, false).values()) {
+            if (result.size() == size) {
+                break;
+            }
+            result.add(member);
+        }
+        return result;
+    }
+
+    @Override
+    public List<Member> searchByNamePrefix(String prefix, int limit) {
+        return toMembers(searchIndex.searchPrefix(prefix, limit));
+    }
+
+    @Override
+    public List<Member> searchByNameContaining(String keyword, int limit) {
+        return toMembers(searchIndex.searchContaining(keyword, limit, id -> {
+            Member member = store.get(id);
+            return member == null ? null : member.getName();
+        }));
+    }
+
+    private List<Member> toMembers(List<Long> ids) {
+        List<Member> result = new ArrayList<>(ids.size());
+        for (Long id : ids) {
+            Member member = store.get(id);
+            if (member != null) {
+                result.add(member);
+            }
+        }
+        return result;
+    }
+
+    @Override
+    public Stream<Member> streamAll() {
+        return store.values().stream();
+    }
+
+    /**
+     * 큐 깊이, 가장 오래 기다린 회원의 지연(lag), 누적 반영 건수
+     */
+    public Map<String, Object> stats() {
+        PendingMember oldest = queue.peek();
+        long lagMillis = oldest == null ? 0 : TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - oldest.enqueuedNanos());
+
+        Map<String, Object> stats = new LinkedHashMap<>();
+        stats.put("queueDepth", queue.size());
+        stats.put("queueCapacity", queueCapacity);
+        stats.put("lagMillis", lagMillis);
+        stats.put("flushed", flushedCount.sum());
+        stats.put("flushFailures", flushFailures.sum());
+        stats.put("rejected", rejectedIds.size());
+        stats.put("lastFlushMillis", lastFlushMillis);
+        stats.put("logBytes", writeAheadLog.sizeInBytes());
+        stats.put("members", store.size());
+        return stats;
+    }
+
+    // 종료할 때 큐에 남은 회원을 DB에 다 넣고 끝낸다.
+    // 끝내 못 넣은 회원은 로그에 남아 있다가 다음 시작 때 들어간다.
+    // JDBC 호출 도중에 인터럽트가 걸리면 커넥션이 깨질 수 있어서 flusher를 깨우지 않고 poll 주기(50ms)에 맡긴다.
+    @Override
+    public void close() throws IOException {
+        running = false;
+        try {
+            flusher.join(TimeUnit.SECONDS.toMillis(30));
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+        restartIdentity();
+        writeAheadLog.close();
+    }
+}
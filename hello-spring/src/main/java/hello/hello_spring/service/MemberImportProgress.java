@@ -0,0 +1,18 @@
+package hello.hello_spring.service;
+
+// CSV 가져오기 진행 상황
+// rows: 읽은 행 수(헤더, 빈 줄 제외), imported: 새로 가입한 회원 수
+// duplicates: 이미 있거나 파일 안에서 겹친 이름이라 건너뛴 수, invalid: 빈 이름이나 너무 긴 이름
+public record MemberImportProgress(long rows, long imported, long duplicates, long invalid,
+                                   long elapsedMillis, boolean done) {
+
+    // 숫자만 있어서 직접 만든다. (NDJSON 한 줄)
+    public String toJson() {
+        return "{\"rows\":" + rows
+                + ",\"imported\":" + imported
+                + ",\"duplicates\":" + duplicates
+                + ",\"invalid\":" + invalid
+                + ",\"elapsedMillis\":" + elapsedMillis
+                + ",\"done\":" + done + "}";
+    }
+}
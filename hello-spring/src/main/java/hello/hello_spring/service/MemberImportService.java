@@ -0,0 +1,109 @@
+package hello.hello_spring.service;
+
+import hello.hello_spring.domain.Member;
+
+import java.io.IOException;
+import java.io.Reader;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+import java.util.function.Consumer;
+
+// CSV 회원 일괄 가져오기
+// 첫 칸이 이름이다. 첫 행이 name이면 헤더로 보고 건너뛴다.
+// 1. CSV를 한 행씩 읽으면서 chunkSize명씩 모은다. -> 메모리에는 한 묶음만 있어서 파일이 아무리 커도 일정하다.
+// 2. 묶음마다 MemberService.importMembers를 한 번 부른다. -> 묶음 하나가 트랜잭션 하나 (트랜잭션이 없는 저장소는 importChunk 참고)
+//    중복 확인은 in 절 한 번(+ 블룸 필터), 저장은 JDBC 배치로 한 번
+// 3. 묶음이 끝날 때마다 진행 상황을 listener로 넘긴다.
+// 중간에 실패하면 그 앞 묶음까지는 이미 커밋되어 있다. -> 같은 파일을 다시 올리면 들어간 이름은 duplicates로 건너뛴다.
+public class MemberImportService {
+
+    public static final int DEFAULT_CHUNK_SIZE = 1000;
+    private static final int MAX_NAME_LENGTH = 255;
+
+    private final MemberService memberService;
+    private final int chunkSize;
+
+    public MemberImportService(MemberService memberService, int chunkSize) {
+        this.memberService = memberService;
+        this.chunkSize = chunkSize;
+    }
+
+    /**
+     * CSV 회원 가져오기
+     */
+    public MemberImportProgress importCsv(Reader reader, Consumer<MemberImportProgress> listener) throws IOException {
+        long start = System.nanoTime();
+        MemberCsvReader csv = new MemberCsvReader(reader);
+        List<String> chunk = new ArrayList<>(chunkSize);
+        // rows, imported, duplicates, invalid
+        long[] counts = new long[4];
+
+        boolean header = true;
+        List<String> record;
+        while ((record = csv.readRecord()) != null) {
+            String name = record.get(0).strip();
+            if (record.size() == 1 && name.isEmpty()) {
+                continue;   // 빈 줄
+            }
+            if (header) {
+                header = false;
+                if (name.equalsIgnoreCase("name")) {
+                    continue;
+                }
+            }
+
+            counts[0]++;
+            if (name.isEmpty() || name.length() > MAX_NAME_LENGTH) {
+                counts[3]++;
+                continue;
+            }
+            chunk.add(name);
+            if (chunk.size() == chunkSize) {
+                importChunk(chunk, counts);
+                chunk.clear();
+                listener.accept(progress(counts, start, false));
+            }
+        }
+        if (!chunk.isEmpty()) {
+            importChunk(chunk, counts);
+        }
+
+        MemberImportProgress result = progress(counts, start, true);
+        listener.accept(result);
+        return result;
+    }
+
+    private void importChunk(List<String> names, long[] counts) {
+        List<Member> members = toMembers(names);
+        int imported;
+        try {
+            imported = memberService.importMembers(members).size();
+        } catch (IllegalStateException e) {
+            // 확인과 저장 사이에 다른 요청이 같은 이름으로 먼저 가입한 경우 -> 한 번 더 확인하고 넣는다.
+            // DB 저장소는 묶음이 롤백되지만, 트랜잭션이 없는 저장소(memory, durable-memory, tiered 등)는
+            // 부딪히기 전까지 넣은 회원이 남아 있다. -> 다시 돌리면 그 이름은 "이미 있는 이름"으로 빠지니까
+            // 첫 시도에서 실제로 남은 회원을 imported로 먼저 센다. (없으면 duplicates로 잘못 센다)
+            int stored = memberService.countStored(members);
+            // 실패한 회원 객체에는 id가 채워졌을 수 있어서 새로 만든다.
+            imported = stored + memberService.importMembers(toMembers(names)).size();
+        }
+        counts[1] += imported;
+        counts[2] += names.size() - imported;
+    }
+
+    private static List<Member> toMembers(List<String> names) {
+        List<Member> members = new ArrayList<>(names.size());
+        for (String name : names) {
+            Member member = new Member();
+            member.setName(name);
+            members.add(member);
+        }
+        return members;
+    }
+
+    private static MemberImportProgress progress(long[] counts, long start, boolean done) {
+        return new MemberImportProgress(counts[0], counts[1], counts[2], counts[3],
+                TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - start), done);
+    }
+}
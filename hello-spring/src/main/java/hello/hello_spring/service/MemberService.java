@@ -1,18 +1,32 @@
 package hello.hello_spring.service;
 
+import hello.hello_spring.aop.Timed;
 import hello.hello_spring.domain.Member;
 import hello.hello_spring.repository.MemberRepository;
 import hello.hello_spring.repository.MemoryMemberRepository;
 import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.dao.DataIntegrityViolationException;
 import org.springframework.stereotype.Controller;
 import org.springframework.stereotype.Service;
 import org.springframework.transaction.annotation.Transactional;
 
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.LinkedHashMap;
 import java.util.List;
+import java.util.Map;
 import java.util.Optional;
+import java.util.Set;
+import java.util.function.Consumer;
+import java.util.stream.Stream;
 
 // JPA를 쓰려면 주의해야 될 것: 항상 트랜잭션이라는게 있어야 한다.
 // JPA는 join이 들어올 때, 모든 데이터 변경이 다 트랜잭션 안에서 실행이 되어야 한다.
+// @Timed: hello.trace.scope=annotated 일 때도 회원 서비스는 측정한다.
+@Timed
 @Transactional
 public class MemberService {
 
@@ -47,11 +61,39 @@ public class MemberService {
     // -> 스프링 컨테이너에 올라가는 것들만 이 @Autowired 기능이 동작을 한다.
     private MemberRepository memberRepository;
 
+    // 이미 있는 회원 이름의 블룸 필터
+    // "확실히 없다"는 이름은 중복 검증 쿼리에서 빼버린다.
+    // 시작할 때 한 번 훑어서 채우고 (loadNameFilter), 가입할 때마다 추가한다.
+    // 다 채워지기 전(nameFilterReady == false)에는 없다는 답을 믿을 수 없으니 예전처럼 DB에 물어본다.
+    private static final int NAME_FILTER_CAPACITY = 1 << 16;
+    private final ScalableBloomFilter nameFilter = new ScalableBloomFilter(NAME_FILTER_CAPACITY, 0.01);
+    private volatile boolean nameFilterReady;
+
     @Autowired
     public MemberService(MemberRepository memberRepository) {
         this.memberRepository = memberRepository;
     }
 
+    /**
+     * 회원 이름 필터 적재
+     */
+    // 애플리케이션이 뜬 다음 전체 회원을 커서로 읽으면서 이름만 필터에 넣는다.
+    // 그 사이에 가입한 회원은 join에서 따로 넣기 때문에 빠지는 이름이 없다.
+    @EventListener(ApplicationReadyEvent.class)
+    @Transactional(readOnly = true)
+    public void loadNameFilter() {
+        try (Stream<Member> members = memberRepository.streamAll()) {
+            members.forEach(member -> addToNameFilter(member.getName()));
+        }
+        nameFilterReady = true;
+    }
+
+    private void addToNameFilter(String name) {
+        if (name != null) {
+            nameFilter.put(name);
+        }
+    }
+
 
     /**
      * 회원 가입
@@ -77,18 +119,143 @@ public class MemberService {
 //            System.out.println("join = " + timeMs + "ms");
 //        }
 
-        validateDuplicateMember(member);    // 중복 회원 검증
-        memberRepository.save(member);
-        return member.getId();
+//        validateDuplicateMember(member);    // 중복 회원 검증
+//        memberRepository.save(member);
+//        return member.getId();
 
+        // select로 확인하고 insert 하면 왕복이 두 번이고,
+        // 두 스레드가 동시에 검증을 통과하면 중복 회원이 생긴다.
+        // -> member.name에 unique 제약을 걸고 insert 한 번으로 넣으면서 충돌을 감지한다.
+        try {
+            memberRepository.save(member);
+        } catch (DataIntegrityViolationException e) {
+            throw new IllegalStateException("이미 존재하는 회원입니다.");
+        }
+        // 롤백되면 필터에만 이름이 남는다. -> "있을 수도 있다"로 한 번 더 조회할 뿐 틀린 답은 아니다.
+        addToNameFilter(member.getName());
+        return member.getId();
     }
 
     // findByName을 통해서 로직이 쭉 나온다? -> method로 뽑는 것이 좋다!
-    private void validateDuplicateMember(Member member) {
-        memberRepository.findByName(member.getName())
-                        .ifPresent(m -> {
-                            throw new IllegalStateException("이미 존재하는 회원입니다.");
-                        });
+//    private void validateDuplicateMember(Member member) {
+//        memberRepository.findByName(member.getName())
+//                        .ifPresent(m -> {
+//                            throw new IllegalStateException("이미 존재하는 회원입니다.");
+//                        });
+//    }
+
+    /**
+     * 회원 일괄 가입
+     */
+    // join을 루프로 돌리면 회원마다 select 한 번, insert 한 번이 나간다.
+    // 중복 검증은 in 절 쿼리 한 번으로, 저장은 배치로 한 번에 처리한다.
+    public List<Long> joinAll(List<Member> members) {
+        validateDuplicateMembers(members);  // 중복 회원 검증
+        try {
+            memberRepository.saveAll(members);
+        } catch (DataIntegrityViolationException e) {
+            // 검증과 저장 사이에 같은 이름이 먼저 들어온 경우
+            throw new IllegalStateException("이미 존재하는 회원입니다.");
+        }
+        for (Member member : members) {
+            addToNameFilter(member.getName());
+        }
+
+        List<Long> ids = new ArrayList<>(members.size());
+        for (Member member : members) {
+            ids.add(member.getId());
+        }
+        return ids;
+    }
+
+    private void validateDuplicateMembers(List<Member> members) {
+        // 배치 안에서 이름이 겹치는 경우
+        Set<String> names = new HashSet<>();
+        for (Member member : members) {
+            if (!names.add(member.getName())) {
+                throw new IllegalStateException("이미 존재하는 회원입니다.");
+            }
+        }
+
+        // 이미 DB에 있는 경우
+        Set<String> candidates = mightExist(names);
+        if (!candidates.isEmpty() && !memberRepository.findByNameIn(candidates).isEmpty()) {
+            throw new IllegalStateException("이미 존재하는 회원입니다.");
+        }
+    }
+
+    // 필터가 "확실히 없다"고 하는 이름은 in 절에서 뺀다. 전부 빠지면 쿼리 자체를 안 날린다.
+    private Set<String> mightExist(Set<String> names) {
+        if (!nameFilterReady) {
+            return names;
+        }
+        Set<String> candidates = new HashSet<>();
+        for (String name : names) {
+            if (name == null || nameFilter.mightContain(name)) {
+                candidates.add(name);
+            }
+        }
+        return candidates;
+    }
+
+    /**
+     * 회원 일괄 등록 (CSV 가져오기 한 묶음)
+     */
+    // joinAll과 달리 이미 있는 이름, 묶음 안에서 겹친 이름은 예외 대신 건너뛰고 나머지만 저장한다.
+    // 저장한 회원만 돌려준다.
+    public List<Member> importMembers(List<Member> members) {
+        Map<String, Member> fresh = new LinkedHashMap<>();
+        for (Member member : members) {
+            fresh.putIfAbsent(member.getName(), member);
+        }
+
+        Set<String> candidates = mightExist(fresh.keySet());
+        if (!candidates.isEmpty()) {
+            for (Member existing : memberRepository.findByNameIn(candidates)) {
+                fresh.remove(existing.getName());
+            }
+        }
+        if (fresh.isEmpty()) {
+            return List.of();
+        }
+
+        List<Member> saved = new ArrayList<>(fresh.values());
+        try {
+            memberRepository.saveAll(saved);
+        } catch (DataIntegrityViolationException e) {
+            // 확인과 저장 사이에 같은 이름이 먼저 들어온 경우 -> 이 묶음은 롤백된다.
+            throw new IllegalStateException("이미 존재하는 회원입니다.");
+        }
+        for (Member member : saved) {
+            addToNameFilter(member.getName());
+        }
+        return saved;
+    }
+
+    /**
+     * 저장되어 남아 있는 회원 수
+     */
+    // 이름으로 찾은 회원의 id가 이 객체에 채워진 id와 같으면 이 객체가 저장되어 남아 있는 것이다.
+    // 롤백된 회원은 못 찾거나 다른 id로 찾힌다. (id는 롤백돼도 다시 쓰지 않는다)
+    @Transactional(readOnly = true)
+    public int countStored(List<Member> members) {
+        Map<String, Long> ids = new HashMap<>();
+        for (Member member : members) {
+            if (member.getId() != null && member.getName() != null) {
+                ids.put(member.getName(), member.getId());
+            }
+        }
+        if (ids.isEmpty()) {
+            return 0;
+        }
+
+        int stored = 0;
+        for (Member found : memberRepository.findByNameIn(ids.keySet())) {
+            if (found.getId().equals(ids.get(found.getName()))) {
+                stored++;
+            }
+        }
+        return stored;
     }
 
     /**
@@ -111,6 +278,43 @@ public class MemberService {
         return memberRepository.findAll();
     }
 
+    /**
+     * 회원 페이지 조회
+     */
+    // afterId 다음부터 size개를 가져온다. (keyset 페이징)
+    // 다음 페이지는 이번 페이지 마지막 회원의 id를 afterId로 넘기면 된다.
+    public List<Member> findMembers(Long afterId, int size) {
+        return memberRepository.findPage(afterId, size);
+    }
+
+    /**
+     * 회원 이름 접두어 검색
+     */
+    @Transactional(readOnly = true)
+    public List<Member> searchMembersByNamePrefix(String prefix, int limit) {
+        return memberRepository.searchByNamePrefix(prefix, limit);
+    }
+
+    /**
+     * 회원 이름 부분 문자열 검색
+     */
+    @Transactional(readOnly = true)
+    public List<Member> searchMembersByName(String keyword, int limit) {
+        return memberRepository.searchByNameContaining(keyword, limit);
+    }
+
+    /**
+     * 전체 회원 순회
+     */
+    // findMembers처럼 List로 다 모으지 않고 커서로 읽으면서 한 건씩 넘겨준다.
+    // 스트림이 트랜잭션 밖으로 새어 나가면 커넥션을 닫을 시점이 애매해지기 때문에 콜백으로 받는다.
+    @Transactional(readOnly = true)
+    public void forEachMember(Consumer<Member> action) {
+        try (Stream<Member> members = memberRepository.streamAll()) {
+            members.forEach(action);
+        }
+    }
+
     public Optional<Member> findOne(Long memberId) {
         return memberRepository.findById(memberId);
     }
@@ -0,0 +1,40 @@
+package hello.hello_spring.service;
+
+import hello.hello_spring.domain.Member;
+import hello.hello_spring.repository.ReactiveMemberRepository;
+import org.springframework.dao.DataIntegrityViolationException;
+import reactor.core.publisher.Flux;
+import reactor.core.publisher.Mono;
+
+// MemberService의 리액티브 버전
+// 문장 하나씩만 실행하기 때문에 트랜잭션은 따로 걸지 않는다.
+public class ReactiveMemberService {
+
+    private final ReactiveMemberRepository memberRepository;
+
+    public ReactiveMemberService(ReactiveMemberRepository memberRepository) {
+        this.memberRepository = memberRepository;
+    }
+
+    /**
+     * 회원 가입
+     */
+    public Mono<Long> join(Member member) {
+        // MemberService.join과 똑같이 중복 검사는 DB의 unique 제약에 맡긴다.
+        return memberRepository.save(member)
+                .map(Member::getId)
+                .onErrorMap(DataIntegrityViolationException.class,
+                        e -> new IllegalStateException("이미 존재하는 회원입니다.", e));
+    }
+
+    /**
+     * 전체 회원 조회 (keyset 페이지)
+     */
+    public Flux<Member> findMembers(Long afterId, int size) {
+        return memberRepository.findPage(afterId, size);
+    }
+
+    public Mono<Member> findOne(Long memberId) {
+        return memberRepository.findById(memberId);
+    }
+}
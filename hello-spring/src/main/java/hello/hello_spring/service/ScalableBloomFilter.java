@@ -0,0 +1,148 @@
+package hello.hello_spring.service;
+
+import java.nio.charset.StandardCharsets;
+import java.util.Arrays;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLongArray;
+
+// 크기가 늘어나는 블룸 필터 (Scalable Bloom Filter)
+// mightContain이 false면 "확실히 없다", true면 "있을 수도 있다".
+// -> 없다는 답은 틀리지 않기 때문에 DB 조회를 건너뛰어도 된다.
+// 필터 하나가 정해진 용량을 채우면 두 배 크기의 필터를 뒤에 붙이고, 새 필터의 오탐률은 절반으로 줄인다.
+// -> 전체 오탐률이 처음 정한 값의 두 배 안쪽으로 묶인다.
+// 비트는 AtomicLongArray에 CAS로 켜기 때문에 put/mightContain 모두 락 없이 동시에 불러도 된다.
+// jpashop-2에도 같은 코드가 있다. (따로 빌드되는 프로젝트라 같이 쓰는 모듈이 없다) 고칠 때는 양쪽을 같이 고친다.
+public class ScalableBloomFilter {
+
+    private static final int GROWTH_FACTOR = 2;
+    private static final double TIGHTENING_RATIO = 0.5;
+    private static final int MAX_SEGMENT_CAPACITY = 1 << 30;
+
+    private volatile Segment[] segments;
+
+    public ScalableBloomFilter(int initialCapacity, double falsePositiveRate) {
+        if (initialCapacity <= 0 || falsePositiveRate <= 0 || falsePositiveRate >= 1) {
+            throw new IllegalArgumentException("initialCapacity > 0, 0 < falsePositiveRate < 1");
+        }
+        // 첫 필터의 오탐률을 절반으로 잡아야 뒤에 붙는 필터까지 합쳐서 falsePositiveRate 근처가 된다.
+        segments = new Segment[]{new Segment(initialCapacity, falsePositiveRate * TIGHTENING_RATIO)};
+    }
+
+    public boolean mightContain(String value) {
+        long hash = hash(value);
+        for (Segment segment : segments) {
+            if (segment.mightContain(hash)) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    public void put(String value) {
+        long hash = hash(value);
+        Segment[] current = segments;
+        Segment last = current[current.length - 1];
+        if (last.isFull()) {
+            last = grow(last);
+        }
+        last.put(hash);
+    }
+
+    // 이미 다른 스레드가 늘렸으면 그걸 그대로 쓴다.
+    private synchronized Segment grow(Segment full) {
+        Segment[] current = segments;
+        Segment last = current[current.length - 1];
+        if (last != full) {
+            return last;
+        }
+        int capacity = (int) Math.min((long) full.capacity * GROWTH_FACTOR, MAX_SEGMENT_CAPACITY);
+        Segment next = new Segment(capacity, full.falsePositiveRate * TIGHTENING_RATIO);
+
+        Segment[] grown = Arrays.copyOf(current, current.length + 1);
+        grown[current.length] = next;
+        segments = grown;
+        return next;
+    }
+
+    /**
+     * 지금까지 넣은 개수 (중복으로 넣은 것도 센다)
+     */
+    public long size() {
+        long size = 0;
+        for (Segment segment : segments) {
+            size += segment.count.get();
+        }
+        return size;
+    }
+
+    public int segmentCount() {
+        return segments.length;
+    }
+
+    // 64비트 FNV-1a + murmur3 fmix64
+    // String.hashCode()는 32비트라서 수백만 건이 넘어가면 충돌이 너무 많아진다.
+    static long hash(String value) {
+        long h = 0xcbf29ce484222325L;
+        byte[] bytes = value.getBytes(StandardCharsets.UTF_8);
+        for (byte b : bytes) {
+            h ^= b;
+            h *= 0x100000001b3L;
+        }
+        h ^= h >>> 33;
+        h *= 0xff51afd7ed558ccdL;
+        h ^= h >>> 33;
+        h *= 0xc4ceb9fe1a85ec53L;
+        h ^= h >>> 33;
+        return h;
+    }
+
+    private static final class Segment {
+
+        final int capacity;
+        final double falsePositiveRate;
+        final long bitCount;
+        final int hashCount;
+        final AtomicLongArray words;
+        final AtomicInteger count = new AtomicInteger();
+
+        Segment(int capacity, double falsePositiveRate) {
+            this.capacity = capacity;
+            this.falsePositiveRate = falsePositiveRate;
+            // m = -n ln p / (ln 2)^2, k = m / n ln 2
+            this.bitCount = Math.max(64, (long) Math.ceil(-capacity * Math.log(falsePositiveRate) / (Math.log(2) * Math.log(2))));
+            this.hashCount = Math.max(1, (int) Math.round((double) bitCount / capacity * Math.log(2)));
+            this.words = new AtomicLongArray((int) ((bitCount + 63) >>> 6));
+        }
+
+        boolean isFull() {
+            return count.get() >= capacity;
+        }
+
+        // 해시 두 개(h1 + i * h2)로 k개의 비트 위치를 만든다. (Kirsch-Mitzenmacher)
+        void put(long hash) {
+            int h1 = (int) hash;
+            int h2 = (int) (hash >>> 32);
+            for (int i = 1; i <= hashCount; i++) {
+                long bit = ((h1 + (long) i * h2) & Long.MAX_VALUE) % bitCount;
+                int index = (int) (bit >>> 6);
+                long mask = 1L << bit;
+                if ((words.get(index) & mask) == 0) {
+                    words.accumulateAndGet(index, mask, (word, m) -> word | m);
+                }
+            }
+            count.incrementAndGet();
+        }
+
+        boolean mightContain(long hash) {
+            int h1 = (int) hash;
+            int h2 = (int) (hash >>> 32);
+            for (int i = 1; i <= hashCount; i++) {
+                long bit = ((h1 + (long) i * h2) & Long.MAX_VALUE) % bitCount;
+                if ((words.get((int) (bit >>> 6)) & (1L << bit)) == 0) {
+                    return false;
+                }
+            }
+            return true;
+        }
+    }
+}
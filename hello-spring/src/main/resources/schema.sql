@@ -0,0 +1,6 @@
+-- 시작할 때마다 돈다. (spring.sql.init.mode=always)
+-- sql/ddl.sql을 uk_member_name 이전 버전으로 만든 DB에도 회원 이름 unique 제약을 걸어 둔다.
+-- -> MemberService.join은 이 제약에만 기대서 중복 가입을 막는다. 제약이 없으면 중복 가입이 조용히 성공한다.
+-- 이미 있으면 건너뛰고, 테이블이 없으면 아무것도 하지 않는다. (ddl-auto=none이라 테이블은 ddl.sql로 만든다)
+-- 이미 이름이 겹친 회원이 있으면 실패하고 애플리케이션이 뜨지 않는다. -> 겹친 회원을 정리한 다음 다시 띄운다.
+alter table if exists member add constraint if not exists uk_member_name unique (name);
@@ -0,0 +1,33 @@
+package hello.hello_spring.aop;
+
+import org.junit.jupiter.api.Test;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+class LatencyHistogramTest {
+
+    @Test
+    public void 백분위() {
+        LatencyHistogram histogram = new LatencyHistogram();
+        for (long i = 1; i <= 1000; i++) {
+            histogram.record(i * 1_000);    // 1us ~ 1000us
+        }
+
+        assertThat(histogram.getCount()).isEqualTo(1000);
+        assertThat(histogram.getMaxNanos()).isEqualTo(1_000_000);
+        // 버킷 오차(약 6%) 안에 들어와야 한다.
+        assertThat(histogram.percentile(0.50)).isBetween(500_000L, 532_000L);
+        assertThat(histogram.percentile(0.99)).isBetween(990_000L, 1_000_000L);
+    }
+
+    @Test
+    public void 버킷_경계() {
+        for (long value : new long[]{0, 1, 15, 16, 17, 31, 32, 33, 1_000, 123_456_789, Long.MAX_VALUE}) {
+            int index = LatencyHistogram.indexOf(value);
+            assertThat(LatencyHistogram.upperBoundOf(index)).isGreaterThanOrEqualTo(value);
+            if (index > 0) {
+                assertThat(LatencyHistogram.upperBoundOf(index - 1)).isLessThan(value);
+            }
+        }
+    }
+}
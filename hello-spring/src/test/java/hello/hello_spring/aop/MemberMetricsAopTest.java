@@ -0,0 +1,45 @@
+package hello.hello_spring.aop;
+
+import hello.hello_spring.domain.Member;
+import hello.hello_spring.repository.MemoryMemberRepository;
+import hello.hello_spring.service.MemberService;
+import io.micrometer.core.instrument.Timer;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.Test;
+import org.springframework.aop.aspectj.annotation.AspectJProxyFactory;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+
+class MemberMetricsAopTest {
+
+    @Test
+    public void 메서드별_타이머() {
+        // given
+        SimpleMeterRegistry registry = new SimpleMeterRegistry();
+        AspectJProxyFactory factory = new AspectJProxyFactory(new MemberService(new MemoryMemberRepository()));
+        factory.setProxyTargetClass(true);
+        factory.addAspect(new MemberMetricsAop(registry));
+        MemberService memberService = factory.getProxy();
+
+        // when
+        memberService.join(member("spring1"));
+        memberService.join(member("spring2"));
+        assertThatThrownBy(() -> memberService.join(member("spring1")))
+                .isInstanceOf(IllegalStateException.class);
+
+        // then
+        Timer success = registry.get("hello.member.service")
+                .tags("class", "MemberService", "method", "join", "exception", "none").timer();
+        Timer failure = registry.get("hello.member.service")
+                .tags("class", "MemberService", "method", "join", "exception", "IllegalStateException").timer();
+        assertThat(success.count()).isEqualTo(2);
+        assertThat(failure.count()).isEqualTo(1);
+    }
+
+    private static Member member(String name) {
+        Member member = new Member();
+        member.setName(name);
+        return member;
+    }
+}
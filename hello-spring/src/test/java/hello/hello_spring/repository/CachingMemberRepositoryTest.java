@@ -0,0 +1,129 @@
+package hello.hello_spring.repository;
+
+import hello.hello_spring.domain.Member;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import java.util.Optional;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+class CachingMemberRepositoryTest {
+
+    MemoryMemberRepository memoryRepository;
+    MemberCacheStats stats;
+    CachingMemberRepository repository;
+
+    @BeforeEach
+    public void beforeEach() {
+        memoryRepository = new MemoryMemberRepository();
+        stats = new MemberCacheStats();
+        repository = new CachingMemberRepository(memoryRepository, 10, stats);
+    }
+
+    @AfterEach
+    public void afterEach() {
+        memoryRepository.clearStore();
+    }
+
+    @Test
+    public void 두번째_조회는_캐시에서() {
+        Member member = new Member();
+        member.setName("spring");
+        repository.save(member);
+
+        repository.findById(member.getId());
+        Member result = repository.findById(member.getId()).get();
+
+        assertThat(result.getName()).isEqualTo("spring");
+        assertThat(stats.getMissCount()).isEqualTo(1);
+        assertThat(stats.getHitCount()).isEqualTo(1);
+    }
+
+    @Test
+    public void 없는_이름은_negative_캐시() {
+        assertThat(repository.findByName("spring")).isEmpty();
+        assertThat(repository.findByName("spring")).isEmpty();
+        assertThat(stats.getNegativeHitCount()).isEqualTo(1);
+
+        // 저장하면 negative 캐시가 무효화되어서 바로 보인다.
+        Member member = new Member();
+        member.setName("spring");
+        repository.save(member);
+
+        assertThat(repository.findByName("spring").get().getId()).isEqualTo(member.getId());
+    }
+
+    @Test
+    public void 최대_크기를_넘으면_축출() {
+        for (int i = 0; i < 30; i++) {
+            Member member = new Member();
+            member.setName("spring" + i);
+            repository.save(member);
+            repository.findById(member.getId());
+        }
+
+        assertThat(repository.size()).isLessThanOrEqualTo(10);
+        assertThat(stats.getEvictionCount()).isEqualTo(20);
+    }
+
+    @Test
+    public void 조회_중에_저장되면_negative_캐시에_남기지_않는다() {
+        // given
+        // DB가 "없음"을 돌려준 직후, 캐시가 그걸 기억하기 전에 다른 스레드가 같은 이름을 저장한다.
+        Member member = new Member();
+        member.setName("spring");
+        CachingMemberRepository[] cache = new CachingMemberRepository[1];
+        MemoryMemberRepository racing = new MemoryMemberRepository() {
+            @Override
+            public Optional<Member> findByName(String name) {
+                Optional<Member> result = super.findByName(name);
+                if (result.isEmpty() && member.getId() == null) {
+                    cache[0].save(member);
+                }
+                return result;
+            }
+        };
+        cache[0] = new CachingMemberRepository(racing, 10, stats);
+
+        // when
+        assertThat(cache[0].findByName("spring")).isEmpty();
+
+        // then
+        assertThat(cache[0].findByName("spring").get().getId()).isEqualTo(member.getId());
+        assertThat(stats.getNegativeHitCount()).isEqualTo(0);
+        racing.clearStore();
+    }
+
+    @Test
+    public void negative_캐시는_TTL이_지나면_다시_조회() {
+        AtomicLong now = new AtomicLong();
+        repository = new CachingMemberRepository(memoryRepository, 10, stats, 1000, now::get);
+
+        assertThat(repository.findByName("spring")).isEmpty();
+        assertThat(repository.findByName("spring")).isEmpty();
+        assertThat(stats.getNegativeHitCount()).isEqualTo(1);
+
+        // 캐시를 거치지 않고 들어온 회원 -> TTL 전에는 못 보고, 지나면 보인다.
+        Member member = new Member();
+        member.setName("spring");
+        memoryRepository.save(member);
+        assertThat(repository.findByName("spring")).isEmpty();
+
+        now.addAndGet(TimeUnit.MILLISECONDS.toNanos(1000));
+        assertThat(repository.findByName("spring").get().getId()).isEqualTo(member.getId());
+    }
+
+    @Test
+    public void negative_캐시_축출은_따로_센다() {
+        for (int i = 0; i < 15; i++) {
+            repository.findByName("nobody" + i);
+        }
+
+        assertThat(stats.getNegativeEvictionCount()).isEqualTo(5);
+        assertThat(stats.getEvictionCount()).isEqualTo(0);
+    }
+}
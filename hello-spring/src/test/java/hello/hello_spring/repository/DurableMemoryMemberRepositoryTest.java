@@ -0,0 +1,175 @@
+package hello.hello_spring.repository;
+
+import hello.hello_spring.domain.Member;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+import java.util.stream.Stream;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+class DurableMemoryMemberRepositoryTest {
+
+    private static final long NEVER = Long.MAX_VALUE;
+
+    @TempDir
+    Path dir;
+
+    @Test
+    public void 스냅샷과_로그로_재시작_후_복구() throws Exception {
+        // 스냅샷 전 1000명, 스냅샷 후 500명
+        DurableMemoryMemberRepository repository = new DurableMemoryMemberRepository(dir, NEVER, NEVER);
+        List<Member> members = new ArrayList<>();
+        for (int i = 0; i < 1000; i++) {
+            Member member = new Member();
+            member.setName("spring" + i);
+            members.add(member);
+        }
+        repository.saveAll(members);
+        repository.snapshot();
+
+        for (int i = 1000; i < 1500; i++) {
+            Member member = new Member();
+            member.setName("spring" + i);
+            repository.save(member);
+        }
+        repository.close();
+
+        // 다시 열면 스냅샷을 읽고 로그 꼬리를 재생한다.
+        DurableMemoryMemberRepository reopened = new DurableMemoryMemberRepository(dir, NEVER, NEVER);
+
+        assertThat(reopened.findAll().size()).isEqualTo(1500);
+        assertThat(reopened.findByName("spring0").get().getId()).isEqualTo(1L);
+        assertThat(reopened.findByName("spring1499").get().getId()).isEqualTo(1500L);
+
+        // 새로 저장하면 이어서 id가 발급된다.
+        Member member = new Member();
+        member.setName("spring1500");
+        reopened.save(member);
+        assertThat(member.getId()).isEqualTo(1501L);
+        reopened.close();
+    }
+
+    @Test
+    public void 스냅샷만_있어도_복구() throws Exception {
+        DurableMemoryMemberRepository repository = new DurableMemoryMemberRepository(dir, NEVER, NEVER);
+        Member member = new Member();
+        member.setName("스프링");
+        repository.save(member);
+        repository.snapshot();
+        repository.close();
+
+        DurableMemoryMemberRepository reopened = new DurableMemoryMemberRepository(dir, NEVER, NEVER);
+        assertThat(reopened.findById(member.getId()).get().getName()).isEqualTo("스프링");
+        assertThat(reopened.searchByNamePrefix("스", 10)).hasSize(1);
+        reopened.close();
+    }
+
+    @Test
+    public void 로그_꼬리가_찢어져도_앞부분은_복구() throws Exception {
+        DurableMemoryMemberRepository repository = new DurableMemoryMemberRepository(dir, NEVER, NEVER);
+        for (int i = 0; i < 10; i++) {
+            Member member = new Member();
+            member.setName("spring" + i);
+            repository.save(member);
+        }
+        repository.close();
+
+        // 11번 회원을 쓰다가 죽은 것처럼 헤더 + 이름 일부만 붙인다.
+        Path last;
+        try (Stream<Path> files = Files.list(dir)) {
+            last = files.filter(file -> file.getFileName().toString().endsWith(".wal"))
+                    .filter(file -> file.toFile().length() > 0)
+                    .sorted()
+                    .reduce((first, second) -> second)
+                    .get();
+        }
+        ByteBuffer torn = ByteBuffer.allocate(Long.BYTES + Integer.BYTES + 3);
+        torn.putLong(11L);
+        torn.putInt("spring10".length());
+        torn.put("spr".getBytes(StandardCharsets.UTF_8));
+        Files.write(last, torn.array(), StandardOpenOption.APPEND);
+
+        DurableMemoryMemberRepository reopened = new DurableMemoryMemberRepository(dir, NEVER, NEVER);
+        assertThat(reopened.findAll()).hasSize(10);
+        assertThat(reopened.findByName("spring9").get().getId()).isEqualTo(10L);
+
+        // 찢어진 레코드는 잘려나가고 새 저장은 그 다음 번호로 이어진다.
+        Member member = new Member();
+        member.setName("spring10");
+        reopened.save(member);
+        assertThat(member.getId()).isEqualTo(11L);
+        reopened.close();
+
+        DurableMemoryMemberRepository again = new DurableMemoryMemberRepository(dir, NEVER, NEVER);
+        assertThat(again.findAll()).hasSize(11);
+        assertThat(again.findByName("spring10").get().getId()).isEqualTo(11L);
+        again.close();
+    }
+
+    @Test
+    public void 저장_중에_스냅샷을_떠도_회원을_잃지_않는다() throws Exception {
+        int threads = 4;
+        int perThread = 500;
+        DurableMemoryMemberRepository repository = new DurableMemoryMemberRepository(dir, NEVER, NEVER);
+        ExecutorService executor = Executors.newFixedThreadPool(threads);
+        CountDownLatch start = new CountDownLatch(1);
+        List<Future<?>> futures = new ArrayList<>();
+        for (int t = 0; t < threads; t++) {
+            int thread = t;
+            futures.add(executor.submit(() -> {
+                start.await();
+                for (int i = 0; i < perThread; i++) {
+                    Member member = new Member();
+                    member.setName("spring" + thread + "-" + i);
+                    repository.save(member);
+                }
+                return null;
+            }));
+        }
+
+        // 저장이 도는 동안 스냅샷을 계속 뜬다.
+        start.countDown();
+        int snapshots = 0;
+        while (futures.stream().anyMatch(future -> !future.isDone())) {
+            repository.snapshot();
+            snapshots++;
+        }
+        for (Future<?> future : futures) {
+            future.get();
+        }
+        executor.shutdown();
+        assertThat(executor.awaitTermination(10, TimeUnit.SECONDS)).isTrue();
+        assertThat(snapshots).isGreaterThan(0);
+        repository.close();
+
+        DurableMemoryMemberRepository reopened = new DurableMemoryMemberRepository(dir, NEVER, NEVER);
+        List<Member> all = reopened.findAll();
+        assertThat(all).hasSize(threads * perThread);
+        Set<Long> ids = new HashSet<>();
+        for (Member member : all) {
+            ids.add(member.getId());
+        }
+        assertThat(ids).hasSize(threads * perThread);
+        for (int t = 0; t < threads; t++) {
+            for (int i = 0; i < perThread; i++) {
+                assertThat(reopened.findByName("spring" + t + "-" + i)).isPresent();
+            }
+        }
+        reopened.close();
+    }
+}
@@ -0,0 +1,56 @@
+package hello.hello_spring.repository;
+
+import hello.hello_spring.domain.Member;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.nio.file.Path;
+import java.util.List;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+class MappedFileMemberRepositoryTest {
+
+    @TempDir
+    Path dir;
+
+    @Test
+    public void 재시작_후_복구() throws Exception {
+        Path file = dir.resolve("members.dat");
+
+        MappedFileMemberRepository repository = new MappedFileMemberRepository(file);
+        Member member1 = new Member();
+        member1.setName("spring1");
+        repository.save(member1);
+
+        Member member2 = new Member();
+        member2.setName("스프링2");
+        repository.save(member2);
+        repository.close();
+
+        // 다시 열면 파일을 스캔해서 인덱스를 복구한다.
+        MappedFileMemberRepository reopened = new MappedFileMemberRepository(file);
+
+        assertThat(reopened.findById(member1.getId()).get().getName()).isEqualTo("spring1");
+        assertThat(reopened.findByName("스프링2").get().getId()).isEqualTo(member2.getId());
+
+        List<Member> result = reopened.findAll();
+        assertThat(result.size()).isEqualTo(2);
+
+        // 새로 저장하면 이어서 id가 발급된다.
+        Member member3 = new Member();
+        member3.setName("spring3");
+        reopened.save(member3);
+        assertThat(member3.getId()).isEqualTo(3L);
+        reopened.close();
+    }
+
+    @Test
+    public void 없는_회원_조회() throws Exception {
+        MappedFileMemberRepository repository = new MappedFileMemberRepository(dir.resolve("empty.dat"));
+
+        assertThat(repository.findById(1L)).isEmpty();
+        assertThat(repository.findByName("nobody")).isEmpty();
+        repository.close();
+    }
+}
@@ -0,0 +1,76 @@
+package hello.hello_spring.repository;
+
+import hello.hello_spring.domain.Member;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.io.IOException;
+import java.nio.channels.FileChannel;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.List;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+class MemberWriteAheadLogTest {
+
+    @TempDir
+    Path dir;
+
+    @Test
+    public void 다시_열면_순서대로_재생된다() throws IOException {
+        // given
+        Path file = dir.resolve("members.wal");
+        try (MemberWriteAheadLog log = new MemberWriteAheadLog(file)) {
+            log.sync(log.append(member(1L, "spring1")));
+            log.sync(log.append(member(2L, null)));
+            log.sync(log.append(member(3L, "스프링")));
+        }
+
+        // when
+        List<Member> replayed = new ArrayList<>();
+        try (MemberWriteAheadLog log = new MemberWriteAheadLog(file)) {
+            log.replay(replayed::add);
+        }
+
+        // then
+        assertThat(replayed).extracting(Member::getId).containsExactly(1L, 2L, 3L);
+        assertThat(replayed).extracting(Member::getName).containsExactly("spring1", null, "스프링");
+    }
+
+    @Test
+    public void 쓰다_만_레코드는_잘라낸다() throws IOException {
+        // given
+        Path file = dir.resolve("members.wal");
+        try (MemberWriteAheadLog log = new MemberWriteAheadLog(file)) {
+            log.sync(log.append(member(1L, "spring1")));
+            log.sync(log.append(member(2L, "spring2")));
+        }
+        // 마지막 레코드의 끝 3바이트가 디스크에 못 내려간 상황
+        try (FileChannel channel = FileChannel.open(file, StandardOpenOption.WRITE)) {
+            channel.truncate(channel.size() - 3);
+        }
+
+        // when
+        List<Member> replayed = new ArrayList<>();
+        try (MemberWriteAheadLog log = new MemberWriteAheadLog(file)) {
+            log.replay(replayed::add);
+            log.sync(log.append(member(3L, "spring3")));
+        }
+        try (MemberWriteAheadLog log = new MemberWriteAheadLog(file)) {
+            replayed.clear();
+            log.replay(replayed::add);
+        }
+
+        // then
+        assertThat(replayed).extracting(Member::getId).containsExactly(1L, 3L);
+    }
+
+    private static Member member(Long id, String name) {
+        Member member = new Member();
+        member.setId(id);
+        member.setName(name);
+        return member;
+    }
+}
@@ -5,7 +5,13 @@ import org.assertj.core.api.Assertions;
 import org.junit.jupiter.api.AfterEach;
 import org.junit.jupiter.api.Test;
 
+import java.util.HashSet;
 import java.util.List;
+import java.util.Set;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
 
 import static org.assertj.core.api.Assertions.assertThat;
 
@@ -60,4 +66,101 @@ public class MemoryMemberRepositoryTest {
 
         assertThat(result.size()).isEqualTo(2);
     }
+
+    @Test
+    public void findPage() {
+        for (int i = 1; i <= 5; i++) {
+            Member member = new Member();
+            member.setName("spring" + i);
+            repository.save(member);
+        }
+        List<Member> all = repository.findAll();
+        Long firstId = all.get(0).getId();
+
+        List<Member> page1 = repository.findPage(null, 2);
+        List<Member> page2 = repository.findPage(page1.get(1).getId(), 2);
+        List<Member> page3 = repository.findPage(page2.get(1).getId(), 2);
+
+        assertThat(page1).extracting(Member::getId).containsExactly(firstId, firstId + 1);
+        assertThat(page2).extracting(Member::getId).containsExactly(firstId + 2, firstId + 3);
+        assertThat(page3).extracting(Member::getId).containsExactly(firstId + 4);
+    }
+
+    @Test
+    public void searchByName() {
+        for (String name : new String[]{"kimchi", "kim", "lee", "spring", "springboot", "abspringcd", "sprXing"}) {
+            Member member = new Member();
+            member.setName(name);
+            repository.save(member);
+        }
+
+        // 접두어는 이름 순, limit까지만
+        assertThat(repository.searchByNamePrefix("kim", 10)).extracting(Member::getName).containsExactly("kim", "kimchi");
+        assertThat(repository.searchByNamePrefix("kim", 1)).extracting(Member::getName).containsExactly("kim");
+
+        // 3-gram이 다 맞아도 실제로 이어져 있어야 한다. (sprXing은 제외)
+        assertThat(repository.searchByNameContaining("spring", 10)).extracting(Member::getName)
+                .containsExactlyInAnyOrder("spring", "springboot", "abspringcd");
+        // 3글자보다 짧은 검색어
+        assertThat(repository.searchByNameContaining("ee", 10)).extracting(Member::getName).containsExactly("lee");
+        // 1, 2글자도 조각 목록에서 바로 찾기 때문에 긴 검색어처럼 id 순이다.
+        assertThat(repository.searchByNameContaining("k", 10)).extracting(Member::getName).containsExactly("kimchi", "kim");
+        assertThat(repository.searchByNameContaining("i", 3)).extracting(Member::getName).containsExactly("kimchi", "kim", "spring");
+        assertThat(repository.searchByNameContaining("ng", 10)).extracting(Member::getName)
+                .containsExactly("spring", "springboot", "abspringcd", "sprXing");
+        assertThat(repository.searchByNameContaining("q", 10)).isEmpty();
+        assertThat(repository.searchByNameContaining("zzz", 10)).isEmpty();
+    }
+
+    @Test
+    public void 동시_저장() throws Exception {
+        int threads = Runtime.getRuntime().availableProcessors() * 2;
+        int perThread = 10_000;
+
+        // 처리량은 MemberRepositoryBenchmark(-Pjmh.threads)로 잰다. 여기서는 결과가 맞는지만 본다.
+        saveConcurrently(threads, perThread);
+
+        // 유실된 회원도, 중복된 id도 없어야 한다.
+        List<Member> result = repository.findAll();
+        assertThat(result.size()).isEqualTo(threads * perThread);
+
+        Set<Long> ids = new HashSet<>();
+        for (Member member : result) {
+            ids.add(member.getId());
+        }
+        assertThat(ids.size()).isEqualTo(threads * perThread);
+
+        // 이름 인덱스도 같이 맞아야 한다.
+        Member found = repository.findByName("t0-0").get();
+        assertThat(found.getName()).isEqualTo("t0-0");
+    }
+
+    private void saveConcurrently(int threads, int perThread) throws InterruptedException {
+        ExecutorService executor = Executors.newFixedThreadPool(threads);
+        CountDownLatch start = new CountDownLatch(1);
+        CountDownLatch done = new CountDownLatch(threads);
+
+        for (int t = 0; t < threads; t++) {
+            String prefix = "t" + t + "-";
+            executor.submit(() -> {
+                try {
+                    start.await();
+                    for (int i = 0; i < perThread; i++) {
+                        Member member = new Member();
+                        member.setName(prefix + i);
+                        repository.save(member);
+                    }
+                } catch (InterruptedException e) {
+                    Thread.currentThread().interrupt();
+                } finally {
+                    done.countDown();
+                }
+            });
+        }
+
+        start.countDown();
+        done.await();
+        executor.shutdown();
+        assertThat(executor.awaitTermination(10, TimeUnit.SECONDS)).isTrue();
+    }
 }
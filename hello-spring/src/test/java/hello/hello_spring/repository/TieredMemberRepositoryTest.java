@@ -0,0 +1,154 @@
+package hello.hello_spring.repository;
+
+import hello.hello_spring.domain.Member;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+import org.springframework.dao.DuplicateKeyException;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.jdbc.datasource.DataSourceTransactionManager;
+import org.springframework.jdbc.datasource.DriverManagerDataSource;
+
+import java.nio.file.Path;
+import java.util.Map;
+import java.util.UUID;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+
+// 메모리 H2에 sql/ddl.sql과 같은 member 테이블을 만들고 돌린다.
+// DB 장애는 테이블 이름을 바꿔서 흉내 낸다. (insert가 전부 실패한다)
+class TieredMemberRepositoryTest {
+
+    @TempDir
+    Path dir;
+
+    DriverManagerDataSource dataSource;
+    JdbcTemplate jdbcTemplate;
+    DataSourceTransactionManager transactionManager;
+
+    @BeforeEach
+    public void beforeEach() {
+        dataSource = new DriverManagerDataSource("jdbc:h2:mem:tiered-" + UUID.randomUUID() + ";DB_CLOSE_DELAY=-1", "sa", "");
+        jdbcTemplate = new JdbcTemplate(dataSource);
+        jdbcTemplate.execute("create table member (id bigint generated by default as identity, name varchar(255),"
+                + " primary key (id), constraint uk_member_name unique (name))");
+        transactionManager = new DataSourceTransactionManager(dataSource);
+    }
+
+    @AfterEach
+    public void afterEach() {
+        jdbcTemplate.execute("shutdown");
+    }
+
+    private TieredMemberRepository open(int queueCapacity, long enqueueTimeoutMillis) {
+        return new TieredMemberRepository(new JdbcTemplateMemberRepository(dataSource), dataSource, transactionManager,
+                dir.resolve("members.wal"), queueCapacity, enqueueTimeoutMillis);
+    }
+
+    private static Member member(String name) {
+        Member member = new Member();
+        member.setName(name);
+        return member;
+    }
+
+    // 큐가 비고, 거절된 회원까지 합쳐서 expected명이 DB 반영을 마치고, 로그가 비워질 때까지 기다린다.
+    private static void awaitFlushed(TieredMemberRepository repository, long expected) throws InterruptedException {
+        for (int i = 0; i < 500; i++) {
+            Map<String, Object> stats = repository.stats();
+            if ((Integer) stats.get("queueDepth") == 0 && (Long) stats.get("flushed") >= expected
+                    && (Long) stats.get("logBytes") == 0) {
+                return;
+            }
+            Thread.sleep(20);
+        }
+        throw new AssertionError("DB 반영이 끝나지 않았습니다. " + repository.stats());
+    }
+
+    private int countRows() {
+        return jdbcTemplate.queryForObject("select count(*) from member", Integer.class);
+    }
+
+    @Test
+    public void 재시작하면_로그에만_있는_회원을_DB에_넣는다() throws Exception {
+        // given: DB가 죽은 동안 저장하고 그대로 종료
+        TieredMemberRepository repository = open(100, 1000);
+        jdbcTemplate.execute("alter table member rename to member_off");
+        repository.save(member("spring1"));
+        repository.save(member("spring2"));
+        repository.close();
+        jdbcTemplate.execute("alter table member_off rename to member");
+        assertThat(countRows()).isEqualTo(0);
+
+        // when
+        TieredMemberRepository reopened = open(100, 1000);
+
+        // then
+        assertThat(countRows()).isEqualTo(2);
+        assertThat(reopened.findByName("spring2").get().getId()).isEqualTo(2L);
+        assertThat(reopened.stats().get("logBytes")).isEqualTo(0L);
+        reopened.close();
+
+        // identity도 따라와서 다른 경로의 insert가 id로 부딪히지 않는다.
+        jdbcTemplate.update("insert into member(name) values (?)", "plain");
+        assertThat(jdbcTemplate.queryForObject("select id from member where name = 'plain'", Long.class)).isEqualTo(3L);
+    }
+
+    @Test
+    public void DB_제약에_걸린_회원만_빼고_넣는다() throws Exception {
+        // given: 이 리포지토리를 거치지 않고 같은 이름이 먼저 들어왔다.
+        TieredMemberRepository repository = open(100, 1000);
+        jdbcTemplate.update("insert into member(id, name) values (?, ?)", 1000L, "taken");
+
+        // when
+        repository.save(member("before"));
+        repository.save(member("taken"));
+        repository.save(member("after"));
+        awaitFlushed(repository, 3);
+
+        // then: 영원히 다시 시도하지 않고 걸린 회원만 버린다.
+        assertThat(repository.stats().get("rejected")).isEqualTo(1);
+        assertThat(repository.findByName("taken")).isEmpty();
+        assertThat(repository.findByName("after")).isPresent();
+        assertThat(countRows()).isEqualTo(3);
+        assertThat(repository.stats().get("logBytes")).isEqualTo(0L);
+        repository.close();
+    }
+
+    @Test
+    public void 중복_이름은_로그와_큐에_남지_않는다() throws Exception {
+        TieredMemberRepository repository = open(100, 1000);
+        repository.save(member("spring"));
+
+        assertThrows(DuplicateKeyException.class, () -> repository.save(member("spring")));
+
+        awaitFlushed(repository, 1);
+        assertThat(repository.stats().get("flushed")).isEqualTo(1L);
+        assertThat(repository.findAll()).hasSize(1);
+        assertThat(countRows()).isEqualTo(1);
+        repository.close();
+    }
+
+    @Test
+    public void 큐가_꽉_차면_기다렸다가_실패() throws Exception {
+        // given: DB가 죽어서 큐가 줄지 않는다.
+        TieredMemberRepository repository = open(2, 50);
+        jdbcTemplate.execute("alter table member rename to member_off");
+        repository.save(member("spring1"));
+        repository.save(member("spring2"));
+
+        // when, then
+        assertThrows(IllegalStateException.class, () -> repository.save(member("spring3")));
+        // 실패한 회원은 이름 자리도 돌려받는다.
+        assertThat(repository.findByName("spring3")).isEmpty();
+
+        // DB가 살아나면 다시 들어간다.
+        jdbcTemplate.execute("alter table member_off rename to member");
+        awaitFlushed(repository, 2);
+        repository.save(member("spring3"));
+        awaitFlushed(repository, 3);
+        assertThat(countRows()).isEqualTo(3);
+        repository.close();
+    }
+}
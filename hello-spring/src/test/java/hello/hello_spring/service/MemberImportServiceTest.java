@@ -0,0 +1,98 @@
+package hello.hello_spring.service;
+
+import hello.hello_spring.domain.Member;
+import hello.hello_spring.repository.MemoryMemberRepository;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import java.io.StringReader;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.List;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+class MemberImportServiceTest {
+
+    MemoryMemberRepository memberRepository;
+    MemberService memberService;
+    MemberImportService memberImportService;
+
+    @BeforeEach
+    public void beforeEach() {
+        memberRepository = new MemoryMemberRepository();
+        memberService = new MemberService(memberRepository);
+        // 묶음이 여러 번 나뉘는 것까지 보려고 작게 잡는다.
+        memberImportService = new MemberImportService(memberService, 2);
+    }
+
+    @AfterEach
+    public void afterEach() {
+        memberRepository.clearStore();
+    }
+
+    @Test
+    void CSV_회원_가져오기() throws Exception {
+        // given
+        Member existing = new Member();
+        existing.setName("spring");
+        memberService.join(existing);
+
+        String csv = "name,city\n"
+                + "kim,seoul\n"
+                + "\"lee, jr.\",busan\r\n"
+                + "spring,seoul\n"
+                + "\n"
+                + "kim\n"
+                + ",daegu\n"
+                + "\"park \"\"p\"\"\"\n";
+        List<MemberImportProgress> progress = new ArrayList<>();
+
+        // when
+        MemberImportProgress result = memberImportService.importCsv(new StringReader(csv), progress::add);
+
+        // then
+        assertThat(result.rows()).isEqualTo(6);
+        assertThat(result.imported()).isEqualTo(3);
+        assertThat(result.duplicates()).isEqualTo(2);   // 이미 있는 spring, 파일 안에서 겹친 kim
+        assertThat(result.invalid()).isEqualTo(1);      // 빈 이름
+        assertThat(result.done()).isTrue();
+        assertThat(progress).hasSize(3);
+        assertThat(progress.get(progress.size() - 1)).isEqualTo(result);
+
+        assertThat(memberRepository.findByName("lee, jr.")).isPresent();
+        assertThat(memberRepository.findByName("park \"p\"")).isPresent();
+        assertThat(memberRepository.findAll()).hasSize(4);
+    }
+
+    @Test
+    void 묶음_중간에_부딪히면_남은_회원은_가져온_것으로_센다() throws Exception {
+        // given
+        // 확인과 저장 사이에 다른 요청이 lee로 먼저 가입한다. -> kim은 이미 들어간 채로 lee에서 부딪힌다.
+        // 메모리 저장소에는 트랜잭션이 없어서 kim이 롤백되지 않는다.
+        MemoryMemberRepository racing = new MemoryMemberRepository() {
+            boolean raced;
+
+            @Override
+            public List<Member> saveAll(Collection<Member> members) {
+                if (!raced) {
+                    raced = true;
+                    Member other = new Member();
+                    other.setName("lee");
+                    save(other);
+                }
+                return super.saveAll(members);
+            }
+        };
+        MemberImportService importService = new MemberImportService(new MemberService(racing), 2);
+
+        // when
+        MemberImportProgress result = importService.importCsv(new StringReader("kim\nlee\n"), progress -> { });
+
+        // then
+        assertThat(result.imported()).isEqualTo(1);     // kim
+        assertThat(result.duplicates()).isEqualTo(1);   // 먼저 들어온 lee
+        assertThat(racing.findAll()).hasSize(2);
+    }
+}
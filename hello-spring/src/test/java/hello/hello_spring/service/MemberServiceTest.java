@@ -7,7 +7,13 @@ import org.junit.jupiter.api.AfterEach;
 import org.junit.jupiter.api.BeforeEach;
 import org.junit.jupiter.api.Test;
 
+import java.util.List;
 import java.util.Optional;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
 
 import static org.assertj.core.api.Assertions.*;
 import static org.junit.jupiter.api.Assertions.assertThrows;
@@ -73,6 +79,100 @@ class MemberServiceTest {
         // then
     }
 
+    @Test
+    void 동시_중복_회원가입() throws Exception {
+        // given
+        int threads = 16;
+        ExecutorService executor = Executors.newFixedThreadPool(threads);
+        CountDownLatch start = new CountDownLatch(1);
+        AtomicInteger joined = new AtomicInteger();
+        AtomicInteger rejected = new AtomicInteger();
+
+        // when: 같은 이름으로 동시에 가입
+        for (int i = 0; i < threads; i++) {
+            executor.submit(() -> {
+                Member member = new Member();
+                member.setName("spring");
+                try {
+                    start.await();
+                    memberService.join(member);
+                    joined.incrementAndGet();
+                } catch (IllegalStateException e) {
+                    rejected.incrementAndGet();
+                } catch (InterruptedException e) {
+                    Thread.currentThread().interrupt();
+                }
+            });
+        }
+        start.countDown();
+        executor.shutdown();
+        executor.awaitTermination(10, TimeUnit.SECONDS);
+
+        // then: 딱 한 명만 가입된다.
+        assertThat(joined.get()).isEqualTo(1);
+        assertThat(rejected.get()).isEqualTo(threads - 1);
+        assertThat(memberService.findMembers().size()).isEqualTo(1);
+    }
+
+    @Test
+    void 일괄_회원가입() {
+        // given
+        Member member1 = new Member();
+        member1.setName("spring1");
+
+        Member member2 = new Member();
+        member2.setName("spring2");
+
+        // when
+        List<Long> ids = memberService.joinAll(List.of(member1, member2));
+
+        // then
+        assertThat(ids).containsExactly(member1.getId(), member2.getId());
+        assertThat(memberService.findOne(ids.get(1)).get().getName()).isEqualTo("spring2");
+    }
+
+    @Test
+    void 일괄_회원가입_중복_예외() {
+        // given
+        Member member1 = new Member();
+        member1.setName("spring1");
+        memberService.join(member1);
+
+        Member member2 = new Member();
+        member2.setName("spring2");
+
+        Member member3 = new Member();
+        member3.setName("spring1");
+
+        // when
+        IllegalStateException e = assertThrows(IllegalStateException.class,
+                () -> memberService.joinAll(List.of(member2, member3)));
+
+        // then
+        assertThat(e.getMessage()).isEqualTo("이미 존재하는 회원입니다.");
+        assertThat(memberService.findMembers().size()).isEqualTo(1);
+    }
+
+    @Test
+    void 이름_필터_적재_후_일괄_회원가입_중복_예외() {
+        // given
+        // 서비스를 거치지 않고 들어간 회원도 시작할 때 필터에 들어가야 한다.
+        Member member1 = new Member();
+        member1.setName("spring1");
+        memberRepository.save(member1);
+        memberService.loadNameFilter();
+
+        Member member2 = new Member();
+        member2.setName("spring1");
+
+        // when
+        IllegalStateException e = assertThrows(IllegalStateException.class,
+                () -> memberService.joinAll(List.of(member2)));
+
+        // then
+        assertThat(e.getMessage()).isEqualTo("이미 존재하는 회원입니다.");
+    }
+
     @Test
     void findMembers() {
     }
@@ -0,0 +1,39 @@
+package hello.hello_spring.service;
+
+import org.junit.jupiter.api.Test;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+class ScalableBloomFilterTest {
+
+    @Test
+    public void 넣은_값은_항상_있다고_답한다() {
+        // 처음 용량의 100배를 넣어서 필터가 여러 번 늘어나게 한다.
+        ScalableBloomFilter filter = new ScalableBloomFilter(1_000, 0.01);
+        for (int i = 0; i < 100_000; i++) {
+            filter.put("member" + i);
+        }
+
+        assertThat(filter.segmentCount()).isGreaterThan(1);
+        for (int i = 0; i < 100_000; i++) {
+            assertThat(filter.mightContain("member" + i)).isTrue();
+        }
+    }
+
+    @Test
+    public void 오탐률() {
+        ScalableBloomFilter filter = new ScalableBloomFilter(1_000, 0.01);
+        for (int i = 0; i < 100_000; i++) {
+            filter.put("member" + i);
+        }
+
+        int falsePositives = 0;
+        for (int i = 0; i < 100_000; i++) {
+            if (filter.mightContain("other" + i)) {
+                falsePositives++;
+            }
+        }
+        // 늘어나도 전체 오탐률은 처음 정한 값의 두 배 안쪽이다.
+        assertThat(falsePositives / 100_000.0).isLessThan(0.02);
+    }
+}
@@ -0,0 +1,129 @@
+package jpabook.jpashop_2.benchmark;
+
+import jpabook.jpashop_2.Jpashop2Application;
+import jpabook.jpashop_2.domain.Order;
+import jpabook.jpashop_2.repository.OrderCursor;
+import jpabook.jpashop_2.repository.OrderRepository;
+import jpabook.jpashop_2.repository.order.simplequery.OrderSimpleQueryDto;
+import jpabook.jpashop_2.repository.order.simplequery.OrderSimpleQueryRepository;
+import org.openjdk.jmh.annotations.*;
+import org.springframework.boot.WebApplicationType;
+import org.springframework.boot.builder.SpringApplicationBuilder;
+import org.springframework.context.ConfigurableApplicationContext;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import javax.sql.DataSource;
+import java.sql.Timestamp;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * 주문 목록 페이지 깊이별 응답 시간: offset 페이징 vs 커서(keyset) 페이징
+ * 내장 H2에 rows 건 주문을 넣어두고 page 번째 페이지(limit 100)를 읽는다.
+ * - offsetEntity: /api/v3.1/orders (findAllWithMemberDelivery(offset, limit))
+ * - cursorEntity: /api/v3.3/orders (findAllWithMemberDelivery(OrderCursor, limit))
+ * - cursorDto: /api/v5/simple-orders (OrderSimpleQueryRepository.findOrderDtos(OrderCursor, limit))
+ * offset은 page가 커질수록 느려지고, 커서는 page와 상관없이 같아야 한다.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(value = 1, jvmArgsAppend = "-Xmx4g")
+public class OrderPagingBenchmark {
+
+    static final int LIMIT = 100;
+    // InitDb가 시퀀스로 넣는 주문과 겹치지 않게 한참 뒤 id부터 넣는다.
+    static final long FIRST_ID = 10_000_000L;
+
+    @Param({"1000000"})
+    int rows;
+
+    @Param({"1", "100", "9999"})
+    int page;
+
+    ConfigurableApplicationContext context;
+    OrderRepository orderRepository;
+    OrderSimpleQueryRepository orderSimpleQueryRepository;
+    TransactionTemplate readOnly;
+
+    int offset;
+    OrderCursor cursor;
+
+    @Setup(Level.Trial)
+    public void setUp() {
+        // 웹 서버 없이 컨텍스트만 띄운다. SQL 로그, p6spy, 메트릭/JFR AOP는 끈다.
+        context = new SpringApplicationBuilder(Jpashop2Application.class)
+                .web(WebApplicationType.NONE)
+                .properties(
+                        "spring.datasource.url=jdbc:h2:mem:paging;DB_CLOSE_DELAY=-1",
+                        "spring.jpa.hibernate.ddl-auto=create",
+                        "logging.level.org.hibernate.SQL=warn",
+                        "decorator.datasource.enabled=false",
+                        "jpashop.metrics.enabled=false",
+                        "jpashop.jfr.enabled=false")
+                .run();
+
+        readOnly = new TransactionTemplate(context.getBean(PlatformTransactionManager.class));
+        readOnly.setReadOnly(true);
+        orderRepository = context.getBean(OrderRepository.class);
+        orderSimpleQueryRepository = context.getBean(OrderSimpleQueryRepository.class);
+
+        JdbcTemplate jdbcTemplate = new JdbcTemplate(context.getBean(DataSource.class));
+        seed(jdbcTemplate);
+
+        // page 번째 페이지의 시작 위치 = 그 앞 페이지 마지막 주문
+        offset = (page - 1) * LIMIT;
+        if (offset > 0) {
+            cursor = jdbcTemplate.queryForObject(
+                    "select order_date, order_id from orders order by order_date desc, order_id desc offset ? rows fetch next 1 rows only",
+                    (rs, rowNum) -> OrderCursor.of(rs.getTimestamp(1).toLocalDateTime(), rs.getLong(2)),
+                    offset - 1);
+        }
+    }
+
+    // JPA로 100만 건을 persist 하면 셋업만 한참 걸리니까 JDBC 배치로 바로 넣는다.
+    // 주문 2개씩 같은 주문 시각 -> (orderDate, id) 중 id로 순서가 갈리는 경우도 들어간다.
+    private void seed(JdbcTemplate jdbcTemplate) {
+        jdbcTemplate.update("insert into member (member_id, name, city, street, zipcode) values (?, 'bench', '서울', '강가', '123-123')", FIRST_ID);
+
+        LocalDateTime start = LocalDateTime.of(2020, 1, 1, 0, 0);
+        int batch = 10_000;
+        for (int from = 0; from < rows; from += batch) {
+            List<Object[]> deliveries = new ArrayList<>(batch);
+            List<Object[]> orders = new ArrayList<>(batch);
+            for (int i = from; i < Math.min(from + batch, rows); i++) {
+                long id = FIRST_ID + i;
+                deliveries.add(new Object[]{id});
+                orders.add(new Object[]{id, FIRST_ID, id, Timestamp.valueOf(start.plusSeconds(i / 2))});
+            }
+            jdbcTemplate.batchUpdate("insert into delivery (delivery_id, city, street, zipcode, status) values (?, '서울', '강가', '123-123', 'READY')", deliveries);
+            jdbcTemplate.batchUpdate("insert into orders (order_id, member_id, delivery_id, order_date, status) values (?, ?, ?, ?, 'ORDER')", orders);
+        }
+    }
+
+    @TearDown(Level.Trial)
+    public void tearDown() {
+        context.close();
+    }
+
+    @Benchmark
+    public List<Order> offsetEntity() {
+        return readOnly.execute(status -> orderRepository.findAllWithMemberDelivery(offset, LIMIT));
+    }
+
+    @Benchmark
+    public List<Order> cursorEntity() {
+        return readOnly.execute(status -> orderRepository.findAllWithMemberDelivery(cursor, LIMIT));
+    }
+
+    @Benchmark
+    public List<OrderSimpleQueryDto> cursorDto() {
+        return readOnly.execute(status -> orderSimpleQueryRepository.findOrderDtos(cursor, LIMIT));
+    }
+}
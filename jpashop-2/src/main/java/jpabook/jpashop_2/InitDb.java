@@ -5,6 +5,7 @@ import jakarta.persistence.EntityManager;
 import jpabook.jpashop_2.domain.*;
 import jpabook.jpashop_2.domain.Item.Book;
 import lombok.RequiredArgsConstructor;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
 import org.springframework.stereotype.Component;
 import org.springframework.transaction.annotation.Transactional;
 
@@ -18,8 +19,10 @@ import org.springframework.transaction.annotation.Transactional;
  *      * SPRING1 BOOK
  *      * SPRING2 BOOK
  */
+// 테스트에서는 끈다. (test의 application.yml) -> 테스트가 직접 넣은 주문만 보이게
 @Component
 @RequiredArgsConstructor
+@ConditionalOnProperty(name = "jpashop.init-db.enabled", havingValue = "true", matchIfMissing = true)
 public class InitDb {
 
     private final InitService initService;
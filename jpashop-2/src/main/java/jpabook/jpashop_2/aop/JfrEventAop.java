@@ -0,0 +1,154 @@
+package jpabook.jpashop_2.aop;
+
+import jakarta.servlet.http.HttpServletRequest;
+import jpabook.jpashop_2.jfr.RepositoryQueryEvent;
+import jpabook.jpashop_2.jfr.SqlRecorder;
+import jpabook.jpashop_2.jfr.TransactionEvent;
+import org.aspectj.lang.ProceedingJoinPoint;
+import org.aspectj.lang.annotation.Around;
+import org.aspectj.lang.annotation.Aspect;
+import org.aspectj.lang.reflect.MethodSignature;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.core.Ordered;
+import org.springframework.core.annotation.AnnotatedElementUtils;
+import org.springframework.core.annotation.Order;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.annotation.Transactional;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+import org.springframework.util.ClassUtils;
+import org.springframework.web.context.request.RequestAttributes;
+import org.springframework.web.context.request.RequestContextHolder;
+import org.springframework.web.context.request.ServletRequestAttributes;
+
+import java.lang.reflect.Method;
+import java.util.Collection;
+import java.util.Map;
+import java.util.Optional;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.stream.BaseStream;
+
+// JFR 커스텀 이벤트 (jfr 패키지)
+// - 리포지토리 메서드 -> jpashop.RepositoryQuery (SQL 모양, 결과 행 수, 시간)
+// - @Transactional 서비스 메서드(MemberService, OrderService, ItemService) -> jpashop.Transaction
+// - 재고 감소는 Item.removeStock이 직접 남긴다. -> jpashop.StockDecrement
+// JFR 녹화가 꺼져 있으면 isEnabled() 확인 한 번만 하고 바로 proceed 한다. (이벤트 객체는 JIT가 없애준다.)
+// 트랜잭션 커밋 시간까지 재려고 트랜잭션 인터셉터보다 바깥에 선다. -> HIGHEST_PRECEDENCE
+@Aspect
+@Component
+@Order(Ordered.HIGHEST_PRECEDENCE)
+@ConditionalOnProperty(name = "jpashop.jfr.enabled", havingValue = "true", matchIfMissing = true)
+public class JfrEventAop {
+
+    // 메서드마다 readOnly를 한 번만 찾는다. (메서드의 @Transactional이 없으면 클래스의 것)
+    private final ConcurrentMap<Method, Boolean> readOnly = new ConcurrentHashMap<>();
+
+    @Around("within(jpabook.jpashop_2..*) && @within(org.springframework.stereotype.Repository)")
+    public Object repository(ProceedingJoinPoint joinPoint) throws Throwable {
+        RepositoryQueryEvent event = new RepositoryQueryEvent();
+        if (!event.isEnabled()) {
+            return joinPoint.proceed();
+        }
+
+        SqlRecorder recorder = SqlRecorder.start();
+        event.begin();
+        Object result = null;
+        try {
+            result = joinPoint.proceed();
+            return result;
+        } finally {
+            recorder.stop();
+            event.end();
+            if (event.shouldCommit()) {
+                MethodSignature signature = (MethodSignature) joinPoint.getSignature();
+                event.repository = ClassUtils.getUserClass(joinPoint.getTarget()).getSimpleName();
+                event.method = signature.getName();
+                event.sql = recorder.getSql();
+                event.statements = recorder.getStatements();
+                event.rows = signature.getReturnType() == void.class ? -1 : rows(result);
+                event.endpoint = endpoint();
+                event.commit();
+            }
+        }
+    }
+
+    @Around("within(jpabook.jpashop_2..*) && @within(org.springframework.stereotype.Service)"
+            + " && (@within(org.springframework.transaction.annotation.Transactional)"
+            + " || @annotation(org.springframework.transaction.annotation.Transactional))")
+    public Object transaction(ProceedingJoinPoint joinPoint) throws Throwable {
+        TransactionEvent event = new TransactionEvent();
+        if (!event.isEnabled()) {
+            return joinPoint.proceed();
+        }
+
+        // 트랜잭션 인터셉터보다 먼저 들어오니까 여기서 이미 트랜잭션이 있으면 바깥 것에 참여하는 호출이다.
+        boolean joined = TransactionSynchronizationManager.isActualTransactionActive();
+        SqlRecorder recorder = SqlRecorder.start();
+        event.begin();
+        boolean committed = false;
+        try {
+            Object result = joinPoint.proceed();
+            committed = true;
+            return result;
+        } finally {
+            recorder.stop();
+            event.end();
+            if (event.shouldCommit()) {
+                Method method = ((MethodSignature) joinPoint.getSignature()).getMethod();
+                event.service = ClassUtils.getUserClass(joinPoint.getTarget()).getSimpleName();
+                event.method = method.getName();
+                event.readOnly = readOnly(method, joinPoint.getTarget());
+                event.joined = joined;
+                event.outcome = committed ? "commit" : "rollback";
+                event.statements = recorder.getStatements();
+                event.endpoint = endpoint();
+                event.commit();
+            }
+        }
+    }
+
+    private boolean readOnly(Method method, Object target) {
+        Boolean cached = readOnly.get(method);
+        if (cached == null) {
+            Transactional transactional = AnnotatedElementUtils.findMergedAnnotation(method, Transactional.class);
+            if (transactional == null) {
+                transactional = AnnotatedElementUtils.findMergedAnnotation(ClassUtils.getUserClass(target), Transactional.class);
+            }
+            cached = transactional != null && transactional.readOnly();
+            readOnly.put(method, cached);
+        }
+        return cached;
+    }
+
+    // 컬렉션이면 크기, 엔티티 하나면 1, null이면 0
+    // 스트림, count 같은 숫자 결과는 행 수를 알 수 없어서 -1
+    static long rows(Object result) {
+        if (result == null) {
+            return 0;
+        }
+        if (result instanceof Collection<?> collection) {
+            return collection.size();
+        }
+        if (result instanceof Map<?, ?> map) {
+            return map.size();
+        }
+        if (result instanceof Optional<?> optional) {
+            return optional.isPresent() ? 1 : 0;
+        }
+        if (result instanceof Number || result instanceof Boolean || result instanceof Iterable<?>
+                || result instanceof BaseStream<?, ?>) {
+            return -1;
+        }
+        return 1;
+    }
+
+    // 요청 스레드면 "GET /api/v2/orders", 아니면(스케줄러, 배치) null
+    private static String endpoint() {
+        RequestAttributes attributes = RequestContextHolder.getRequestAttributes();
+        if (attributes instanceof ServletRequestAttributes servletAttributes) {
+            HttpServletRequest request = servletAttributes.getRequest();
+            return request.getMethod() + " " + request.getRequestURI();
+        }
+        return null;
+    }
+}
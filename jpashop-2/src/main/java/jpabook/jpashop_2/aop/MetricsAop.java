@@ -0,0 +1,76 @@
+package jpabook.jpashop_2.aop;
+
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+import lombok.RequiredArgsConstructor;
+import org.aspectj.lang.ProceedingJoinPoint;
+import org.aspectj.lang.annotation.Around;
+import org.aspectj.lang.annotation.Aspect;
+import org.aspectj.lang.reflect.MethodSignature;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.stereotype.Component;
+import org.springframework.util.ClassUtils;
+
+import java.lang.reflect.Method;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.TimeUnit;
+
+// 리포지토리(@Repository), 서비스(@Service) 메서드별 Micrometer 타이머 -> /actuator/prometheus
+// OrderRepository, OrderQueryRepository, OrderService, ItemService ... 전부 같은 규칙으로 잡힌다.
+// 타이머 하나에 호출 수(count), 누적 시간(sum), 최대(max)가 같이 나온다. -> 카운터를 따로 두지 않는다.
+//   jpashop_repository_seconds_count{class="OrderRepository",method="findAllWithMemberDelivery",exception="none"}
+// 예외로 끝난 호출은 exception 태그에 예외 클래스 이름이 붙는다.
+@Aspect
+@Component
+@RequiredArgsConstructor
+@ConditionalOnProperty(name = "jpashop.metrics.enabled", havingValue = "true", matchIfMissing = true)
+public class MetricsAop {
+
+    private static final String REPOSITORY_TIMER = "jpashop.repository";
+    private static final String SERVICE_TIMER = "jpashop.service";
+
+    private final MeterRegistry meterRegistry;
+    // 성공한 호출의 타이머는 메서드별로 한 번만 만든다. (registry에서 매번 찾으면 태그 정렬 + 맵 조회)
+    private final ConcurrentMap<Method, Timer> timers = new ConcurrentHashMap<>();
+
+    @Around("within(jpabook.jpashop_2..*) && @within(org.springframework.stereotype.Repository)")
+    public Object repository(ProceedingJoinPoint joinPoint) throws Throwable {
+        return record(REPOSITORY_TIMER, joinPoint);
+    }
+
+    @Around("within(jpabook.jpashop_2..*) && @within(org.springframework.stereotype.Service)")
+    public Object service(ProceedingJoinPoint joinPoint) throws Throwable {
+        return record(SERVICE_TIMER, joinPoint);
+    }
+
+    private Object record(String name, ProceedingJoinPoint joinPoint) throws Throwable {
+        long start = System.nanoTime();
+        Object result;
+        try {
+            result = joinPoint.proceed();
+        } catch (Throwable e) {
+            // 예외는 드물어서 그때그때 registry에서 찾는다.
+            timer(name, joinPoint, e.getClass().getSimpleName())
+                    .record(System.nanoTime() - start, TimeUnit.NANOSECONDS);
+            throw e;
+        }
+        long elapsed = System.nanoTime() - start;
+
+        Method method = ((MethodSignature) joinPoint.getSignature()).getMethod();
+        Timer timer = timers.get(method);
+        if (timer == null) {
+            timer = timers.computeIfAbsent(method, m -> timer(name, joinPoint, "none"));
+        }
+        timer.record(elapsed, TimeUnit.NANOSECONDS);
+        return result;
+    }
+
+    private Timer timer(String name, ProceedingJoinPoint joinPoint, String exception) {
+        return Timer.builder(name)
+                .tag("class", ClassUtils.getUserClass(joinPoint.getTarget()).getSimpleName())
+                .tag("method", joinPoint.getSignature().getName())
+                .tag("exception", exception)
+                .register(meterRegistry);
+    }
+}
@@ -0,0 +1,48 @@
+package jpabook.jpashop_2.api;
+
+import jpabook.jpashop_2.repository.OrderCursor;
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import org.springframework.http.HttpStatus;
+import org.springframework.web.server.ResponseStatusException;
+
+import java.util.List;
+import java.util.function.Function;
+
+// 커서 페이징 응답 { "data": [...], "next": "다음 페이지 토큰" }
+// 다음 페이지가 없으면 next = null
+@Data
+@AllArgsConstructor
+class CursorResult<T> {
+
+    private List<T> data;
+    private String next;
+
+    /**
+     * 요청 limit을 최대 크기로 자른다. 리포지토리에는 이것보다 1개 더 달라고 해서 다음 페이지가 있는지 본다.
+     */
+    static int pageSize(int limit) {
+        if (limit < 1) {
+            throw new ResponseStatusException(HttpStatus.BAD_REQUEST, "limit은 1 이상이어야 합니다.");
+        }
+        return Math.min(limit, OrderCursor.MAX_LIMIT);
+    }
+
+    static OrderCursor cursor(String token) {
+        try {
+            return OrderCursor.decode(token);
+        } catch (IllegalArgumentException e) {
+            throw new ResponseStatusException(HttpStatus.BAD_REQUEST, e.getMessage(), e);
+        }
+    }
+
+    /**
+     * rows는 pageSize + 1 개까지 읽어온 결과
+     */
+    static <R, T> CursorResult<T> of(List<R> rows, int pageSize, Function<R, OrderCursor> position, Function<R, T> mapper) {
+        boolean hasNext = rows.size() > pageSize;
+        List<R> page = hasNext ? rows.subList(0, pageSize) : rows;
+        String next = hasNext ? position.apply(page.get(page.size() - 1)).encode() : null;
+        return new CursorResult<>(page.stream().map(mapper).toList(), next);
+    }
+}
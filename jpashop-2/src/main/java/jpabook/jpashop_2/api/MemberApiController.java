@@ -1,22 +1,34 @@
 package jpabook.jpashop_2.api;
 
+import jakarta.servlet.http.HttpServletRequest;
 import jakarta.validation.Valid;
 import jakarta.validation.constraints.NotEmpty;
 import jpabook.jpashop_2.domain.Member;
+import jpabook.jpashop_2.service.MemberImportService;
 import jpabook.jpashop_2.service.MemberService;
 import lombok.AllArgsConstructor;
 import lombok.Data;
 import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.http.MediaType;
 import org.springframework.web.bind.annotation.*;
+import org.springframework.web.servlet.mvc.method.annotation.StreamingResponseBody;
+import tools.jackson.databind.ObjectMapper;
 
+import java.io.*;
+import java.nio.charset.StandardCharsets;
 import java.util.List;
+import java.util.Map;
 import java.util.stream.Collectors;
 
+@Slf4j
 @RestController
 @RequiredArgsConstructor
 public class MemberApiController {
 
     private final MemberService memberService;
+    private final MemberImportService memberImportService;
+    private final ObjectMapper objectMapper;
 
     @GetMapping("/api/v1/members")
     public List<Member> membersV1() {
@@ -76,6 +88,46 @@ public class MemberApiController {
         return new Result(collect);
     }
 
+    // 회원 이름 자동완성: /api/v2/members/search?prefix=ki&limit=10
+    @GetMapping("/api/v2/members/search")
+    public Result searchMembersV2(@RequestParam("prefix") String prefix,
+                                  @RequestParam(value = "limit", defaultValue = "10") int limit) {
+        List<MemberDto> collect = memberService.searchMembers(prefix, Math.max(1, Math.min(limit, 100))).stream()
+                .map(m -> new MemberDto(m.getName()))
+                .collect(Collectors.toList());
+        return new Result(collect);
+    }
+
+    // CSV 회원 일괄 가져오기
+    // curl -X POST -H 'Content-Type: text/csv' --data-binary @members.csv localhost:8080/api/v2/members/import
+    // 요청 본문을 파일로 받아두지 않고 읽는 대로 가입시킨다. (multipart면 서버가 임시 파일에 먼저 다 받는다)
+    // 응답은 묶음이 끝날 때마다 진행 상황 한 줄씩 (NDJSON), 마지막 줄이 done: true
+    @PostMapping(value = "/api/v2/members/import", consumes = {"text/csv", MediaType.TEXT_PLAIN_VALUE},
+            produces = MediaType.APPLICATION_NDJSON_VALUE)
+    public StreamingResponseBody importMembersV2(HttpServletRequest request) throws IOException {
+        InputStream body = request.getInputStream();
+        return out -> {
+            BufferedReader reader = new BufferedReader(new InputStreamReader(body, StandardCharsets.UTF_8), 64 * 1024);
+            try {
+                memberImportService.importCsv(reader, progress -> writeLine(out, progress));
+            } catch (IOException | RuntimeException e) {
+                // 응답 헤더는 이미 나갔기 때문에 상태 코드 대신 마지막 줄로 알려준다.
+                log.warn("회원 가져오기 실패", e);
+                writeLine(out, Map.of("error", String.valueOf(e.getMessage()), "done", true));
+            }
+        };
+    }
+
+    private void writeLine(OutputStream out, Object line) {
+        try {
+            out.write(objectMapper.writeValueAsBytes(line));
+            out.write('\n');
+            out.flush();
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+    }
+
     @Data
     @AllArgsConstructor
     static class Result<T> {
@@ -4,6 +4,7 @@ import jpabook.jpashop_2.domain.Address;
 import jpabook.jpashop_2.domain.Order;
 import jpabook.jpashop_2.domain.OrderItem;
 import jpabook.jpashop_2.domain.OrderStatus;
+import jpabook.jpashop_2.repository.OrderCursor;
 import jpabook.jpashop_2.repository.OrderRepository;
 import jpabook.jpashop_2.repository.OrderSearch;
 import jpabook.jpashop_2.repository.order.query.OrderFlatDto;
@@ -12,9 +13,17 @@ import jpabook.jpashop_2.repository.order.query.OrderQueryDto;
 import jpabook.jpashop_2.repository.order.query.OrderQueryRepository;
 import lombok.Getter;
 import lombok.RequiredArgsConstructor;
+import org.springframework.http.MediaType;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
 import org.springframework.web.bind.annotation.GetMapping;
 import org.springframework.web.bind.annotation.RequestParam;
 import org.springframework.web.bind.annotation.RestController;
+import org.springframework.web.servlet.mvc.method.annotation.StreamingResponseBody;
+import tools.jackson.databind.ObjectMapper;
+import tools.jackson.databind.ObjectWriter;
+import tools.jackson.databind.SequenceWriter;
+import tools.jackson.databind.SerializationFeature;
 
 import java.time.LocalDateTime;
 import java.util.List;
@@ -28,6 +37,8 @@ public class OrderApiController {
 
     private final OrderRepository orderRepository;
     private final OrderQueryRepository orderQueryRepository;
+    private final ObjectMapper objectMapper;
+    private final PlatformTransactionManager transactionManager;
 
     @GetMapping("/api/v1/orders")
     public List<Order> ordersV1() {
@@ -183,6 +194,37 @@ public class OrderApiController {
         return result;
     }
 
+    // v3을 페이징 할 수 있게 바꾼 것 (두 단계)
+    // 주문 id만 먼저 잘라오고, 그 id들만 페치 조인으로 한 번에 가져온다. -> OrderRepository.findAllWithItem(offset, limit)
+    // 쿼리는 2번이고 메모리 페이징 경고(HHH90003004)가 안 나온다.
+    // v3.1과 달리 orderItems, item을 배치 IN 쿼리 여러 번이 아니라 2번째 쿼리 한 번에 같이 가져온다.
+    @GetMapping("/api/v3.2/orders")
+    public List<OrderDto> ordersV3_idPage(@RequestParam(value = "offset", defaultValue = "0") int offset,
+                                          @RequestParam(value = "limit", defaultValue = "100") int limit)
+    {
+        List<Order> orders = orderRepository.findAllWithItem(offset, limit);
+
+        return orders.stream()
+                .map(o -> new OrderDto(o))
+                .collect(toList());
+    }
+
+    // v3.1을 커서(keyset) 페이징으로 바꾼 것
+    // offset은 1만 번째 페이지면 DB가 앞의 100만 건을 읽고 버린다. -> 뒤로 갈수록 느려진다.
+    // 커서는 마지막 주문의 (orderDate, id)에서 바로 이어 읽으니까 몇 번째 페이지든 같은 속도다.
+    // 첫 페이지: /api/v3.3/orders?limit=100 -> 응답의 next를 다음 요청에 cursor로 넘긴다.
+    @GetMapping("/api/v3.3/orders")
+    public CursorResult<OrderDto> ordersV3_cursor(@RequestParam(value = "cursor", required = false) String cursor,
+                                                  @RequestParam(value = "limit", defaultValue = "100") int limit)
+    {
+        int pageSize = CursorResult.pageSize(limit);
+        List<Order> orders = orderRepository.findAllWithMemberDelivery(CursorResult.cursor(cursor), pageSize + 1);
+
+        return CursorResult.of(orders, pageSize,
+                o -> OrderCursor.of(o.getOrderDate(), o.getId()),
+                o -> new OrderDto(o));
+    }
+
     // Query: 루트 1번, 컬렉션 N번 실행
     // ToOne(N:1, 1:1) 관계들을 먼저 조회하고, ToMany(1:N) 관계는 각각 별도로 처리한다.
     // 이런 방식을 선택한 이유는 다음과 같다.
@@ -224,6 +266,28 @@ public class OrderApiController {
 
     }
 
+    /**
+     * v7: v6과 같은 조인 한 번인데, 결과를 List로 모으지 않고 주문 하나씩 바로 응답에 쓴다.
+     * - order by o.id로 앞으로만 읽으면서 옆에 붙은 행끼리 묶는다. (OrderQueryRepository.streamAllByDto_flat)
+     * - 주문이 몇 개든 메모리에는 지금 묶는 주문 하나만 있고, 서블릿 버퍼만 차면 응답이 나가기 시작한다.
+     * - 응답은 v6과 같은 모양의 JSON 배열 (v6과 달리 주문 순서가 o.id 순서로 유지된다.)
+     * 응답을 쓰는 동안 커넥션을 잡고 있어야 해서 읽기 전용 트랜잭션을 응답 스레드에서 직접 연다.
+     */
+    @GetMapping(value = "api/v7/orders", produces = MediaType.APPLICATION_JSON_VALUE)
+    public StreamingResponseBody ordersV7() {
+        // 주문마다 flush하면 주문 하나가 청크 하나가 된다. -> 서블릿 버퍼가 찰 때만 내보낸다.
+        ObjectWriter writer = objectMapper.writerFor(OrderQueryDto.class)
+                .without(SerializationFeature.FLUSH_AFTER_WRITE_VALUE);
+        TransactionTemplate readOnly = new TransactionTemplate(transactionManager);
+        readOnly.setReadOnly(true);
+
+        return out -> {
+            try (SequenceWriter orders = writer.writeValuesAsArray(out)) {
+                readOnly.executeWithoutResult(status -> orderQueryRepository.streamAllByDto_flat(orders::write));
+            }
+        };
+    }
+
     // no properties 오류가 나온다면 보통 getter, setter 오류
     // simple하게 @Data쓰는데 회사의 룰에 따라서 @Data가 해주는게 많아서 안쓰는게 나을 수도 있다.
     // 원래는 orderItems가 Entity여서 null이 나와야 하는데 왜 내 환경에서는 나오지?
@@ -3,6 +3,7 @@ package jpabook.jpashop_2.api;
 import jpabook.jpashop_2.domain.Address;
 import jpabook.jpashop_2.domain.Order;
 import jpabook.jpashop_2.domain.OrderStatus;
+import jpabook.jpashop_2.repository.OrderCursor;
 import jpabook.jpashop_2.repository.OrderRepository;
 import jpabook.jpashop_2.repository.OrderSearch;
 import jpabook.jpashop_2.repository.order.simplequery.OrderSimpleQueryDto;
@@ -10,6 +11,7 @@ import jpabook.jpashop_2.repository.order.simplequery.OrderSimpleQueryRepository
 import lombok.Data;
 import lombok.RequiredArgsConstructor;
 import org.springframework.web.bind.annotation.GetMapping;
+import org.springframework.web.bind.annotation.RequestParam;
 import org.springframework.web.bind.annotation.RestController;
 
 import java.time.LocalDateTime;
@@ -147,6 +149,18 @@ public class OrderSimpleApiController {
         return orderSimpleQueryRepository.findOrderDtos();
     }
 
+    // v4(DTO 직접 조회)를 커서(keyset) 페이징으로 -> v3.3/orders와 같은 토큰을 쓴다.
+    @GetMapping("/api/v5/simple-orders")
+    public CursorResult<OrderSimpleQueryDto> ordersV5(@RequestParam(value = "cursor", required = false) String cursor,
+                                                      @RequestParam(value = "limit", defaultValue = "100") int limit) {
+        int pageSize = CursorResult.pageSize(limit);
+        List<OrderSimpleQueryDto> orders = orderSimpleQueryRepository.findOrderDtos(CursorResult.cursor(cursor), pageSize + 1);
+
+        return CursorResult.of(orders, pageSize,
+                o -> OrderCursor.of(o.getOrderDate(), o.getOrderId()),
+                o -> o);
+    }
+
     @Data
     static class SimpleOrderDto {
         private Long orderId;
@@ -3,14 +3,18 @@ package jpabook.jpashop_2.controller;
 import jpabook.jpashop_2.domain.Item.Item;
 import jpabook.jpashop_2.domain.Member;
 import jpabook.jpashop_2.domain.Order;
+import jpabook.jpashop_2.repository.OrderCursor;
 import jpabook.jpashop_2.repository.OrderSearch;
+import jpabook.jpashop_2.repository.OrderSearchQuery;
 import jpabook.jpashop_2.service.ItemService;
 import jpabook.jpashop_2.service.MemberService;
 import jpabook.jpashop_2.service.OrderService;
 import lombok.RequiredArgsConstructor;
+import org.springframework.http.HttpStatus;
 import org.springframework.stereotype.Controller;
 import org.springframework.ui.Model;
 import org.springframework.web.bind.annotation.*;
+import org.springframework.web.server.ResponseStatusException;
 
 import java.util.List;
 
@@ -46,7 +50,22 @@ public class OrderController {
     @GetMapping("/orders")
     public String orderList(@ModelAttribute("orderSearch") OrderSearch orderSearch, Model model) {
 
-        List<Order> orders = orderService.findOrders(orderSearch);
+        // 깨진 커서 토큰은 500이 아니라 400 (CursorResult.cursor와 같이)
+        try {
+            OrderCursor.decode(orderSearch.getCursor());
+        } catch (IllegalArgumentException e) {
+            throw new ResponseStatusException(HttpStatus.BAD_REQUEST, e.getMessage(), e);
+        }
+
+        // 꽉 찬 페이지가 마지막 페이지일 수도 있다. -> 한 개 더 읽어서 정말 다음 주문이 있을 때만 커서를 넘긴다. (CursorResult.of와 같이)
+        int pageSize = OrderSearchQuery.pageSize(orderSearch);
+        List<Order> orders = orderService.findOrdersWithNext(orderSearch);
+        boolean hasNext = orders.size() > pageSize;
+        if (hasNext) {
+            orders = orders.subList(0, pageSize);
+            Order last = orders.get(pageSize - 1);
+            model.addAttribute("nextCursor", OrderCursor.of(last.getOrderDate(), last.getId()).encode());
+        }
         model.addAttribute("orders", orders);
 
         return "order/orderList";
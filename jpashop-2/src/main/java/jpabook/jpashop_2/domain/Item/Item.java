@@ -3,6 +3,7 @@ package jpabook.jpashop_2.domain.Item;
 import jakarta.persistence.*;
 import jpabook.jpashop_2.domain.Category;
 import jpabook.jpashop_2.exception.NotEnoughStockException;
+import jpabook.jpashop_2.jfr.StockDecrementEvent;
 import lombok.Getter;
 import lombok.Setter;
 
@@ -37,10 +38,29 @@ public abstract class Item {
      * stock 감소
      */
     public void removeStock(int quantity) {
+        // JFR 녹화 중일 때만 남는다. (주문 -> OrderItem.createOrderItem -> 여기)
+        StockDecrementEvent event = new StockDecrementEvent();
+        event.begin();
+
         int restStock = this.stockQuantity - quantity;
         if (restStock < 0) {
+            commitStockEvent(event, quantity, false);
             throw new NotEnoughStockException("need more stock");
         }
         this.stockQuantity = restStock;
+        commitStockEvent(event, quantity, true);
+    }
+
+    private void commitStockEvent(StockDecrementEvent event, int quantity, boolean success) {
+        if (!event.shouldCommit()) {
+            return;
+        }
+        event.itemId = id == null ? 0 : id;
+        event.itemName = name;
+        event.quantity = quantity;
+        event.stockAfter = stockQuantity;
+        event.stockBefore = success ? stockQuantity + quantity : stockQuantity;
+        event.success = success;
+        event.commit();
     }
 }
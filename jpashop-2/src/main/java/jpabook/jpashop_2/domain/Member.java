@@ -9,7 +9,11 @@ import lombok.Setter;
 import java.util.ArrayList;
 import java.util.List;
 
+// 회원 이름 검색(주문 검색, 자동완성)이 like 'kim%'로 나가기 때문에 name에 인덱스를 건다.
+// 이름 중복은 unique 제약이 마지막으로 막는다. (MemberService의 블룸 필터, select 확인은 그 앞에서 거르는 것뿐)
 @Entity
+@Table(indexes = @Index(name = "idx_member_name", columnList = "name"),
+        uniqueConstraints = @UniqueConstraint(name = "uk_member_name", columnNames = "name"))
 @Getter @Setter
 public class Member {
 
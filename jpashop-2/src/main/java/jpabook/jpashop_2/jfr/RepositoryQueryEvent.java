@@ -0,0 +1,32 @@
+package jpabook.jpashop_2.jfr;
+
+import jdk.jfr.*;
+
+// 리포지토리 메서드 한 번 = 이벤트 하나 (JfrEventAop가 남긴다)
+// sql은 Hibernate가 만든 그대로라서 값 대신 ? 가 들어간 모양(shape)이다. 여러 개면 ; 로 잇는다.
+// 호출이 잦아서 스택 트레이스는 안 남긴다. 어느 요청에서 불렀는지는 endpoint로 본다.
+@Name("jpashop.RepositoryQuery")
+@Label("Repository Query")
+@Category({"jpashop", "Repository"})
+@StackTrace(false)
+public class RepositoryQueryEvent extends Event {
+
+    @Label("Repository")
+    public String repository;
+
+    @Label("Method")
+    public String method;
+
+    @Label("SQL")
+    public String sql;
+
+    @Label("Statements")
+    public int statements;
+
+    // 결과가 컬렉션이면 크기, 엔티티 하나면 1, 없으면 0, 알 수 없으면(스트림, void) -1
+    @Label("Rows")
+    public long rows;
+
+    @Label("Endpoint")
+    public String endpoint;
+}
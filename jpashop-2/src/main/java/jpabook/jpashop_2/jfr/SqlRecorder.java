@@ -0,0 +1,57 @@
+package jpabook.jpashop_2.jfr;
+
+// 지금 스레드에서 진행 중인 리포지토리 호출 / 트랜잭션이 날린 SQL을 모은다.
+// SqlShapeInspector가 Hibernate가 문장을 준비할 때마다 record를 부른다.
+// 겹쳐서 열릴 수 있다. (트랜잭션 안의 리포지토리 호출) -> 바깥쪽까지 전부 센다.
+// JFR 녹화가 꺼져 있으면 아무도 start를 안 부르기 때문에 record는 ThreadLocal 조회 한 번으로 끝난다.
+public final class SqlRecorder {
+
+    private static final int MAX_SQL_LENGTH = 2000;
+    private static final ThreadLocal<SqlRecorder> CURRENT = new ThreadLocal<>();
+
+    private final SqlRecorder parent;
+    private final StringBuilder sql = new StringBuilder();
+    private int statements;
+
+    private SqlRecorder(SqlRecorder parent) {
+        this.parent = parent;
+    }
+
+    public static SqlRecorder start() {
+        SqlRecorder recorder = new SqlRecorder(CURRENT.get());
+        CURRENT.set(recorder);
+        return recorder;
+    }
+
+    public void stop() {
+        if (parent == null) {
+            CURRENT.remove();
+        } else {
+            CURRENT.set(parent);
+        }
+    }
+
+    static void record(String statement) {
+        for (SqlRecorder recorder = CURRENT.get(); recorder != null; recorder = recorder.parent) {
+            recorder.add(statement);
+        }
+    }
+
+    private void add(String statement) {
+        statements++;
+        if (sql.length() < MAX_SQL_LENGTH) {
+            if (sql.length() > 0) {
+                sql.append("; ");
+            }
+            sql.append(statement, 0, Math.min(statement.length(), MAX_SQL_LENGTH - sql.length()));
+        }
+    }
+
+    public String getSql() {
+        return sql.toString();
+    }
+
+    public int getStatements() {
+        return statements;
+    }
+}
@@ -0,0 +1,14 @@
+package jpabook.jpashop_2.jfr;
+
+import org.hibernate.resource.jdbc.spi.StatementInspector;
+
+// Hibernate가 SQL을 준비하기 직전에 불러준다. (hibernate.session_factory.statement_inspector)
+// SQL은 바꾸지 않고 SqlRecorder에 넘기기만 한다.
+public class SqlShapeInspector implements StatementInspector {
+
+    @Override
+    public String inspect(String sql) {
+        SqlRecorder.record(sql);
+        return sql;
+    }
+}
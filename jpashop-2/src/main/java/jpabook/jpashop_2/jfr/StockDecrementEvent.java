@@ -0,0 +1,29 @@
+package jpabook.jpashop_2.jfr;
+
+import jdk.jfr.*;
+
+// 주문할 때 재고 감소 (Item.removeStock)
+// 재고가 모자라서 실패한 것도 success = false 로 남긴다.
+@Name("jpashop.StockDecrement")
+@Label("Stock Decrement")
+@Category({"jpashop", "Order"})
+public class StockDecrementEvent extends Event {
+
+    @Label("Item Id")
+    public long itemId;
+
+    @Label("Item Name")
+    public String itemName;
+
+    @Label("Quantity")
+    public int quantity;
+
+    @Label("Stock Before")
+    public int stockBefore;
+
+    @Label("Stock After")
+    public int stockAfter;
+
+    @Label("Success")
+    public boolean success;
+}
@@ -0,0 +1,33 @@
+package jpabook.jpashop_2.jfr;
+
+import jdk.jfr.*;
+
+// @Transactional 서비스 메서드 한 번 = 이벤트 하나 (커밋/롤백 시간까지 포함)
+// 이미 열린 트랜잭션에 참여한 호출은 joined = true (진짜 경계는 joined = false 인 것)
+@Name("jpashop.Transaction")
+@Label("Transaction")
+@Category({"jpashop", "Service"})
+public class TransactionEvent extends Event {
+
+    @Label("Service")
+    public String service;
+
+    @Label("Method")
+    public String method;
+
+    @Label("Read Only")
+    public boolean readOnly;
+
+    @Label("Joined")
+    public boolean joined;
+
+    // commit, rollback
+    @Label("Outcome")
+    public String outcome;
+
+    @Label("Statements")
+    public int statements;
+
+    @Label("Endpoint")
+    public String endpoint;
+}
@@ -0,0 +1,153 @@
+package jpabook.jpashop_2.repository;
+
+import jakarta.annotation.PreDestroy;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.List;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.Function;
+import java.util.function.ToLongFunction;
+
+// "where x.id in :ids" 쿼리를 id가 아무리 많아도 안전하게 돌린다. (쿼리 리포지토리들이 같이 쓴다.)
+// 1. id를 정렬하고 중복을 뺀 다음 최대 CHUNK_SIZE 개씩 나눈다. -> DB가 거절하거나 이상하게 플랜을 짜는 거대한 IN 절이 안 생긴다.
+// 2. 모자란 자리는 마지막 id로 채워서 파라미터 개수를 1, 2, 4, ... 512 중 하나로 맞춘다.
+//    -> id 개수마다 SQL이 달라서 쿼리 플랜 캐시가 오염되던 것이 SQL 10개 모양으로 끝난다.
+// 3. 덩어리가 여러 개면 제한된 스레드 풀에서 동시에 돌린다. 덩어리마다 읽기 전용 트랜잭션(= 커넥션)이 따로 잡힌다.
+//    풀과 대기열이 꽉 차면 부른 스레드가 직접 돌린다. (CallerRunsPolicy)
+// 커넥션 제약: 동시에 도는 건 부른 스레드에 아무 트랜잭션 자원도 묶여 있지 않을 때뿐이다.
+// - 부른 스레드가 트랜잭션 안이거나(읽기 전용 포함) OSIV로 EntityManager가 묶여 있으면 이미 커넥션을 잡고 있을 수 있다.
+//   그 상태로 다른 커넥션을 기다리면 요청 수만큼 커넥션이 묶여서 히카리 풀(기본 10개)이 바닥나고 덩어리들이 타임아웃 난다.
+//   쓰기 트랜잭션이면 아직 커밋 안 한 데이터가 다른 커넥션에서 안 보이는 문제도 있다.
+//   -> 그때는 부른 스레드에서 덩어리를 하나씩 차례로 돌린다. (나누기, 패딩, long 키 맵은 그대로)
+// - 동시에 돌 때 이 실행기가 쓰는 커넥션은 최대 threads(jpashop.in-query.threads) 개다. 커넥션 풀은 이것보다 넉넉해야 한다.
+// -> 웹 요청(OSIV 켜짐)에서는 차례로 돌고, 배치나 비동기 스레드처럼 아무것도 안 묶인 스레드에서 부를 때 동시에 돈다.
+@Component
+public class InQueryExecutor {
+
+    public static final int CHUNK_SIZE = 512;
+
+    private final TransactionTemplate readOnly;
+    private final ThreadPoolExecutor executor;
+
+    public InQueryExecutor(PlatformTransactionManager transactionManager,
+                           @Value("${jpashop.in-query.threads:4}") int threads) {
+        readOnly = new TransactionTemplate(transactionManager);
+        readOnly.setReadOnly(true);
+
+        AtomicInteger sequence = new AtomicInteger();
+        executor = new ThreadPoolExecutor(threads, threads, 60, TimeUnit.SECONDS,
+                new ArrayBlockingQueue<>(threads * 16),
+                r -> {
+                    Thread thread = new Thread(r, "in-query-" + sequence.incrementAndGet());
+                    thread.setDaemon(true);
+                    return thread;
+                },
+                new ThreadPoolExecutor.CallerRunsPolicy());
+        executor.allowCoreThreadTimeOut(true);
+    }
+
+    /**
+     * ids를 덩어리로 나눠서 query를 돌리고 결과를 이어 붙인다. (덩어리 순서대로)
+     * query에 넘어가는 id 목록은 패딩 때문에 같은 id가 여러 번 들어 있을 수 있다. -> IN 절이라 결과는 같다.
+     */
+    public <R> List<R> execute(Collection<Long> ids, Function<List<Long>, List<R>> query) {
+        List<List<Long>> chunks = chunks(ids);
+        if (chunks.isEmpty()) {
+            return new ArrayList<>();
+        }
+        if (chunks.size() == 1 || holdsTransactionResources()) {
+            List<R> result = new ArrayList<>();
+            for (List<Long> chunk : chunks) {
+                result.addAll(query.apply(chunk));
+            }
+            return result;
+        }
+
+        List<CompletableFuture<List<R>>> futures = new ArrayList<>(chunks.size());
+        for (List<Long> chunk : chunks) {
+            futures.add(CompletableFuture.supplyAsync(() -> readOnly.execute(status -> query.apply(chunk)), executor));
+        }
+
+        List<R> result = new ArrayList<>();
+        try {
+            for (CompletableFuture<List<R>> future : futures) {
+                result.addAll(future.join());
+            }
+        } catch (CompletionException e) {
+            futures.forEach(f -> f.cancel(false));
+            if (e.getCause() instanceof RuntimeException cause) {
+                throw cause;
+            }
+            throw e;
+        }
+        return result;
+    }
+
+    /**
+     * execute 결과를 key(보통 부모 id)별 목록으로 묶는다.
+     */
+    public <R> LongObjectMap<List<R>> group(Collection<Long> ids, Function<List<Long>, List<R>> query, ToLongFunction<R> key) {
+        List<R> rows = execute(ids, query);
+        LongObjectMap<List<R>> grouped = new LongObjectMap<>(ids.size());
+        for (R row : rows) {
+            grouped.computeIfAbsent(key.applyAsLong(row), k -> new ArrayList<>()).add(row);
+        }
+        return grouped;
+    }
+
+    static List<List<Long>> chunks(Collection<Long> ids) {
+        long[] sorted = new long[ids.size()];
+        int n = 0;
+        for (Long id : ids) {
+            if (id != null) {
+                sorted[n++] = id;
+            }
+        }
+        Arrays.sort(sorted, 0, n);
+        int unique = 0;
+        for (int i = 0; i < n; i++) {
+            if (unique == 0 || sorted[unique - 1] != sorted[i]) {
+                sorted[unique++] = sorted[i];
+            }
+        }
+
+        List<List<Long>> chunks = new ArrayList<>((unique + CHUNK_SIZE - 1) / CHUNK_SIZE);
+        for (int from = 0; from < unique; from += CHUNK_SIZE) {
+            int to = Math.min(from + CHUNK_SIZE, unique);
+            int padded = Integer.highestOneBit(to - from) == to - from ? to - from : Math.min(Integer.highestOneBit(to - from) << 1, CHUNK_SIZE);
+            List<Long> chunk = new ArrayList<>(padded);
+            for (int i = from; i < to; i++) {
+                chunk.add(sorted[i]);
+            }
+            Long last = sorted[to - 1];
+            while (chunk.size() < padded) {
+                chunk.add(last);
+            }
+            chunks.add(chunk);
+        }
+        return chunks;
+    }
+
+    // 트랜잭션이 있거나 EntityManager, 커넥션 같은 자원이 스레드에 묶여 있으면(OSIV) true
+    private static boolean holdsTransactionResources() {
+        return TransactionSynchronizationManager.isActualTransactionActive()
+                || !TransactionSynchronizationManager.getResourceMap().isEmpty();
+    }
+
+    @PreDestroy
+    public void shutdown() {
+        executor.shutdownNow();
+    }
+}
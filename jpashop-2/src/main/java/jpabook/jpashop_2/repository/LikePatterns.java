@@ -0,0 +1,16 @@
+package jpabook.jpashop_2.repository;
+
+// like 검색어 만들기
+// 사용자가 입력한 %, _ 는 와일드카드가 아니라 글자 그대로 찾아야 하기 때문에 \ 로 이스케이프한다.
+// 쿼리에는 escape '\' 를 같이 붙인다.
+final class LikePatterns {
+
+    private LikePatterns() {
+    }
+
+    // 'kim%' 처럼 앞이 고정되면 member.name 인덱스(idx_member_name)로 범위 검색이 된다.
+    // '%kim%' 는 인덱스를 못 타고 회원 테이블 전체를 훑는다.
+    static String startsWith(String prefix) {
+        return prefix.replace("\\", "\\\\").replace("%", "\\%").replace("_", "\\_") + "%";
+    }
+}
@@ -0,0 +1,118 @@
+package jpabook.jpashop_2.repository;
+
+import java.util.function.LongFunction;
+
+// long 키 전용 해시맵 (오픈 어드레싱, 선형 탐사)
+// HashMap<Long, V>는 키마다 Long 박싱 + Node 객체가 생긴다. 여기는 long[], Object[] 두 배열뿐이다.
+// 값이 null인 칸을 빈 칸으로 보기 때문에 null 값은 못 넣는다. 삭제도 없다. (쿼리 결과를 모으는 용도)
+// 스레드 안전하지 않다.
+public class LongObjectMap<V> {
+
+    private static final float LOAD_FACTOR = 0.5f;
+
+    private long[] keys;
+    private Object[] values;
+    private int size;
+    private int resizeAt;
+
+    public LongObjectMap() {
+        this(16);
+    }
+
+    public LongObjectMap(int expectedSize) {
+        int capacity = Integer.highestOneBit(Math.max(4, (int) (expectedSize / LOAD_FACTOR)) - 1) << 1;
+        keys = new long[capacity];
+        values = new Object[capacity];
+        resizeAt = (int) (capacity * LOAD_FACTOR);
+    }
+
+    @SuppressWarnings("unchecked")
+    public V get(long key) {
+        int mask = keys.length - 1;
+        for (int i = slot(key, mask); values[i] != null; i = (i + 1) & mask) {
+            if (keys[i] == key) {
+                return (V) values[i];
+            }
+        }
+        return null;
+    }
+
+    public V put(long key, V value) {
+        if (value == null) {
+            throw new NullPointerException("null 값은 넣을 수 없습니다.");
+        }
+        int i = find(key);
+        @SuppressWarnings("unchecked")
+        V old = (V) values[i];
+        keys[i] = key;
+        values[i] = value;
+        if (old == null && ++size > resizeAt) {
+            resize();
+        }
+        return old;
+    }
+
+    @SuppressWarnings("unchecked")
+    public V computeIfAbsent(long key, LongFunction<V> mapping) {
+        int i = find(key);
+        if (values[i] != null) {
+            return (V) values[i];
+        }
+        V value = mapping.apply(key);
+        keys[i] = key;
+        values[i] = value;
+        if (++size > resizeAt) {
+            resize();
+        }
+        return value;
+    }
+
+    public int size() {
+        return size;
+    }
+
+    public boolean isEmpty() {
+        return size == 0;
+    }
+
+    // key가 있는 칸, 없으면 넣을 빈 칸
+    private int find(long key) {
+        int mask = keys.length - 1;
+        int i = slot(key, mask);
+        while (values[i] != null && keys[i] != key) {
+            i = (i + 1) & mask;
+        }
+        return i;
+    }
+
+    private void resize() {
+        long[] oldKeys = keys;
+        Object[] oldValues = values;
+        keys = new long[oldKeys.length << 1];
+        values = new Object[oldValues.length << 1];
+        resizeAt = (int) (keys.length * LOAD_FACTOR);
+
+        int mask = keys.length - 1;
+        for (int j = 0; j < oldKeys.length; j++) {
+            if (oldValues[j] != null) {
+                int i = slot(oldKeys[j], mask);
+                while (values[i] != null) {
+                    i = (i + 1) & mask;
+                }
+                keys[i] = oldKeys[j];
+                values[i] = oldValues[j];
+            }
+        }
+    }
+
+    // 연속된 id가 옆 칸에 몰리지 않게 섞는다. (피보나치 해싱)
+    private static int slot(long key, int mask) {
+        long h = key * 0x9E3779B97F4A7C15L;
+        return (int) (h ^ (h >>> 32)) & mask;
+    }
+
+    @Override
+    public String toString() {
+        return "LongObjectMap{size=" + size + ", capacity=" + keys.length + "}";
+    }
+}
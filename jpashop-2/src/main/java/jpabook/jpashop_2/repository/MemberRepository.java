@@ -5,7 +5,9 @@ import jpabook.jpashop_2.domain.Member;
 import lombok.RequiredArgsConstructor;
 import org.springframework.stereotype.Repository;
 
+import java.util.Collection;
 import java.util.List;
+import java.util.stream.Stream;
 
 // repository annotation을 사용하면 컴포넌트 스캔에 의해서 자동으로 spring bean으로 관리가 된다.
 @Repository
@@ -18,6 +20,13 @@ public class MemberRepository {
         em.persist(member);
     }
 
+    // id가 시퀀스라서 persist만 하면 insert는 커밋 때 나간다.
+    // 바로 flush 해서 unique 제약 위반을 여기서 DataIntegrityViolationException으로 받는다. (@Repository 예외 변환)
+    public void saveAndFlush(Member member) {
+        em.persist(member);
+        em.flush();
+    }
+
     public Member findOne(Long id) {
         return em.find(Member.class, id);
     }
@@ -27,6 +36,38 @@ public class MemberRepository {
                 .getResultList();
     }
 
+    // 회원 이름만 커서로 읽는다. (엔티티를 만들지 않기 때문에 영속성 컨텍스트에 쌓이지 않는다)
+    // 다 쓰고 나면 반드시 close 해야 한다.
+    public Stream<String> streamNames() {
+        return em.createQuery("select m.name from Member m", String.class)
+                .setHint("org.hibernate.fetchSize", 500)
+                .setHint("org.hibernate.readOnly", true)
+                .getResultStream();
+    }
+
+    // 이름 자동완성: 이름이 prefix로 시작하는 회원을 이름 순으로 limit명
+    // idx_member_name을 따라 읽다가 limit에서 멈춘다.
+    public List<Member> searchByNamePrefix(String prefix, int limit) {
+        return em.createQuery("select m from Member m where m.name like :prefix escape '\\' order by m.name", Member.class)
+                .setParameter("prefix", LikePatterns.startsWith(prefix))
+                .setMaxResults(limit)
+                .getResultList();
+    }
+
+    // 이 이름들 중에 이미 있는 이름만 (in 절 한 번)
+    public List<String> findExistingNames(Collection<String> names) {
+        return em.createQuery("select m.name from Member m where m.name in :names", String.class)
+                .setParameter("names", names)
+                .getResultList();
+    }
+
+    // 쌓아둔 insert를 내보내고 영속성 컨텍스트를 비운다.
+    // 대량 저장에서 엔티티가 계속 쌓이지 않게 묶음마다 부른다.
+    public void flushAndClear() {
+        em.flush();
+        em.clear();
+    }
+
     public List<Member> findByName(String name) {
         return em.createQuery("select m from Member m where m.name = :name", Member.class)
                 .setParameter("name", name)
@@ -0,0 +1,71 @@
+package jpabook.jpashop_2.repository;
+
+import jakarta.persistence.TypedQuery;
+import lombok.Getter;
+
+import java.nio.charset.StandardCharsets;
+import java.time.LocalDateTime;
+import java.time.format.DateTimeParseException;
+import java.util.Base64;
+
+// 주문 목록 커서(keyset) 페이징의 위치 = 마지막으로 내려준 주문의 (orderDate, id)
+// 최신 주문부터 (orderDate desc, id desc) 내려주고, 다음 페이지는 이 위치보다 "뒤"인 주문부터 읽는다.
+// -> offset처럼 앞 페이지 행을 건너뛰며 세지 않고 인덱스(idx_orders_order_date_id)에서 바로 그 위치부터 읽는다.
+//    몇 번째 페이지든 읽는 행 수가 limit 만큼이라 응답 시간이 같다.
+// 클라이언트에는 안을 들여다볼 필요 없는 토큰(base64url)으로 준다.
+@Getter
+public final class OrderCursor {
+
+    // 한 페이지 최대 크기
+    public static final int MAX_LIMIT = 1000;
+
+    // 주문 별칭은 o
+    public static final String AFTER =
+            " o.orderDate <= :cursorOrderDate and (o.orderDate < :cursorOrderDate or o.id < :cursorId)";
+    public static final String ORDER_BY = " order by o.orderDate desc, o.id desc";
+
+    private final LocalDateTime orderDate;
+    private final Long id;
+
+    private OrderCursor(LocalDateTime orderDate, Long id) {
+        this.orderDate = orderDate;
+        this.id = id;
+    }
+
+    public static OrderCursor of(LocalDateTime orderDate, Long id) {
+        return new OrderCursor(orderDate, id);
+    }
+
+    public String encode() {
+        String raw = orderDate + "," + id;
+        return Base64.getUrlEncoder().withoutPadding().encodeToString(raw.getBytes(StandardCharsets.UTF_8));
+    }
+
+    /**
+     * 토큰이 없으면 첫 페이지(null), 깨진 토큰이면 IllegalArgumentException
+     */
+    public static OrderCursor decode(String token) {
+        if (token == null || token.isBlank()) {
+            return null;
+        }
+        try {
+            String raw = new String(Base64.getUrlDecoder().decode(token), StandardCharsets.UTF_8);
+            int comma = raw.indexOf(',');
+            if (comma < 0) {
+                throw new IllegalArgumentException("잘못된 커서: " + token);
+            }
+            return new OrderCursor(LocalDateTime.parse(raw.substring(0, comma)), Long.valueOf(raw.substring(comma + 1)));
+        } catch (DateTimeParseException | IllegalArgumentException e) {
+            // Base64 오류, NumberFormatException 둘 다 IllegalArgumentException
+            throw new IllegalArgumentException("잘못된 커서: " + token, e);
+        }
+    }
+
+    public static <T> TypedQuery<T> bind(TypedQuery<T> query, OrderCursor cursor, int limit) {
+        if (cursor != null) {
+            query.setParameter("cursorOrderDate", cursor.orderDate)
+                    .setParameter("cursorId", cursor.id);
+        }
+        return query.setMaxResults(limit);
+    }
+}
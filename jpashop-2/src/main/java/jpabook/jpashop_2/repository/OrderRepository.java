@@ -16,7 +16,11 @@ import java.util.List;
 @RequiredArgsConstructor
 public class OrderRepository {
 
+    // 두 단계 페이징에서 한 페이지 최대 크기 (2단계 IN 절 크기)
+    private static final int MAX_PAGE_SIZE = 1000;
+
     private final EntityManager em;
+    private final OrderSearchQuery orderSearchQuery;
 
     public void save(Order order) {
         em.persist(order);
@@ -50,23 +54,48 @@ public class OrderRepository {
             } else {
                 jpql += " and";
             }
-            jpql += " m.name like :name";
+            // 앞이 고정된 like라서 idx_member_name을 탄다.
+            jpql += " m.name like :name escape '\\'";
         }
 
+//        TypedQuery<Order> query = em.createQuery(jpql, Order.class)
+//                .setMaxResults(1000);    // 최대 1000건
+        // 개수는 findAll과 같이 orderSearch.limit (최대 OrderCursor.MAX_LIMIT)
         TypedQuery<Order> query = em.createQuery(jpql, Order.class)
-                .setMaxResults(1000);    // 최대 1000건
+                .setMaxResults(OrderSearchQuery.pageSize(orderSearch));
 
         if (orderSearch.getOrderStatus() != null) {
             query = query.setParameter("status", orderSearch.getOrderStatus());
         }
 
         if (StringUtils.hasText(orderSearch.getMemberName())) {
-            query = query.setParameter("name", orderSearch.getMemberName());
+            // 회원 이름으로 시작하는 주문 (kim -> kim, kimchi ...)
+            query = query.setParameter("name", LikePatterns.startsWith(orderSearch.getMemberName()));
         }
 
         return query.getResultList();
     }
 
+    /**
+     * 주문 검색 (최신 주문부터, 커서 페이징)
+     * findAllByString, findAllByCriteria와 같은 조건인데 쿼리를 조건 조합별로 한 번만 만들어 두고 재사용한다. (OrderSearchQuery)
+     * 개수는 고정 1000건 대신 orderSearch.limit, 다음 페이지는 orderSearch.cursor
+     */
+    public List<Order> findAll(OrderSearch orderSearch) {
+        return orderSearchQuery.create(em, orderSearch)
+                .getResultList();
+    }
+
+    /**
+     * findAll과 같은데 한 개를 더 읽는다. (pageSize + 1)
+     * 결과가 pageSize보다 많으면 다음 페이지가 있다. -> 마지막 한 개는 화면에 안 보여주고 버린다.
+     * 딱 pageSize 개로 끝나는 마지막 페이지에서 빈 "다음" 페이지를 안 만든다.
+     */
+    public List<Order> findAllWithNext(OrderSearch orderSearch) {
+        return orderSearchQuery.create(em, orderSearch, OrderSearchQuery.pageSize(orderSearch) + 1)
+                .getResultList();
+    }
+
     /**
      * JPA Criteria
      */
@@ -86,13 +115,17 @@ public class OrderRepository {
 
         // 회원 이름 검색
         if (StringUtils.hasText(orderSearch.getMemberName())) {
+            // '%이름%'은 회원 테이블 전체를 훑는다. -> 접두어 검색으로 바꿔서 idx_member_name을 타게 한다.
+//            Predicate name =
+//                    cb.like(m.<String>get("name"), "%" + orderSearch.getMemberName() + "%");
             Predicate name =
-                    cb.like(m.<String>get("name"), "%" + orderSearch.getMemberName() + "%");
+                    cb.like(m.<String>get("name"), LikePatterns.startsWith(orderSearch.getMemberName()), '\\');
             criteria.add(name);
         }
 
         cq.where(cb.and(criteria.toArray(new Predicate[criteria.size()])));
-        TypedQuery<Order> query = em.createQuery(cq).setMaxResults(1000);
+//        TypedQuery<Order> query = em.createQuery(cq).setMaxResults(1000);
+        TypedQuery<Order> query = em.createQuery(cq).setMaxResults(OrderSearchQuery.pageSize(orderSearch));
         return query.getResultList();
     }
 
@@ -194,6 +227,40 @@ public class OrderRepository {
                 .getResultList();
     }
 
+    /**
+     * 컬렉션 페치 조인 + 페이징 (두 단계)
+     * findAllWithItem처럼 o.orderItems를 페치 조인한 쿼리에 setFirstResult/setMaxResults를 걸면
+     * 조인 결과 전체를 읽어서 메모리에서 자른다. (HHH90003004) -> 주문이 늘수록 같이 느려진다.
+     * 1. 주문 id만 PK 인덱스 순서로 잘라온다. -> 조인이 없어서 LIMIT OFFSET이 DB에서 그대로 먹힌다.
+     * 2. 그 id들만 member, delivery, orderItems, item까지 페치 조인으로 한 번에 가져온다.
+     * -> 쿼리 2번, 읽는 행은 페이지 크기만큼이라 테이블이 커져도 한 페이지 비용이 거의 같다.
+     * distinct는 안 쓴다. Hibernate 6부터 페치 조인 결과의 중복 엔티티는 알아서 하나로 합쳐준다.
+     */
+    public List<Order> findAllWithItem(int offset, int limit) {
+        List<Long> orderIds = em.createQuery(
+                        "select o.id from Order o" +
+                                " order by o.id", Long.class)
+                .setFirstResult(offset)
+                .setMaxResults(Math.min(limit, MAX_PAGE_SIZE))
+                .getResultList();
+
+        if (orderIds.isEmpty()) {
+            return new ArrayList<>();
+        }
+
+        // 상품이 없는 주문도 페이지에서 빠지면 안 되니까 컬렉션 쪽은 left join
+        return em.createQuery(
+                        "select o from Order o" +
+                                " join fetch o.member m" +
+                                " join fetch o.delivery d" +
+                                " left join fetch o.orderItems oi" +
+                                " left join fetch oi.item i" +
+                                " where o.id in :orderIds" +
+                                " order by o.id", Order.class)
+                .setParameter("orderIds", orderIds)
+                .getResultList();
+    }
+
     // Repository에 Controller랑 의존관계 생기면 망한다.
     // 가급적이면 한방향으로 흘러야 한다.
     // 엔티티 바로 넘기는게 안된다.
@@ -259,4 +326,23 @@ public class OrderRepository {
                 .setMaxResults(limit)
                 .getResultList();
     }
+
+    /**
+     * 커서(keyset) 페이징: after 다음 주문부터 limit 개 (최신 주문 먼저)
+     * ToOne만 페치 조인하니까 findAllWithMemberDelivery(offset, limit)처럼 LIMIT이 DB에서 먹힌다.
+     * orderItems는 default_batch_fetch_size로 IN 쿼리에 묶여서 나간다.
+     * after가 null이면 첫 페이지
+     */
+    public List<Order> findAllWithMemberDelivery(OrderCursor after, int limit) {
+        String jpql = "select o from Order o" +
+                " join fetch o.member m" +
+                " join fetch o.delivery d";
+        if (after != null) {
+            jpql += " where" + OrderCursor.AFTER;
+        }
+        jpql += OrderCursor.ORDER_BY;
+
+        return OrderCursor.bind(em.createQuery(jpql, Order.class), after, limit)
+                .getResultList();
+    }
 }
@@ -9,4 +9,8 @@ public class OrderSearch {
 
     private String memberName;  // 회원 이름
     private OrderStatus orderStatus;    // 주문 상태[ORDER, CANCEL]
+
+    // 커서 페이징 (OrderRepository.findAll)
+    private String cursor;  // 이전 페이지 마지막 주문 위치 (OrderCursor 토큰), 없으면 첫 페이지
+    private int limit = 100;    // 한 페이지 주문 수 (최대 OrderCursor.MAX_LIMIT)
 }
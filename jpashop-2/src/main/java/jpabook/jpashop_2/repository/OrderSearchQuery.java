@@ -0,0 +1,113 @@
+package jpabook.jpashop_2.repository;
+
+import jakarta.persistence.EntityManager;
+import jakarta.persistence.TypedQuery;
+import jpabook.jpashop_2.domain.Order;
+import org.springframework.stereotype.Component;
+import org.springframework.util.StringUtils;
+
+import java.util.concurrent.atomic.AtomicReferenceArray;
+import java.util.function.BiConsumer;
+import java.util.function.Predicate;
+
+// 주문 검색(OrderSearch) 쿼리를 조건 조합마다 한 번만 만들어 둔다.
+// findAllByString은 요청마다 JPQL 문자열을 이어 붙이고, findAllByCriteria는 요청마다 Criteria 트리를 새로 만든다.
+// -> 여기서는 "어떤 조건이 있는지"를 비트로 만들고(shape), shape마다 JPQL을 한 번 파싱해서 named query로 등록한다.
+// -> 다음부터는 등록된 쿼리를 꺼내서 파라미터만 바인딩한다. (Hibernate가 JPQL을 다시 파싱하지 않는다.)
+// 조건 2개 + 커서 = 최대 8개 쿼리. 검색 조건이 늘면 Filter에 한 줄 추가하면 된다.
+@Component
+public class OrderSearchQuery {
+
+    enum Filter {
+        STATUS(" o.status = :status",
+                s -> s.getOrderStatus() != null,
+                (q, s) -> q.setParameter("status", s.getOrderStatus())),
+        MEMBER_NAME(" m.name like :name escape '\\'",
+                s -> StringUtils.hasText(s.getMemberName()),
+                (q, s) -> q.setParameter("name", LikePatterns.startsWith(s.getMemberName())));
+
+        private final String condition;
+        private final Predicate<OrderSearch> present;
+        private final BiConsumer<TypedQuery<?>, OrderSearch> binder;
+
+        Filter(String condition, Predicate<OrderSearch> present, BiConsumer<TypedQuery<?>, OrderSearch> binder) {
+            this.condition = condition;
+            this.present = present;
+            this.binder = binder;
+        }
+
+        int bit() {
+            return 1 << ordinal();
+        }
+    }
+
+    private static final Filter[] FILTERS = Filter.values();
+    // 커서가 있는지도 shape의 한 비트
+    private static final int CURSOR = 1 << FILTERS.length;
+
+    private final AtomicReferenceArray<String> names = new AtomicReferenceArray<>(CURSOR << 1);
+
+    /**
+     * 검색 조건, 커서, 개수(pageSize)까지 바인딩된 쿼리
+     * 깨진 커서 토큰이면 IllegalArgumentException
+     */
+    public TypedQuery<Order> create(EntityManager em, OrderSearch orderSearch) {
+        return create(em, orderSearch, pageSize(orderSearch));
+    }
+
+    /**
+     * 개수만 따로 받는다. 다음 페이지가 있는지 보려고 pageSize + 1 개를 읽을 때
+     */
+    public TypedQuery<Order> create(EntityManager em, OrderSearch orderSearch, int maxResults) {
+        OrderCursor cursor = OrderCursor.decode(orderSearch.getCursor());
+        int shape = cursor != null ? CURSOR : 0;
+        for (Filter filter : FILTERS) {
+            if (filter.present.test(orderSearch)) {
+                shape |= filter.bit();
+            }
+        }
+
+        TypedQuery<Order> query = em.createNamedQuery(name(em, shape), Order.class);
+        for (Filter filter : FILTERS) {
+            if ((shape & filter.bit()) != 0) {
+                filter.binder.accept(query, orderSearch);
+            }
+        }
+        return OrderCursor.bind(query, cursor, maxResults);
+    }
+
+    // 처음 보는 shape이면 JPQL을 만들어서 등록한다.
+    // 두 스레드가 동시에 등록해도 같은 이름에 같은 쿼리라 상관없다.
+    private String name(EntityManager em, int shape) {
+        String name = names.get(shape);
+        if (name == null) {
+            name = "OrderSearch." + shape;
+            em.getEntityManagerFactory().addNamedQuery(name, em.createQuery(jpql(shape), Order.class));
+            names.set(shape, name);
+        }
+        return name;
+    }
+
+    static String jpql(int shape) {
+        StringBuilder jpql = new StringBuilder("select o from Order o join o.member m");
+        String glue = " where";
+        for (Filter filter : FILTERS) {
+            if ((shape & filter.bit()) != 0) {
+                jpql.append(glue).append(filter.condition);
+                glue = " and";
+            }
+        }
+        if ((shape & CURSOR) != 0) {
+            jpql.append(glue).append(OrderCursor.AFTER);
+        }
+        return jpql.append(OrderCursor.ORDER_BY).toString();
+    }
+
+    /**
+     * 한 페이지 주문 수: orderSearch.limit을 1 ~ OrderCursor.MAX_LIMIT 로 자른다.
+     * 다음 페이지가 있는지 판단하는 쪽(OrderController)도 같은 값을 써야 한다.
+     */
+    public static int pageSize(OrderSearch orderSearch) {
+        return Math.max(1, Math.min(orderSearch.getLimit(), OrderCursor.MAX_LIMIT));
+    }
+}
@@ -2,12 +2,18 @@ package jpabook.jpashop_2.repository.order.query;
 
 import jakarta.persistence.EntityManager;
 import jpabook.jpashop_2.domain.Order;
+import jpabook.jpashop_2.repository.InQueryExecutor;
+import jpabook.jpashop_2.repository.LongObjectMap;
 import lombok.RequiredArgsConstructor;
+import org.hibernate.jpa.HibernateHints;
 import org.springframework.stereotype.Repository;
 
+import java.util.ArrayList;
+import java.util.Iterator;
 import java.util.List;
-import java.util.Map;
+import java.util.function.Consumer;
 import java.util.stream.Collectors;
+import java.util.stream.Stream;
 
 // package를 나누는 이유
 // OrderRepository는 진짜 오더 엔티티를 조회하거나 이런 용도로 쓰는 거고
@@ -21,7 +27,11 @@ import java.util.stream.Collectors;
 @RequiredArgsConstructor
 public class OrderQueryRepository {
 
+    // v7 스트리밍에서 DB에서 한 번에 당겨오는 행 수
+    private static final int STREAM_FETCH_SIZE = 1000;
+
     private final EntityManager em;
+    private final InQueryExecutor inQueryExecutor;
 
     // 루프를 돌면서 컬렉션 부분을 직접 채우고 있다.
     // 제일 처음에 orders를 가지고 온다. -> 2개
@@ -59,32 +69,47 @@ public class OrderQueryRepository {
         // order query에 나온 것을 갖다가 스트림으로 돌려서 아이디를 다 뽑는다.
         // List<Long> orderIds = toOrderIds(result);
         // Map<Long, List<OrderItemQueryDto>> orderItemMap = findOrderItemMap(orderIds);
-        Map<Long, List<OrderItemQueryDto>> orderItemMap = findOrderItemMap(toOrderIds(result));
+        LongObjectMap<List<OrderItemQueryDto>> orderItemMap = findOrderItemMap(toOrderIds(result));
 
         result.forEach(o -> o.setOrderItems(orderItemMap.get(o.getOrderId())));
 
         return result;
     }
 
-    private Map<Long, List<OrderItemQueryDto>> findOrderItemMap(List<Long> orderIds) {
-        List<OrderItemQueryDto> orderItems = em.createQuery(
-                        "select new jpabook.jpashop_2.repository.order.query.OrderItemQueryDto(oi.order.id, i.name, oi.orderPrice, oi.count)" +
-                                " from OrderItem oi" +
-                                " join oi.item i" +
-                                " where oi.order.id in :orderIds", OrderItemQueryDto.class)
-                .setParameter("orderIds", orderIds)
-                .getResultList();
-
-        // 최적화 한번더 -> map으로 작성
-        // -> 코드도 작성이 쉽고 성능도 더 최적화 할 수 있게 orderItems를 map으로 바꾼다.
-        // orderId를 기준으로 맵으로 바꿀 수 있다.
-        // 메모리에 넣는게 핵심
-
-        Map<Long, List<OrderItemQueryDto>> orderItemMap = orderItems.stream()
-                .collect(Collectors.groupingBy(OrderItemQueryDto -> OrderItemQueryDto.getOrderId()));
-        return orderItemMap;
+    // id가 수만 개면 IN 절 하나로는 DB가 거절하거나 플랜이 망가진다. id 개수마다 SQL 모양이 달라서 플랜 캐시도 오염된다.
+    // -> InQueryExecutor가 512개 이하 덩어리로 나누고(패딩) 돌린 다음 orderId별로 묶어준다.
+    //    트랜잭션이나 OSIV 안에서 부르면 덩어리를 차례로, 아무것도 안 묶인 스레드에서 부르면 동시에 돈다.
+    // 묶는 맵도 HashMap<Long, ...> 대신 long 키 맵 (박싱, Node 객체 없음)
+    private LongObjectMap<List<OrderItemQueryDto>> findOrderItemMap(List<Long> orderIds) {
+        return inQueryExecutor.group(orderIds, chunk -> em.createQuery(
+                                "select new jpabook.jpashop_2.repository.order.query.OrderItemQueryDto(oi.order.id, i.name, oi.orderPrice, oi.count)" +
+                                        " from OrderItem oi" +
+                                        " join oi.item i" +
+                                        " where oi.order.id in :orderIds", OrderItemQueryDto.class)
+                        .setParameter("orderIds", chunk)
+                        .getResultList(),
+                OrderItemQueryDto::getOrderId);
     }
 
+//    private Map<Long, List<OrderItemQueryDto>> findOrderItemMap(List<Long> orderIds) {
+//        List<OrderItemQueryDto> orderItems = em.createQuery(
+//                        "select new jpabook.jpashop_2.repository.order.query.OrderItemQueryDto(oi.order.id, i.name, oi.orderPrice, oi.count)" +
+//                                " from OrderItem oi" +
+//                                " join oi.item i" +
+//                                " where oi.order.id in :orderIds", OrderItemQueryDto.class)
+//                .setParameter("orderIds", orderIds)
+//                .getResultList();
+
+//        // 최적화 한번더 -> map으로 작성
+//        // -> 코드도 작성이 쉽고 성능도 더 최적화 할 수 있게 orderItems를 map으로 바꾼다.
+//        // orderId를 기준으로 맵으로 바꿀 수 있다.
+//        // 메모리에 넣는게 핵심
+
+//        Map<Long, List<OrderItemQueryDto>> orderItemMap = orderItems.stream()
+//                .collect(Collectors.groupingBy(OrderItemQueryDto -> OrderItemQueryDto.getOrderId()));
+//        return orderItemMap;
+//    }
+
     private List<Long> toOrderIds(List<OrderQueryDto> result) {
         List<Long> orderIds = result.stream()
                 .map(o -> o.getOrderId())
@@ -142,4 +167,42 @@ public class OrderQueryRepository {
                         " join oi.item i", OrderFlatDto.class)
                 .getResultList();
     }
+
+    /**
+     * v7: findAllByDto_flat과 같은 조인 한 번을 o.id 순서로 앞으로만 읽으면서 같은 주문의 행끼리 묶는다.
+     * 주문 하나가 끝날 때마다(다음 o.id가 나오면) consumer로 넘긴다.
+     * -> 전체 결과를 List로 들고 있지 않는다. 메모리에는 지금 묶고 있는 주문 하나만 있다.
+     * -> v6처럼 groupingBy용 HashMap을 안 만들어서 주문 순서도 그대로 유지된다.
+     * 읽는 동안 커넥션이 열려 있어야 하니까 트랜잭션 안에서 불러야 한다.
+     */
+    public void streamAllByDto_flat(Consumer<OrderQueryDto> consumer) {
+        try (Stream<OrderFlatDto> rows = em.createQuery(
+                        "select new jpabook.jpashop_2.repository.order.query.OrderFlatDto(o.id, m.name, o.orderDate, o.status, d.address, i.name, oi.orderPrice, oi.count)" +
+                                " from Order o" +
+                                " join o.member m" +
+                                " join o.delivery d" +
+                                " join o.orderItems oi" +
+                                " join oi.item i" +
+                                " order by o.id, oi.id", OrderFlatDto.class)
+                .setHint(HibernateHints.HINT_FETCH_SIZE, STREAM_FETCH_SIZE)
+                .setHint(HibernateHints.HINT_READ_ONLY, true)
+                .getResultStream()) {
+
+            OrderQueryDto current = null;
+            Iterator<OrderFlatDto> iterator = rows.iterator();
+            while (iterator.hasNext()) {
+                OrderFlatDto row = iterator.next();
+                if (current == null || !current.getOrderId().equals(row.getOrderId())) {
+                    if (current != null) {
+                        consumer.accept(current);
+                    }
+                    current = new OrderQueryDto(row.getOrderId(), row.getName(), row.getOrderDate(), row.getOrderStatus(), row.getAddress(), new ArrayList<>());
+                }
+                current.getOrderItems().add(new OrderItemQueryDto(row.getOrderId(), row.getItemName(), row.getOrderPrice(), row.getCount()));
+            }
+            if (current != null) {
+                consumer.accept(current);
+            }
+        }
+    }
 }
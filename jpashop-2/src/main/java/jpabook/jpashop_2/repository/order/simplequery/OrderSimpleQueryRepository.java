@@ -1,6 +1,7 @@
 package jpabook.jpashop_2.repository.order.simplequery;
 
 import jakarta.persistence.EntityManager;
+import jpabook.jpashop_2.repository.OrderCursor;
 import lombok.RequiredArgsConstructor;
 import org.springframework.stereotype.Repository;
 
@@ -47,4 +48,21 @@ public class OrderSimpleQueryRepository {
                                 " join o.delivery d", OrderSimpleQueryDto.class)
                 .getResultList();
     }
+
+    /**
+     * findOrderDtos를 커서(keyset) 페이징으로 (OrderRepository.findAllWithMemberDelivery(OrderCursor, int)와 같은 순서)
+     */
+    public List<OrderSimpleQueryDto> findOrderDtos(OrderCursor after, int limit) {
+        String jpql = "select new jpabook.jpashop_2.repository.order.simplequery.OrderSimpleQueryDto(o.id, m.name, o.orderDate, o.status, d.address) " +
+                "from Order o" +
+                " join o.member m" +
+                " join o.delivery d";
+        if (after != null) {
+            jpql += " where" + OrderCursor.AFTER;
+        }
+        jpql += OrderCursor.ORDER_BY;
+
+        return OrderCursor.bind(em.createQuery(jpql, OrderSimpleQueryDto.class), after, limit)
+                .getResultList();
+    }
 }
@@ -0,0 +1,95 @@
+package jpabook.jpashop_2.service;
+
+import java.io.IOException;
+import java.io.Reader;
+import java.util.ArrayList;
+import java.util.List;
+
+// CSV를 한 행씩 읽는다. (RFC 4180)
+// 파일 전체를 읽어두지 않고 Reader에서 글자를 당겨오면서 행 하나만 만든다. -> 파일 크기와 상관없이 메모리가 일정하다.
+// - 쉼표로 칸을 나누고, 큰따옴표로 감싼 칸은 안에 쉼표나 줄바꿈이 있어도 한 칸이다.
+// - 따옴표 안의 "" 는 " 한 글자
+// - 줄바꿈은 \n, \r\n 둘 다 받는다.
+final class MemberCsvReader {
+
+    private static final int MAX_FIELD_LENGTH = 64 * 1024;
+
+    private final Reader reader;
+    private int peeked = -2;
+
+    MemberCsvReader(Reader reader) {
+        this.reader = reader;
+    }
+
+    /**
+     * 다음 행의 칸들, 파일 끝이면 null
+     */
+    List<String> readRecord() throws IOException {
+        int c = read();
+        if (c < 0) {
+            return null;
+        }
+
+        List<String> fields = new ArrayList<>(4);
+        StringBuilder field = new StringBuilder();
+        boolean quoted = false;
+        while (true) {
+            if (quoted) {
+                if (c < 0) {
+                    throw new IOException("닫히지 않은 따옴표");
+                }
+                if (c == '"') {
+                    if (peek() == '"') {
+                        read();
+                        append(field, '"');
+                    } else {
+                        quoted = false;
+                    }
+                } else {
+                    append(field, (char) c);
+                }
+            } else if (c < 0 || c == '\n') {
+                fields.add(field.toString());
+                return fields;
+            } else if (c == '\r') {
+                if (peek() == '\n') {
+                    read();
+                }
+                fields.add(field.toString());
+                return fields;
+            } else if (c == ',') {
+                fields.add(field.toString());
+                field.setLength(0);
+            } else if (c == '"' && field.length() == 0) {
+                quoted = true;
+            } else {
+                append(field, (char) c);
+            }
+            c = read();
+        }
+    }
+
+    // 줄바꿈 없는 거대한 칸 하나로 힙이 터지지 않게 길이를 막는다.
+    private static void append(StringBuilder field, char c) throws IOException {
+        if (field.length() >= MAX_FIELD_LENGTH) {
+            throw new IOException("칸이 너무 깁니다. (최대 " + MAX_FIELD_LENGTH + "자)");
+        }
+        field.append(c);
+    }
+
+    private int read() throws IOException {
+        if (peeked != -2) {
+            int c = peeked;
+            peeked = -2;
+            return c;
+        }
+        return reader.read();
+    }
+
+    private int peek() throws IOException {
+        if (peeked == -2) {
+            peeked = reader.read();
+        }
+        return peeked;
+    }
+}
@@ -0,0 +1,18 @@
+package jpabook.jpashop_2.service;
+
+import lombok.AllArgsConstructor;
+import lombok.Getter;
+
+// CSV 가져오기 진행 상황 (NDJSON 한 줄)
+// rows: 읽은 행 수(헤더, 빈 줄 제외), imported: 새로 가입한 회원 수
+// duplicates: 이미 있거나 파일 안에서 겹친 이름이라 건너뛴 수, invalid: 빈 이름이나 너무 긴 이름
+@Getter
+@AllArgsConstructor
+public class MemberImportProgress {
+    private long rows;
+    private long imported;
+    private long duplicates;
+    private long invalid;
+    private long elapsedMillis;
+    private boolean done;
+}
@@ -0,0 +1,126 @@
+package jpabook.jpashop_2.service;
+
+import jpabook.jpashop_2.domain.Address;
+import jpabook.jpashop_2.domain.Member;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.dao.DataIntegrityViolationException;
+import org.springframework.stereotype.Service;
+
+import java.io.IOException;
+import java.io.Reader;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+import java.util.function.Consumer;
+
+// CSV 회원 일괄 가져오기
+// 칸 순서: name, city, street, zipcode (주소는 없어도 된다) 첫 칸이 name이면 헤더로 보고 건너뛴다.
+// 1. CSV를 한 행씩 읽으면서 chunkSize명씩 모은다. -> 메모리에는 한 묶음만 있어서 파일이 아무리 커도 일정하다.
+// 2. 묶음마다 MemberService.importMembers를 한 번 부른다. -> 묶음 하나가 트랜잭션 하나
+//    중복 확인은 in 절 한 번(+ 블룸 필터), 저장은 hibernate.jdbc.batch_size 만큼씩 배치 insert
+// 3. 묶음이 끝날 때마다 진행 상황을 listener로 넘긴다.
+// 중간에 실패하면 그 앞 묶음까지는 이미 커밋되어 있다. -> 같은 파일을 다시 올리면 들어간 이름은 duplicates로 건너뛴다.
+@Service
+public class MemberImportService {
+
+    private static final int MAX_NAME_LENGTH = 255;
+
+    private final MemberService memberService;
+    private final int chunkSize;
+
+    public MemberImportService(MemberService memberService,
+                               @Value("${jpashop.member-import.chunk-size:1000}") int chunkSize) {
+        this.memberService = memberService;
+        this.chunkSize = chunkSize;
+    }
+
+    public MemberImportProgress importCsv(Reader reader, Consumer<MemberImportProgress> listener) throws IOException {
+        long start = System.nanoTime();
+        MemberCsvReader csv = new MemberCsvReader(reader);
+        List<Member> chunk = new ArrayList<>(chunkSize);
+        // rows, imported, duplicates, invalid
+        long[] counts = new long[4];
+
+        boolean header = true;
+        List<String> record;
+        while ((record = csv.readRecord()) != null) {
+            String name = record.get(0).strip();
+            if (record.size() == 1 && name.isEmpty()) {
+                continue;   // 빈 줄
+            }
+            if (header) {
+                header = false;
+                if (name.equalsIgnoreCase("name")) {
+                    continue;
+                }
+            }
+
+            counts[0]++;
+            if (name.isEmpty() || name.length() > MAX_NAME_LENGTH) {
+                counts[3]++;
+                continue;
+            }
+            chunk.add(toMember(name, record));
+            if (chunk.size() == chunkSize) {
+                importChunk(chunk, counts);
+                chunk.clear();
+                listener.accept(progress(counts, start, false));
+            }
+        }
+        if (!chunk.isEmpty()) {
+            importChunk(chunk, counts);
+        }
+
+        MemberImportProgress result = progress(counts, start, true);
+        listener.accept(result);
+        return result;
+    }
+
+    // 묶음은 통째로 커밋되거나 통째로 롤백된다. (importMembers가 트랜잭션 하나)
+    // 확인과 저장 사이에 다른 가입과 이름이 겹치면 unique 제약에 걸려 롤백되니까 한 번만 다시 돌린다.
+    // -> 두 번째에는 겹친 이름이 in 절에서 걸러져 duplicates로 센다. 그 사이 들어간 행이 없으니 개수도 맞다.
+    // 다시 돌릴 때는 회원 객체를 새로 만든다.
+    // -> 처음 persist 때 시퀀스 id가 이미 채워져서 같은 객체를 넘기면 detached entity로 거절된다.
+    private void importChunk(List<Member> members, long[] counts) {
+        int imported;
+        try {
+            imported = memberService.importMembers(members);
+        } catch (DataIntegrityViolationException e) {
+            imported = memberService.reimportMembers(copyOf(members));
+        }
+        counts[1] += imported;
+        counts[2] += members.size() - imported;
+    }
+
+    private static Member toMember(String name, List<String> record) {
+        Member member = new Member();
+        member.setName(name);
+        if (record.size() > 1) {
+            member.setAddress(new Address(field(record, 1), field(record, 2), field(record, 3)));
+        }
+        return member;
+    }
+
+    private static List<Member> copyOf(List<Member> members) {
+        List<Member> copies = new ArrayList<>(members.size());
+        for (Member member : members) {
+            Member copy = new Member();
+            copy.setName(member.getName());
+            Address address = member.getAddress();
+            if (address != null) {
+                copy.setAddress(new Address(address.getCity(), address.getStreet(), address.getZipcode()));
+            }
+            copies.add(copy);
+        }
+        return copies;
+    }
+
+    private static String field(List<String> record, int index) {
+        return index < record.size() ? record.get(index).strip() : null;
+    }
+
+    private static MemberImportProgress progress(long[] counts, long start, boolean done) {
+        return new MemberImportProgress(counts[0], counts[1], counts[2], counts[3],
+                TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - start), done);
+    }
+}
@@ -3,10 +3,17 @@ package jpabook.jpashop_2.service;
 import jpabook.jpashop_2.domain.Member;
 import jpabook.jpashop_2.repository.MemberRepository;
 import lombok.RequiredArgsConstructor;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.dao.DataIntegrityViolationException;
 import org.springframework.stereotype.Service;
 import org.springframework.transaction.annotation.Transactional;
 
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
 import java.util.List;
+import java.util.Map;
+import java.util.stream.Stream;
 
 @Service
 @Transactional(readOnly = true)
@@ -15,6 +22,34 @@ public class MemberService {
 
     private final MemberRepository memberRepository;
 
+    // 이미 있는 회원 이름의 블룸 필터
+    // 새 이름은 거의 다 처음 보는 이름이라서 중복 검증 select가 대부분 헛걸음이다.
+    // 필터가 "확실히 없다"고 하면 select를 건너뛰고, "있을 수도 있다"일 때만 DB에 물어본다.
+    // 시작할 때 한 번 훑어서 채우고, 가입/이름 변경 때마다 추가한다.
+    // 다 채워지기 전(nameFilterReady == false)에는 예전처럼 매번 DB에 물어본다.
+    private static final int NAME_FILTER_CAPACITY = 1 << 16;
+    private final ScalableBloomFilter nameFilter = new ScalableBloomFilter(NAME_FILTER_CAPACITY, 0.01);
+    private volatile boolean nameFilterReady;
+
+    /**
+     * 회원 이름 필터 적재
+     */
+    // InitDb까지 끝나고 애플리케이션이 뜬 다음 이름만 커서로 읽어서 넣는다.
+    // 그 사이에 가입한 회원은 join에서 따로 넣기 때문에 빠지는 이름이 없다.
+    @EventListener(ApplicationReadyEvent.class)
+    public void loadNameFilter() {
+        try (Stream<String> names = memberRepository.streamNames()) {
+            names.forEach(this::addToNameFilter);
+        }
+        nameFilterReady = true;
+    }
+
+    private void addToNameFilter(String name) {
+        if (name != null) {
+            nameFilter.put(name);
+        }
+    }
+
     /**
      * 회원 가입
      */
@@ -22,11 +57,24 @@ public class MemberService {
     public Long join(Member member) {
 
         validateDuplicateMember(member);    // 중복 회원 검증
-        memberRepository.save(member);
+//        memberRepository.save(member);
+        // 필터가 "없다"고 해서 select를 건너뛰어도, 동시에 같은 이름으로 가입해도 unique 제약이 막는다.
+        try {
+            memberRepository.saveAndFlush(member);
+        } catch (DataIntegrityViolationException e) {
+            throw new IllegalStateException("이미 존재하는 회원입니다.");
+        }
+        // 롤백되면 필터에만 이름이 남는다. -> 다음에 한 번 더 조회할 뿐 틀린 답은 아니다.
+        addToNameFilter(member.getName());
         return member.getId();
     }
 
     private void validateDuplicateMember(Member member) {
+        // 필터에 없는 이름은 DB에도 없다.
+        if (nameFilterReady && member.getName() != null && !nameFilter.mightContain(member.getName())) {
+            return;
+        }
+
         // EXCEPTION
         List<Member> findMembers = memberRepository.findByName(member.getName());
         if (!findMembers.isEmpty()) {
@@ -34,11 +82,69 @@ public class MemberService {
         }
     }
 
+    /**
+     * 회원 일괄 등록 (CSV 가져오기 한 묶음)
+     */
+    // join과 달리 이미 있는 이름, 묶음 안에서 겹친 이름은 예외 대신 건너뛰고 나머지만 저장한다.
+    // 회원마다 select를 날리지 않고 in 절 한 번으로 확인한다. (필터가 "확실히 없다"는 이름은 그것도 빼고)
+    // 확인과 저장 사이에 다른 곳에서 같은 이름이 들어오면 flush에서 unique 제약에 걸려 DataIntegrityViolationException
+    // -> 묶음 하나가 트랜잭션 하나라서 묶음 전체가 롤백된다. 다시 부르면 그 이름은 in 절에서 걸러진다. (MemberImportService)
+    // persist는 바로 insert를 날리지 않고 쌓아뒀다가 flush 때 hibernate.jdbc.batch_size 만큼씩 배치로 보낸다.
+    // 저장한 회원 수를 돌려준다.
+    @Transactional
+    public int importMembers(List<Member> members) {
+        return importMembers(members, true);
+    }
+
+    /**
+     * 회원 일괄 등록 다시 하기 (unique 제약에 걸려 롤백된 묶음)
+     */
+    // 필터를 믿지 않고 모든 이름을 in 절로 확인한다.
+    // -> 서비스를 거치지 않고 들어간 이름은 필터가 "없다"고 해서 같은 자리에서 또 걸리기 때문이다.
+    @Transactional
+    public int reimportMembers(List<Member> members) {
+        return importMembers(members, false);
+    }
+
+    private int importMembers(List<Member> members, boolean useFilter) {
+        Map<String, Member> fresh = new LinkedHashMap<>();
+        for (Member member : members) {
+            fresh.putIfAbsent(member.getName(), member);
+        }
+
+        List<String> candidates = new ArrayList<>();
+        for (String name : fresh.keySet()) {
+            if (!useFilter || !nameFilterReady || nameFilter.mightContain(name)) {
+                candidates.add(name);
+            }
+        }
+        if (!candidates.isEmpty()) {
+            for (String existing : memberRepository.findExistingNames(candidates)) {
+                fresh.remove(existing);
+            }
+        }
+
+        for (Member member : fresh.values()) {
+            memberRepository.save(member);
+        }
+        // OSIV가 켜져 있으면 영속성 컨텍스트가 요청 끝까지 살아 있어서 묶음마다 비워준다.
+        memberRepository.flushAndClear();
+        for (String name : fresh.keySet()) {
+            addToNameFilter(name);
+        }
+        return fresh.size();
+    }
+
     // 회원 전체 조회
     public List<Member> findMembers() {
         return memberRepository.findAll();
     }
 
+    // 회원 이름 자동완성
+    public List<Member> searchMembers(String prefix, int limit) {
+        return memberRepository.searchByNamePrefix(prefix, limit);
+    }
+
     public Member findOne(Long memberId) {
         return memberRepository.findOne(memberId);
     }
@@ -55,5 +161,7 @@ public class MemberService {
     public void update(Long id, String name) {
         Member member = memberRepository.findOne(id);
         member.setName(name);
+        // 바뀐 이름도 이제 "있는 이름"이다. 예전 이름은 필터에서 뺄 수 없지만 오탐으로 남을 뿐이다.
+        addToNameFilter(name);
     }
 }
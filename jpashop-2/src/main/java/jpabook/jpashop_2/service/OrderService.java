@@ -63,6 +63,12 @@ public class OrderService {
 
     // 검색
     public List<Order> findOrders(OrderSearch orderSearch) {
-        return orderRepository.findAllByString(orderSearch);
+//        return orderRepository.findAllByString(orderSearch);
+        return orderRepository.findAll(orderSearch);
+    }
+
+    // 검색 + 다음 페이지 확인용 한 개 더 (pageSize + 1)
+    public List<Order> findOrdersWithNext(OrderSearch orderSearch) {
+        return orderRepository.findAllWithNext(orderSearch);
     }
 }
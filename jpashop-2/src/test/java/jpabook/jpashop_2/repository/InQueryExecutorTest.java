@@ -0,0 +1,52 @@
+package jpabook.jpashop_2.repository;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class InQueryExecutorTest {
+
+    @Test
+    void 덩어리_나누기_패딩() {
+        // given: 순서 섞임, 중복, null
+        List<Long> ids = new ArrayList<>(Arrays.asList(5L, 3L, null, 3L, 9L));
+
+        // when
+        List<List<Long>> chunks = InQueryExecutor.chunks(ids);
+
+        // then: 정렬 + 중복 제거 후 3개 -> 4개로 마지막 id 패딩
+        assertEquals(List.of(List.of(3L, 5L, 9L, 9L)), chunks);
+    }
+
+    @Test
+    void 덩어리_크기는_2의_거듭제곱() {
+        assertEquals(List.of(), InQueryExecutor.chunks(List.of()));
+        assertEquals(List.of(1), sizes(1));
+        assertEquals(List.of(512), sizes(512));
+        assertEquals(List.of(512, 1), sizes(513));
+        assertEquals(List.of(512, 512, 512), sizes(1500));     // 마지막 476개 -> 512
+
+        // 마지막 덩어리는 자기 마지막 id로만 채운다.
+        List<List<Long>> chunks = InQueryExecutor.chunks(range(1500));
+        List<Long> last = chunks.get(2);
+        assertEquals(1025L, last.get(0));
+        assertTrue(last.subList(475, 512).stream().allMatch(id -> id == 1500L));
+    }
+
+    private static List<Integer> sizes(int n) {
+        return InQueryExecutor.chunks(range(n)).stream().map(List::size).toList();
+    }
+
+    private static List<Long> range(int n) {
+        List<Long> ids = new ArrayList<>(n);
+        for (long i = 1; i <= n; i++) {
+            ids.add(i);
+        }
+        return ids;
+    }
+}
@@ -0,0 +1,189 @@
+package jpabook.jpashop_2.repository;
+
+import jakarta.persistence.EntityManager;
+import jpabook.jpashop_2.domain.Address;
+import jpabook.jpashop_2.domain.Delivery;
+import jpabook.jpashop_2.domain.Item.Book;
+import jpabook.jpashop_2.domain.Member;
+import jpabook.jpashop_2.domain.Order;
+import jpabook.jpashop_2.domain.OrderItem;
+import jpabook.jpashop_2.domain.OrderStatus;
+import org.hibernate.Hibernate;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.transaction.annotation.Transactional;
+
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+@SpringBootTest
+@Transactional
+public class OrderRepositoryTest {
+
+    @Autowired EntityManager em;
+    @Autowired OrderRepository orderRepository;
+
+    @Test
+    public void 주문_아이디_먼저_페이징() throws Exception {
+        // given
+        // 이미 있는 주문(다른 테스트가 커밋한 것)은 id가 더 작아서 앞쪽 페이지에 온다. -> 그만큼 offset을 민다.
+        int existing = em.createQuery("select count(o) from Order o", Long.class).getSingleResult().intValue();
+        Member member = new Member();
+        member.setName("회원1");
+        member.setAddress(new Address("서울", "강가", "123-123"));
+        em.persist(member);
+        Book book = new Book();
+        book.setName("JPA1 BOOK");
+        book.setPrice(10000);
+        book.setStockQuantity(100);
+        em.persist(book);
+
+        // 주문마다 상품 2개 -> 조인하면 행이 두 배로 늘어난다.
+        List<Long> orderIds = new ArrayList<>();
+        for (int i = 0; i < 5; i++) {
+            Delivery delivery = new Delivery();
+            delivery.setAddress(member.getAddress());
+            Order order = Order.createOrder(member, delivery,
+                    OrderItem.createOrderItem(book, 10000, 1), OrderItem.createOrderItem(book, 10000, 2));
+            em.persist(order);
+            orderIds.add(order.getId());
+        }
+        em.flush();
+        em.clear();
+
+        // when
+        List<Order> page = orderRepository.findAllWithItem(existing + 2, 2);
+
+        // then
+        assertEquals(orderIds.subList(2, 4), page.stream().map(Order::getId).toList(), "주문 기준으로 3번째, 4번째 주문");
+        for (Order order : page) {
+            assertTrue(Hibernate.isInitialized(order.getOrderItems()), "상품까지 같이 가져와야 한다.");
+            assertEquals(2, order.getOrderItems().size());
+            assertTrue(Hibernate.isInitialized(order.getOrderItems().get(0).getItem()));
+        }
+        assertEquals(0, orderRepository.findAllWithItem(existing + 10, 2).size());
+    }
+
+    @Test
+    public void 주문_커서_페이징() throws Exception {
+        // given: 주문 시각이 같은 주문이 섞여 있다. -> id로 순서가 갈린다.
+        Member member = new Member();
+        member.setName("회원1");
+        member.setAddress(new Address("서울", "강가", "123-123"));
+        em.persist(member);
+
+        LocalDateTime base = LocalDateTime.of(2026, 1, 1, 0, 0);
+        List<Long> orderIds = new ArrayList<>();
+        for (int i = 0; i < 5; i++) {
+            Delivery delivery = new Delivery();
+            delivery.setAddress(member.getAddress());
+            Order order = Order.createOrder(member, delivery);
+            order.setOrderDate(base.plusMinutes(i / 2));
+            em.persist(order);
+            orderIds.add(order.getId());
+        }
+        em.flush();
+        em.clear();
+
+        // when: 2개씩 끝까지 넘긴다.
+        List<Long> visited = new ArrayList<>();
+        OrderCursor cursor = null;
+        while (true) {
+            List<Order> page = orderRepository.findAllWithMemberDelivery(cursor, 2);
+            page.forEach(o -> visited.add(o.getId()));
+            if (page.size() < 2) {
+                break;
+            }
+            Order last = page.get(page.size() - 1);
+            cursor = OrderCursor.decode(OrderCursor.of(last.getOrderDate(), last.getId()).encode());
+        }
+
+        // then: 최신 주문부터, 빠지거나 겹치는 주문 없이
+        // 다른 테스트가 커밋한 주문이 섞여 있어도 되게 이 테스트가 만든 주문만 본다. (순서는 그대로)
+        List<Long> expected = new ArrayList<>(orderIds);
+        Collections.reverse(expected);
+        assertEquals(expected, visited.stream().filter(orderIds::contains).toList());
+    }
+
+    @Test
+    public void 주문_검색_조건_커서() throws Exception {
+        // given: userA 주문 3개(하나는 취소), userB 주문 1개
+        Member userA = new Member();
+        userA.setName("searchCursorUserA");
+        userA.setAddress(new Address("서울", "강가", "123-123"));
+        em.persist(userA);
+        Member userB = new Member();
+        userB.setName("searchCursorUserB");
+        userB.setAddress(new Address("부산", "해변", "456-456"));
+        em.persist(userB);
+
+        LocalDateTime base = LocalDateTime.of(2026, 1, 1, 0, 0);
+        List<Long> userAOrders = new ArrayList<>();
+        for (int i = 0; i < 3; i++) {
+            Delivery delivery = new Delivery();
+            delivery.setAddress(userA.getAddress());
+            Order order = Order.createOrder(userA, delivery);
+            order.setOrderDate(base.plusMinutes(i));
+            if (i == 1) {
+                order.setStatus(OrderStatus.CANCEL);
+            }
+            em.persist(order);
+            userAOrders.add(order.getId());
+        }
+        Delivery delivery = new Delivery();
+        delivery.setAddress(userB.getAddress());
+        Order other = Order.createOrder(userB, delivery);
+        other.setOrderDate(base.plusMinutes(10));
+        em.persist(other);
+        em.flush();
+        em.clear();
+
+        // when, then: 이름 + 상태
+        OrderSearch search = new OrderSearch();
+        search.setMemberName("searchCursorUserA");
+        search.setOrderStatus(OrderStatus.ORDER);
+        assertEquals(List.of(userAOrders.get(2), userAOrders.get(0)),
+                orderRepository.findAll(search).stream().map(Order::getId).toList());
+
+        // when, then: 이름만, 1개씩 커서로 넘기기
+        OrderSearch byName = new OrderSearch();
+        byName.setMemberName("searchCursorUserA");
+        byName.setLimit(1);
+        List<Long> visited = new ArrayList<>();
+        for (int i = 0; i < 4; i++) {
+            List<Order> page = orderRepository.findAll(byName);
+            if (page.isEmpty()) {
+                break;
+            }
+            Order last = page.get(0);
+            visited.add(last.getId());
+            byName.setCursor(OrderCursor.of(last.getOrderDate(), last.getId()).encode());
+        }
+        List<Long> expected = new ArrayList<>(userAOrders);
+        Collections.reverse(expected);
+        assertEquals(expected, visited);
+
+        // when, then: 다음 페이지 확인용으로 한 개 더 읽는다. 딱 맞게 끝나면 더 없다.
+        OrderSearch withNext = new OrderSearch();
+        withNext.setMemberName("searchCursorUserA");
+        withNext.setLimit(2);
+        assertEquals(3, orderRepository.findAllWithNext(withNext).size());
+        withNext.setLimit(3);
+        assertEquals(3, orderRepository.findAllWithNext(withNext).size());
+
+        // limit은 findAll, findAllByString, findAllByCriteria 모두 같은 값
+        withNext.setLimit(2);
+        assertEquals(2, orderRepository.findAll(withNext).size());
+        assertEquals(2, orderRepository.findAllByString(withNext).size());
+        assertEquals(2, orderRepository.findAllByCriteria(withNext).size());
+
+        // 조건이 없으면 전체 (최신 주문부터)
+        assertEquals(other.getId(), orderRepository.findAll(new OrderSearch()).get(0).getId());
+    }
+}
@@ -0,0 +1,114 @@
+package jpabook.jpashop_2.repository.order.query;
+
+import jakarta.persistence.EntityManager;
+import jpabook.jpashop_2.domain.Address;
+import jpabook.jpashop_2.domain.Delivery;
+import jpabook.jpashop_2.domain.Item.Book;
+import jpabook.jpashop_2.domain.Member;
+import jpabook.jpashop_2.domain.Order;
+import jpabook.jpashop_2.domain.OrderItem;
+import jpabook.jpashop_2.repository.InQueryExecutor;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+// InQueryExecutor가 덩어리를 다른 스레드(다른 커넥션)에서 동시에 돌리는 경로
+// 테스트 트랜잭션 안이면 차례로 도는 경로를 타니까 @Transactional을 안 붙이고 데이터를 커밋한 다음 지운다.
+@SpringBootTest
+public class OrderQueryRepositoryParallelTest {
+
+    @Autowired EntityManager em;
+    @Autowired OrderQueryRepository orderQueryRepository;
+    @Autowired InQueryExecutor inQueryExecutor;
+    @Autowired PlatformTransactionManager transactionManager;
+
+    TransactionTemplate tx;
+    Long memberId;
+    Long bookId;
+    final List<Long> orderIds = new ArrayList<>();
+
+    @BeforeEach
+    public void beforeEach() {
+        tx = new TransactionTemplate(transactionManager);
+        tx.executeWithoutResult(status -> {
+            Member member = new Member();
+            member.setName("parallel-member");
+            member.setAddress(new Address("서울", "강가", "123-123"));
+            em.persist(member);
+            Book book = new Book();
+            book.setName("PARALLEL BOOK");
+            book.setPrice(10000);
+            book.setStockQuantity(1_000_000);
+            em.persist(book);
+
+            // 덩어리 3개 (512, 512, 10 -> 16)
+            for (int i = 0; i < InQueryExecutor.CHUNK_SIZE * 2 + 10; i++) {
+                Delivery delivery = new Delivery();
+                delivery.setAddress(member.getAddress());
+                Order order = Order.createOrder(member, delivery,
+                        OrderItem.createOrderItem(book, 10000, 1), OrderItem.createOrderItem(book, 10000, 2));
+                em.persist(order);
+                orderIds.add(order.getId());
+            }
+            memberId = member.getId();
+            bookId = book.getId();
+        });
+    }
+
+    @AfterEach
+    public void afterEach() {
+        tx.executeWithoutResult(status -> {
+            List<Long> deliveryIds = em.createQuery("select o.delivery.id from Order o where o.id in :ids", Long.class)
+                    .setParameter("ids", orderIds)
+                    .getResultList();
+            em.createQuery("delete from OrderItem oi where oi.order.id in :ids").setParameter("ids", orderIds).executeUpdate();
+            em.createQuery("delete from Order o where o.id in :ids").setParameter("ids", orderIds).executeUpdate();
+            em.createQuery("delete from Delivery d where d.id in :ids").setParameter("ids", deliveryIds).executeUpdate();
+            em.createQuery("delete from Item i where i.id = :id").setParameter("id", bookId).executeUpdate();
+            em.createQuery("delete from Member m where m.id = :id").setParameter("id", memberId).executeUpdate();
+        });
+    }
+
+    @Test
+    public void 덩어리를_동시에_돌린다() throws Exception {
+        // when
+        Set<String> threads = ConcurrentHashMap.newKeySet();
+        List<Long> found = inQueryExecutor.execute(orderIds, chunk -> {
+            threads.add(Thread.currentThread().getName());
+            return em.createQuery("select o.id from Order o where o.id in :ids", Long.class)
+                    .setParameter("ids", chunk)
+                    .getResultList();
+        });
+
+        // then
+        assertEquals(orderIds.size(), found.size(), "패딩으로 넣은 id가 중복 결과를 만들면 안 된다.");
+        assertTrue(threads.stream().anyMatch(name -> name.startsWith("in-query-")), "실행기 스레드에서 돌아야 한다. " + threads);
+    }
+
+    @Test
+    public void 주문상품_동시에_묶기() throws Exception {
+        // when
+        List<OrderQueryDto> result = orderQueryRepository.findAllByDto_optimization().stream()
+                .filter(o -> orderIds.contains(o.getOrderId()))
+                .toList();
+
+        // then
+        assertEquals(orderIds.size(), result.size());
+        for (OrderQueryDto order : result) {
+            assertEquals(2, order.getOrderItems().size(), "주문마다 자기 상품만 붙어야 한다.");
+            assertEquals(order.getOrderId(), order.getOrderItems().get(0).getOrderId());
+        }
+    }
+}
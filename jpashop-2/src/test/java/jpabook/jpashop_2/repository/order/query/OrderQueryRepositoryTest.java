@@ -0,0 +1,101 @@
+package jpabook.jpashop_2.repository.order.query;
+
+import jakarta.persistence.EntityManager;
+import jpabook.jpashop_2.domain.Address;
+import jpabook.jpashop_2.domain.Delivery;
+import jpabook.jpashop_2.domain.Item.Book;
+import jpabook.jpashop_2.domain.Member;
+import jpabook.jpashop_2.domain.Order;
+import jpabook.jpashop_2.domain.OrderItem;
+import jpabook.jpashop_2.repository.InQueryExecutor;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.transaction.annotation.Transactional;
+
+import java.util.ArrayList;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+
+@SpringBootTest
+@Transactional
+public class OrderQueryRepositoryTest {
+
+    @Autowired EntityManager em;
+    @Autowired OrderQueryRepository orderQueryRepository;
+
+    @Test
+    public void 주문_스트리밍_묶기() throws Exception {
+        // given
+        Member member = new Member();
+        member.setName("회원1");
+        member.setAddress(new Address("서울", "강가", "123-123"));
+        em.persist(member);
+        Book jpa = createBook("JPA1 BOOK");
+        Book spring = createBook("SPRING1 BOOK");
+
+        Long first = createOrder(member, OrderItem.createOrderItem(jpa, 10000, 1), OrderItem.createOrderItem(spring, 20000, 2));
+        Long second = createOrder(member, OrderItem.createOrderItem(spring, 20000, 3));
+        Long third = createOrder(member, OrderItem.createOrderItem(jpa, 10000, 4), OrderItem.createOrderItem(spring, 20000, 5));
+        em.flush();
+        em.clear();
+
+        // when
+        List<OrderQueryDto> result = new ArrayList<>();
+        orderQueryRepository.streamAllByDto_flat(result::add);
+
+        // then
+        assertEquals(List.of(first, second, third), result.stream().map(OrderQueryDto::getOrderId).toList(), "주문 id 순서대로 하나씩 나와야 한다.");
+        assertEquals(2, result.get(0).getOrderItems().size());
+        assertEquals(1, result.get(1).getOrderItems().size());
+        assertEquals(2, result.get(2).getOrderItems().size());
+        assertEquals(5, result.get(2).getOrderItems().get(1).getCount());
+        assertEquals("서울", result.get(0).getAddress().getCity());
+    }
+
+    @Test
+    public void 주문상품_IN_쿼리_나눠서_묶기() throws Exception {
+        // given: 한 덩어리(512)를 넘는 주문
+        Member member = new Member();
+        member.setName("회원1");
+        member.setAddress(new Address("서울", "강가", "123-123"));
+        em.persist(member);
+        Book book = createBook("JPA1 BOOK");
+        book.setStockQuantity(10000);
+
+        int orders = InQueryExecutor.CHUNK_SIZE + 10;
+        for (int i = 0; i < orders; i++) {
+            createOrder(member, OrderItem.createOrderItem(book, 10000, 1), OrderItem.createOrderItem(book, 10000, 2));
+        }
+        em.flush();
+        em.clear();
+
+        // when
+        List<OrderQueryDto> result = orderQueryRepository.findAllByDto_optimization();
+
+        // then
+        assertEquals(orders, result.size());
+        for (OrderQueryDto order : result) {
+            assertEquals(2, order.getOrderItems().size(), "주문마다 자기 상품만 붙어야 한다.");
+            assertEquals(order.getOrderId(), order.getOrderItems().get(0).getOrderId());
+        }
+    }
+
+    private Book createBook(String name) {
+        Book book = new Book();
+        book.setName(name);
+        book.setPrice(10000);
+        book.setStockQuantity(100);
+        em.persist(book);
+        return book;
+    }
+
+    private Long createOrder(Member member, OrderItem... orderItems) {
+        Delivery delivery = new Delivery();
+        delivery.setAddress(member.getAddress());
+        Order order = Order.createOrder(member, delivery, orderItems);
+        em.persist(order);
+        return order.getId();
+    }
+}
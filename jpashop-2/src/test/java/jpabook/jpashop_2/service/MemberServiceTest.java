@@ -6,7 +6,13 @@ import jpabook.jpashop_2.repository.MemberRepository;
 import org.junit.jupiter.api.Test;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.annotation.Propagation;
 import org.springframework.transaction.annotation.Transactional;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.io.StringReader;
+import java.util.List;
 
 import static org.junit.jupiter.api.Assertions.assertEquals;
 import static org.junit.jupiter.api.Assertions.fail;
@@ -17,8 +23,10 @@ public class MemberServiceTest {
 
     @Autowired MemberService memberService;
     @Autowired MemberRepository memberRepository;
+    @Autowired MemberImportService memberImportService;
 
     @Autowired EntityManager em;
+    @Autowired PlatformTransactionManager transactionManager;
 
     @Test
     public void 회원가입() throws Exception {
@@ -53,4 +61,118 @@ public class MemberServiceTest {
         // then
         fail("예외가 발생해야 한다.");
     }
-}
\ No newline at end of file
+
+    @Test
+    public void 이름_필터_적재_후_중복_회원_예외() throws Exception {
+        // given
+        // 서비스를 거치지 않고 들어간 회원도 필터를 적재하면 중복으로 걸려야 한다.
+        Member member1 = new Member();
+        member1.setName("lee");
+        memberRepository.save(member1);
+        em.flush();
+        memberService.loadNameFilter();
+
+        Member member2 = new Member();
+        member2.setName("lee");
+
+        // when
+        try {
+            memberService.join(member2);    // 예외가 발생해야 한다!!!
+        } catch (IllegalStateException e) {
+            return;
+        }
+
+        // then
+        fail("예외가 발생해야 한다.");
+    }
+
+    @Test
+    public void 필터가_모르는_중복_회원_예외() throws Exception {
+        // given
+        // 필터를 채운 다음 서비스를 거치지 않고 들어간 회원 -> 필터는 "없다"고 답해서 select를 건너뛴다.
+        memberService.loadNameFilter();
+        Member member1 = new Member();
+        member1.setName("bypass-filter");
+        memberRepository.save(member1);
+        em.flush();
+
+        Member member2 = new Member();
+        member2.setName("bypass-filter");
+
+        // when
+        try {
+            memberService.join(member2);    // unique 제약에 걸려야 한다!!!
+        } catch (IllegalStateException e) {
+            return;
+        }
+
+        // then
+        fail("예외가 발생해야 한다.");
+    }
+
+    @Test
+    public void CSV_회원_가져오기() throws Exception {
+        // given
+        Member member = new Member();
+        member.setName("kim");
+        memberService.join(member);
+
+        String csv = "name,city,street,zipcode\n"
+                + "kim,seoul,1,1111\n"           // 이미 있는 이름
+                + "\"park, jr.\",busan,2,2222\n"
+                + "choi\n"
+                + "choi\n"                       // 파일 안에서 겹친 이름
+                + ",daegu\n";                    // 빈 이름
+
+        // when
+        MemberImportProgress result = memberImportService.importCsv(new StringReader(csv), progress -> { });
+
+        // then
+        assertEquals(5, result.getRows());
+        assertEquals(2, result.getImported());
+        assertEquals(2, result.getDuplicates());
+        assertEquals(1, result.getInvalid());
+        assertEquals("busan", memberRepository.findByName("park, jr.").get(0).getAddress().getCity());
+        assertEquals(1, memberRepository.findByName("choi").size());
+    }
+
+    // 묶음 트랜잭션이 unique 제약에 걸려 롤백된 뒤 다시 돌리는 경로
+    // 롤백이 테스트 트랜잭션까지 번지지 않게 트랜잭션 밖에서 돌리고 직접 지운다.
+    @Test
+    @Transactional(propagation = Propagation.NOT_SUPPORTED)
+    public void CSV_회원_가져오기_중_unique_제약에_걸리면_다시_가져온다() throws Exception {
+        // given
+        // 필터를 채운 다음 서비스를 거치지 않고 들어간 회원 -> 첫 시도는 in 절을 건너뛰고 flush에서 걸린다.
+        TransactionTemplate tx = new TransactionTemplate(transactionManager);
+        memberService.loadNameFilter();
+        tx.executeWithoutResult(status -> {
+            Member member = new Member();
+            member.setName("import-conflict");
+            memberRepository.save(member);
+        });
+
+        String csv = "name,city,street,zipcode\n"
+                + "import-conflict,seoul,1,1111\n"
+                + "import-fresh,busan,2,2222\n";
+
+        try {
+            // when
+            MemberImportProgress result = memberImportService.importCsv(new StringReader(csv), progress -> { });
+
+            // then
+            assertEquals(2, result.getRows());
+            assertEquals(1, result.getImported());
+            assertEquals(1, result.getDuplicates());
+            tx.executeWithoutResult(status -> {
+                assertEquals(1, memberRepository.findByName("import-conflict").size());
+                Member fresh = memberRepository.findByName("import-fresh").get(0);
+                assertEquals("busan", fresh.getAddress().getCity());
+                assertEquals("2222", fresh.getAddress().getZipcode());
+            });
+        } finally {
+            tx.executeWithoutResult(status -> em.createQuery("delete from Member m where m.name in :names")
+                    .setParameter("names", List.of("import-conflict", "import-fresh"))
+                    .executeUpdate());
+        }
+    }
+}
@@ -15,7 +15,15 @@ import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.boot.test.context.SpringBootTest;
 import org.springframework.transaction.annotation.Transactional;
 
+import jdk.jfr.Recording;
+import jdk.jfr.consumer.RecordedEvent;
+import jdk.jfr.consumer.RecordingFile;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.List;
+
 import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
 import static org.junit.jupiter.api.Assertions.assertThrows;
 
 @SpringBootTest
@@ -62,6 +70,59 @@ public class OrderServiceTest {
         );
     }
 
+    @Test
+    public void 상품주문_JFR_이벤트() throws Exception {
+        // given
+        Member member = createMember();
+        Book book = createBook("시골 JPA", 10000, 10);
+
+        List<RecordedEvent> events;
+        Path file = Files.createTempFile("order", ".jfr");
+        try (Recording recording = new Recording()) {
+            recording.enable("jpashop.RepositoryQuery");
+            recording.enable("jpashop.Transaction");
+            recording.enable("jpashop.StockDecrement");
+            recording.start();
+
+            // when
+            orderService.order(member.getId(), book.getId(), 2);
+
+            recording.stop();
+            recording.dump(file);
+            events = RecordingFile.readAllEvents(file);
+        } finally {
+            Files.deleteIfExists(file);
+        }
+
+        // then
+        RecordedEvent stock = single(events, "jpashop.StockDecrement");
+        assertEquals(book.getId().longValue(), stock.getLong("itemId"));
+        assertEquals(2, stock.getInt("quantity"));
+        assertEquals(10, stock.getInt("stockBefore"));
+        assertEquals(8, stock.getInt("stockAfter"));
+
+        // 테스트의 트랜잭션에 참여하는 호출이라서 joined
+        RecordedEvent transaction = single(events, "jpashop.Transaction");
+        assertEquals("OrderService", transaction.getString("service"));
+        assertEquals("order", transaction.getString("method"));
+        assertEquals("commit", transaction.getString("outcome"));
+        assertEquals(true, transaction.getBoolean("joined"));
+
+        assertTrue(events.stream()
+                .filter(e -> e.getEventType().getName().equals("jpashop.RepositoryQuery"))
+                .anyMatch(e -> "MemberRepository".equals(e.getString("repository"))
+                        && "findOne".equals(e.getString("method"))
+                        && e.getLong("rows") == 1));
+    }
+
+    private static RecordedEvent single(List<RecordedEvent> events, String name) {
+        List<RecordedEvent> found = events.stream()
+                .filter(e -> e.getEventType().getName().equals(name))
+                .toList();
+        assertEquals(1, found.size(), name);
+        return found.get(0);
+    }
+
     @Test
     public void 주문취소() throws Exception {
         // given
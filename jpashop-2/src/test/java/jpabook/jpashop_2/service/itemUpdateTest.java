@@ -6,7 +6,8 @@ import org.junit.jupiter.api.Test;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.boot.test.context.SpringBootTest;
 
-@SpringBootTest
+// InitDb가 넣은 JPA1 BOOK(id 1)을 쓴다.
+@SpringBootTest(properties = "jpashop.init-db.enabled=true")
 public class itemUpdateTest {
 
     @Autowired